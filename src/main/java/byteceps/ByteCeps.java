@@ -1,89 +1,184 @@
 package byteceps;
 
-import byteceps.commands.Parser;
 import byteceps.errors.Exceptions;
-import byteceps.processing.ExerciseManager;
-import byteceps.processing.WorkoutManager;
-import byteceps.processing.WeeklyProgramManager;
-import byteceps.processing.WorkoutLogsManager;
-import byteceps.processing.HelpMenuManager;
-import byteceps.processing.CascadingDeletionProcessor;
+import byteceps.server.CommandServer;
 import byteceps.storage.Storage;
+import byteceps.ui.strings.ServerStrings;
 import byteceps.ui.strings.UiStrings;
 import byteceps.ui.UserInterface;
 import byteceps.ui.strings.CommandStrings;
 
+import org.json.JSONException;
+
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 public class ByteCeps {
-    private static ExerciseManager exerciseManager = null;
-    private static WorkoutManager workoutManager = null;
-    private static WeeklyProgramManager weeklyProgramManager = null;
-    private static WorkoutLogsManager workoutLogsManager = null;
-    private static HelpMenuManager helpMenuManager = null;
-    private static Parser parser;
-    private static Storage storage;
-
     private static final String FILE_PATH = "data.json";
     private final UserInterface ui = UserInterface.getInstance();
+    private final Workspace workspace;
 
 
     public ByteCeps() {
-        exerciseManager = new ExerciseManager();
-        workoutManager = new WorkoutManager(exerciseManager);
-        workoutLogsManager = new WorkoutLogsManager();
-        weeklyProgramManager = new WeeklyProgramManager(exerciseManager, workoutManager, workoutLogsManager);
-        parser = new Parser();
-        storage = new Storage(FILE_PATH, ui);
-        helpMenuManager = new HelpMenuManager();
+        this(FILE_PATH);
+    }
+
+    public ByteCeps(String filePath) {
+        workspace = new Workspace(filePath, ui);
     }
 
+    /**
+     * Starts BYTE-CEPS. By default data is kept in data.json; "--data FILE" keeps it in FILE instead,
+     * stored in binary if FILE ends in .bin, or as a directory of separately saved segments if FILE ends in
+     * .segments. "--convert SOURCE TARGET" converts a snapshot between formats, "--migrate FILE" upgrades
+     * a JSON archive saved by an older version in place, and "--serve PORT DIRECTORY" serves a workspace per
+     * user over a local socket, keeping each workspace in a file in DIRECTORY. "--script SCRIPT" runs the
+     * commands in SCRIPT without the interactive prompt and saves once at the end, and "--batch" does the
+     * same with commands read from standard input. "--import-csv CSV" imports workout history from CSV,
+     * one row per set. Each of these three may follow "--data FILE". Any other arguments print the usage and
+     * exit with a non-zero status.
+     *
+     * @param args Command line options.
+     */
     public static void main(String[] args) {
-        new ByteCeps().run();
+        if (args.length == 3 && args[0].equals(CommandStrings.OPTION_CONVERT)) {
+            convertSnapshot(args[1], args[2]);
+            return;
+        }
+
+        if (args.length == 2 && args[0].equals(CommandStrings.OPTION_MIGRATE)) {
+            migrateArchive(args[1]);
+            return;
+        }
+
+        if (args.length == 3 && args[0].equals(CommandStrings.OPTION_SERVE)) {
+            serveWorkspaces(args[1], args[2]);
+            return;
+        }
+
+        String filePath = FILE_PATH;
+        if (args.length >= 2 && args[0].equals(CommandStrings.OPTION_DATA)) {
+            filePath = args[1];
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+
+        if (args.length == 2 && args[0].equals(CommandStrings.OPTION_SCRIPT)) {
+            runScriptFile(filePath, args[1]);
+            return;
+        }
+
+        if (args.length == 2 && args[0].equals(CommandStrings.OPTION_IMPORT_CSV)) {
+            importHistoryFile(filePath, args[1]);
+            return;
+        }
+
+        if (args.length == 1 && args[0].equals(CommandStrings.OPTION_BATCH)) {
+            new ByteCeps(filePath).runScript(new BufferedReader(new InputStreamReader(System.in,
+                    StandardCharsets.UTF_8)));
+            return;
+        }
+
+        if (args.length == 0) {
+            new ByteCeps(filePath).run();
+            return;
+        }
+        System.err.println(UiStrings.USAGE);
+        System.exit(UiStrings.EXIT_USAGE);
+    }
+
+    private static void runScriptFile(String filePath, String scriptPath) {
+        try (BufferedReader script = Files.newBufferedReader(Path.of(scriptPath), StandardCharsets.UTF_8)) {
+            new ByteCeps(filePath).runScript(script);
+        } catch (IOException e) {
+            UserInterface.getInstance().printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
+        }
+    }
+
+    private static void importHistoryFile(String filePath, String csvPath) {
+        try (BufferedReader csv = Files.newBufferedReader(Path.of(csvPath), StandardCharsets.UTF_8)) {
+            new ByteCeps(filePath).importHistory(csv);
+        } catch (IOException e) {
+            UserInterface.getInstance().printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
+        }
+    }
+
+    private static void convertSnapshot(String sourcePath, String targetPath) {
+        UserInterface ui = UserInterface.getInstance();
+        try {
+            Storage.convert(sourcePath, targetPath, ui);
+        } catch (IOException e) {
+            ui.printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
+        }
+    }
+
+    private static void migrateArchive(String archivePath) {
+        UserInterface ui = UserInterface.getInstance();
+        try {
+            Storage.migrate(archivePath, ui);
+        } catch (IOException | Exceptions.InvalidInput | JSONException e) {
+            ui.printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
+        }
+    }
+
+    private static void serveWorkspaces(String port, String dataDirectory) {
+        UserInterface ui = UserInterface.getInstance();
+        try (CommandServer server = new CommandServer(Integer.parseInt(port), Path.of(dataDirectory), ui)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            ui.printMessage(String.format(ServerStrings.SERVER_LISTENING, server.getPort(), dataDirectory));
+            server.serve();
+        } catch (IOException | IllegalArgumentException e) {
+            ui.printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
+        }
     }
 
     public void runCommandLine() {
         while (true) {
-            try {
-                String userInput = ui.getUserInput();
-                parser.parseInput(userInput);
-
-                String messageToUser;
-                switch (parser.getCommand()) {
-                case CommandStrings.COMMAND_EXERCISE:
-                    messageToUser = exerciseManager.execute(parser);
-                    break;
-                case CommandStrings.COMMAND_WORKOUT:
-                    messageToUser = workoutManager.execute(parser);
-                    break;
-                case CommandStrings.COMMAND_PROGRAM:
-                    messageToUser = weeklyProgramManager.execute(parser);
-                    break;
-                case CommandStrings.COMMAND_HELP:
-                    messageToUser = helpMenuManager.execute(parser);
-                    break;
-                case CommandStrings.COMMAND_BYE:
-                case CommandStrings.COMMAND_EXIT:
-                    return;
-                default:
-                    messageToUser = CommandStrings.UNKNOWN_COMMAND;
-                }
-                ui.printMessage(messageToUser);
-                CascadingDeletionProcessor.checkForCascadingDeletions(parser, workoutManager, weeklyProgramManager);
-            } catch (Exceptions.ActivityExistsException | Exceptions.ErrorAddingActivity |
-                     Exceptions.InvalidInput | Exceptions.ActivityDoesNotExist | IllegalStateException e) {
-                ui.printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
+            String messageToUser = workspace.execute(ui.getUserInput());
+            if (messageToUser == null) {
+                return;
             }
+            ui.printMessage(messageToUser);
+        }
+    }
+
+    /**
+     * Runs a script against the data file without the interactive prompt, reporting only failed lines.
+     *
+     * @param script The commands to run, one per line.
+     */
+    public void runScript(BufferedReader script) {
+        try {
+            workspace.runScript(script);
+        } catch (IOException e) {
+            ui.printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
+        }
+    }
+
+    /**
+     * Imports workout history from CSV into the data file, saving once at the end.
+     *
+     * @param csv The CSV file, one row per set.
+     */
+    public void importHistory(BufferedReader csv) {
+        try {
+            workspace.importHistory(csv);
+        } catch (IOException e) {
+            ui.printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
         }
     }
 
     public void run() {
         ui.printWelcomeMessage();
         try {
-            storage.load(exerciseManager, workoutManager, weeklyProgramManager, workoutLogsManager);
-            ui.printMessage(helpMenuManager.getHelpGuidanceString());
+            workspace.open();
+            ui.printMessage(workspace.getHelpGuidanceString());
             runCommandLine();
-            storage.save(exerciseManager, workoutManager, weeklyProgramManager, workoutLogsManager);
+            workspace.close();
         } catch (IOException e) {
             ui.printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
         }
@@ -0,0 +1,316 @@
+package byteceps;
+
+import byteceps.activities.NameTable;
+import byteceps.commands.Parser;
+import byteceps.errors.Exceptions;
+import byteceps.processing.CommandProcessor;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.HelpMenuManager;
+import byteceps.processing.WeeklyProgramManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.processing.WorkoutManager;
+import byteceps.storage.AutosaveService;
+import byteceps.storage.CsvHistoryImporter;
+import byteceps.storage.Storage;
+import byteceps.ui.UserInterface;
+import byteceps.ui.strings.CommandStrings;
+import byteceps.ui.strings.StorageStrings;
+import byteceps.ui.strings.UiStrings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The data of one user: a full set of managers and the storage file they are kept in.
+ * Workspaces share nothing, so one process can host many of them. A workspace may be used from several
+ * threads: any number of commands that only read the managers run at once, while a command that changes
+ * them runs on its own.
+ */
+public class Workspace {
+    private static final long AUTOSAVE_DELAY_MILLIS = 2000;
+
+    private final ExerciseManager exerciseManager;
+    private final WorkoutManager workoutManager;
+    private final WeeklyProgramManager weeklyProgramManager;
+    private final WorkoutLogsManager workoutLogsManager;
+    private final HelpMenuManager helpMenuManager;
+    private final CommandProcessor commandProcessor;
+    private final ReentrantReadWriteLock managerLock;
+    private final Storage storage;
+    private final UserInterface ui;
+    private final ScheduledExecutorService autosaveScheduler;
+    private AutosaveService autosave;
+
+    /**
+     * Constructs a workspace kept in the given file, which is not read until the workspace is opened.
+     *
+     * @param filePath The file the workspace is stored in.
+     * @param ui       The user interface to report storage progress to.
+     */
+    public Workspace(String filePath, UserInterface ui) {
+        this(filePath, ui, null);
+    }
+
+    /**
+     * Constructs a workspace whose background saves run on a scheduler shared with other workspaces.
+     *
+     * @param filePath          The file the workspace is stored in.
+     * @param ui                The user interface to report storage progress to.
+     * @param autosaveScheduler The scheduler to save on, or null to give the workspace its own.
+     */
+    public Workspace(String filePath, UserInterface ui, ScheduledExecutorService autosaveScheduler) {
+        NameTable nameTable = new NameTable();
+        this.exerciseManager = new ExerciseManager(nameTable);
+        this.workoutManager = new WorkoutManager(exerciseManager);
+        this.workoutLogsManager = new WorkoutLogsManager(nameTable);
+        this.weeklyProgramManager = new WeeklyProgramManager(exerciseManager, workoutManager, workoutLogsManager);
+        this.helpMenuManager = new HelpMenuManager();
+        this.commandProcessor = new CommandProcessor(exerciseManager, workoutManager, weeklyProgramManager,
+                helpMenuManager);
+        this.managerLock = new ReentrantReadWriteLock();
+        this.storage = new Storage(filePath, ui);
+        this.ui = ui;
+        this.autosaveScheduler = autosaveScheduler;
+        this.autosave = null;
+    }
+
+    /**
+     * Loads the workspace from its file and starts saving changes in the background.
+     * Opening a workspace that is already open does nothing.
+     *
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public synchronized void open() throws IOException {
+        if (autosave != null) {
+            return;
+        }
+        Lock writeLock = managerLock.writeLock();
+        writeLock.lock();
+        try {
+            load();
+            autosave = new AutosaveService(storage, exerciseManager, workoutManager, weeklyProgramManager,
+                    workoutLogsManager, AUTOSAVE_DELAY_MILLIS, managerLock, autosaveScheduler);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stops saving in the background and saves any change that has not been saved yet.
+     * Closing a workspace that is not open does nothing, and a closed workspace may be opened again.
+     *
+     * @throws IOException If the workspace cannot be saved.
+     */
+    public synchronized void close() throws IOException {
+        if (autosave == null) {
+            return;
+        }
+        autosave.close();
+        Lock writeLock = managerLock.writeLock();
+        writeLock.lock();
+        try {
+            boolean hasUnsavedChanges = autosave.hasUnsavedChanges();
+            autosave = null;
+            if (hasUnsavedChanges) {
+                storage.save(exerciseManager, workoutManager, weeklyProgramManager, workoutLogsManager);
+            } else {
+                // everything was already saved in the background
+                ui.printMessage(StorageStrings.WORKOUTS_SAVED);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the workspace, executes every line of a script against it and saves it once at the end.
+     * The whole script runs under one write lock and without journaling, so it is much faster than
+     * executing its lines one at a time. Only the lines that fail are reported, and the script goes on
+     * after them as the command line would. If the script cannot be read to the end, nothing is saved.
+     *
+     * @param script The lines to execute, up to the end of the script or the first bye or exit.
+     * @return The number of lines that failed.
+     * @throws IOException If the workspace cannot be loaded or saved, or the script cannot be read.
+     */
+    public synchronized int runScript(BufferedReader script) throws IOException {
+        if (autosave != null) {
+            throw new IllegalStateException(UiStrings.SCRIPT_WORKSPACE_OPEN);
+        }
+        Lock writeLock = managerLock.writeLock();
+        writeLock.lock();
+        try {
+            load();
+            Parser parser = new Parser();
+            int commandCount = 0;
+            int failedCount = 0;
+            int lineNumber = 0;
+            String userInput;
+            while ((userInput = script.readLine()) != null) {
+                lineNumber++;
+                userInput = userInput.trim();
+                if (userInput.isEmpty()) {
+                    continue;
+                }
+                try {
+                    parser.parseInput(userInput);
+                    String command = parser.getCommand();
+                    if (command.equals(CommandStrings.COMMAND_BYE) || command.equals(CommandStrings.COMMAND_EXIT)) {
+                        break;
+                    }
+                    commandCount++;
+                    // the message is dropped, as a script only reports the lines that fail
+                    executeParsed(parser, commandProcessor::execute);
+                } catch (Exceptions.InvalidInput e) {
+                    failedCount++;
+                    ui.printMessage(String.format(UiStrings.SCRIPT_LINE_ERROR, lineNumber,
+                            String.format(UiStrings.ERROR_STRING, e.getMessage())));
+                }
+            }
+            storage.save(exerciseManager, workoutManager, weeklyProgramManager, workoutLogsManager);
+            ui.printMessage(String.format(UiStrings.SCRIPT_FINISHED, commandCount, failedCount));
+            return failedCount;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the workspace, imports workout history from a CSV file into it and saves it once at the end.
+     * The import holds the write lock throughout and is not journaled. If the file cannot be read to the
+     * end, nothing is saved.
+     *
+     * @param csv The CSV file, as described in {@link CsvHistoryImporter}.
+     * @return The number of sets imported.
+     * @throws IOException If the workspace cannot be loaded or saved, or the file cannot be read.
+     */
+    public synchronized int importHistory(BufferedReader csv) throws IOException {
+        if (autosave != null) {
+            throw new IllegalStateException(UiStrings.SCRIPT_WORKSPACE_OPEN);
+        }
+        Lock writeLock = managerLock.writeLock();
+        writeLock.lock();
+        try {
+            load();
+            int setCount = new CsvHistoryImporter(exerciseManager, workoutLogsManager, ui).importFrom(csv);
+            storage.save(exerciseManager, workoutManager, weeklyProgramManager, workoutLogsManager);
+            return setCount;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Parses and executes one line of user input, journaling any change it makes.
+     *
+     * @param userInput The line of user input.
+     * @return The message to the user, which describes the error if the command failed,
+     *         or null if the input asks to end the session.
+     */
+    public String execute(String userInput) {
+        Parser parser = new Parser();
+        try {
+            parser.parseInput(userInput);
+
+            String command = parser.getCommand();
+            if (command.equals(CommandStrings.COMMAND_BYE) || command.equals(CommandStrings.COMMAND_EXIT)) {
+                return null;
+            }
+
+            return executeParsed(parser, parsedInput -> executeCommand(parsedInput, userInput));
+        } catch (Exceptions.InvalidInput e) {
+            return String.format(UiStrings.ERROR_STRING, e.getMessage());
+        }
+    }
+
+    public String getHelpGuidanceString() {
+        return helpMenuManager.getHelpGuidanceString();
+    }
+
+    /**
+     * Executes a parsed command, reporting every way it can fail as invalid input. The failures are listed
+     * only here, so that input typed at the prompt and lines of a script fail alike.
+     *
+     * @param parser  The parsed command.
+     * @param command Executes the command and returns its message.
+     * @return The message to the user.
+     * @throws Exceptions.InvalidInput If the command failed, with the reason as its message.
+     */
+    private static String executeParsed(Parser parser, ParsedCommand command) throws Exceptions.InvalidInput {
+        try {
+            return command.execute(parser);
+        } catch (Exceptions.ActivityExistsException | Exceptions.ErrorAddingActivity |
+                 Exceptions.ActivityDoesNotExist | IllegalStateException | DateTimeParseException e) {
+            throw new Exceptions.InvalidInput(e.getMessage());
+        }
+    }
+
+    /**
+     * Executes the parsed command. A command that only reads the managers holds the read lock, so it runs
+     * alongside other readers and background saves. Any other command holds the write lock and journals
+     * itself, so that neither a reader nor a save ever sees it half-applied.
+     */
+    private String executeCommand(Parser parser, String userInput) throws Exceptions.ActivityExistsException,
+            Exceptions.ErrorAddingActivity, Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
+        boolean isReadOnly = CommandProcessor.isReadOnlyCommand(parser);
+        Lock lock = isReadOnly ? managerLock.readLock() : managerLock.writeLock();
+        lock.lock();
+        try {
+            String messageToUser = commandProcessor.execute(parser);
+            if (!isReadOnly && !recordChange(parser, userInput)) {
+                messageToUser += System.lineSeparator() + StorageStrings.JOURNAL_ERROR;
+            }
+            return messageToUser;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        // a workspace opened again after being closed is reloaded from its file
+        exerciseManager.reset();
+        workoutManager.reset();
+        weeklyProgramManager.reset();
+        workoutLogsManager.reset();
+        storage.load(exerciseManager, workoutManager, weeklyProgramManager, workoutLogsManager);
+    }
+
+    /**
+     * Journals a change and schedules it to be saved. Any error is returned with the command's own message
+     * rather than printed, so that it reaches the user who made the change.
+     *
+     * @return true if the change was recorded, false if it will only be saved when the workspace is closed.
+     */
+    private boolean recordChange(Parser parser, String userInput) {
+        boolean isRecorded = true;
+        try {
+            storage.appendToJournal(parser, userInput);
+        } catch (IOException e) {
+            isRecorded = false;
+        }
+
+        if (autosave != null) {
+            autosave.changeRecorded();
+        } else if (storage.isCompactionDue()) {
+            try {
+                storage.compact(storage.takeSnapshot(exerciseManager, workoutManager, weeklyProgramManager,
+                        workoutLogsManager));
+            } catch (IOException e) {
+                isRecorded = false;
+            }
+        }
+        return isRecorded;
+    }
+
+    /**
+     * A way of executing a parsed command, such as directly or under the workspace's locks.
+     */
+    @FunctionalInterface
+    private interface ParsedCommand {
+        String execute(Parser parser) throws Exceptions.ActivityExistsException, Exceptions.ErrorAddingActivity,
+                Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist;
+    }
+}
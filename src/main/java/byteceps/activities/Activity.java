@@ -1,11 +1,14 @@
 package byteceps.activities;
 
+import java.util.Objects;
+
 /**
  * Represents an activity in the byteceps application.
- * Each Activity object has a name.
+ * Each Activity object has a name, which is compared case-insensitively through its case-folded form.
  */
 public class Activity {
     protected String activityName;
+    private String foldedName;
 
     /**
      * Constructs a new Activity object with the specified activity name.
@@ -13,7 +16,7 @@ public class Activity {
      * @param activityName The name of the activity.
      */
     public Activity(String activityName) {
-        this.activityName = activityName;
+        setActivityName(activityName);
     }
 
     /**
@@ -27,17 +30,36 @@ public class Activity {
 
     public void setActivityName(String activityName) {
         this.activityName = activityName;
+        this.foldedName = activityName == null ? null : NameTable.fold(activityName);
     }
 
+    /**
+     * Returns the lower case form of the name of the activity, which is the same for every spelling of the name.
+     *
+     * @return The case-folded name, or null if the activity has no name.
+     */
+    public String getFoldedName() {
+        return foldedName;
+    }
+
+    /**
+     * Checks if the activity has the given name, ignoring case.
+     *
+     * @param name The name to check.
+     * @return true if the activity has the name, false otherwise.
+     */
+    public boolean hasName(String name) {
+        return foldedName != null && foldedName.equals(NameTable.fold(name));
+    }
 
     /**
-     * Computes a hash code for the Activity object based on its name.
+     * Computes a hash code for the Activity object based on its name, ignoring case like equals does.
      *
      * @return The hash code value for this Activity.
      */
     @Override
     public int hashCode() {
-        return activityName.hashCode();
+        return foldedName == null ? 0 : foldedName.hashCode();
     }
 
     /**
@@ -62,6 +84,6 @@ public class Activity {
         }
 
         Activity other = (Activity) obj;
-        return (activityName.equalsIgnoreCase(other.getActivityName()));
+        return Objects.equals(foldedName, other.foldedName);
     }
 }
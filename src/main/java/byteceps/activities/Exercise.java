@@ -36,9 +36,9 @@ public class Exercise extends Activity {
     public void editExerciseName(String newExerciseName, ActivityManager activityManager) {
         if (newExerciseName != null) {
             activityManager.updateActivitySet(this, new Exercise(newExerciseName));
-            this.activityName = newExerciseName;
+            setActivityName(newExerciseName);
         } else {
-            activityName = null;
+            setActivityName(null);
         }
     }
 }
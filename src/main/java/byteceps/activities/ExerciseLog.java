@@ -1,29 +1,77 @@
 package byteceps.activities;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Represents the sets of one exercise logged in a workout.
+ * Weights and repetitions are held in primitive arrays, one entry per set, so a logged exercise costs
+ * two small arrays rather than two lists of boxed Integers.
+ */
 public class ExerciseLog extends Activity {
-    private final List<Integer> weights;
+    private final int[] weights;
     private final int sets;
-    private final List<Integer> repetitions;
+    private final int[] repetitions;
 
-    public ExerciseLog(String activityName, List<Integer> weights, int sets, List<Integer> repetitions) {
+    /**
+     * Constructs an exercise log from per-set weights and repetitions.
+     * The arrays are kept rather than copied, so callers should not modify them afterwards.
+     *
+     * @param activityName The name of the exercise.
+     * @param weights      The weight of each set.
+     * @param sets         The number of sets.
+     * @param repetitions  The repetitions of each set.
+     */
+    public ExerciseLog(String activityName, int[] weights, int sets, int[] repetitions) {
         super(activityName);
         this.weights = weights;
         this.sets = sets;
         this.repetitions = repetitions;
     }
 
+    public ExerciseLog(String activityName, List<Integer> weights, int sets, List<Integer> repetitions) {
+        this(activityName, toIntArray(weights), sets, toIntArray(repetitions));
+    }
 
     public int getSets() {
         return sets;
     }
 
+    public int getRepetition(int set) {
+        return repetitions[set];
+    }
+
+    public int getWeight(int set) {
+        return weights[set];
+    }
+
+    public int getRepetitionCount() {
+        return repetitions.length;
+    }
+
+    public int getWeightCount() {
+        return weights.length;
+    }
+
+    /**
+     * Gets a read-only view of the repetitions of each set.
+     * Prefer {@link #getRepetition(int)}, which does not box.
+     *
+     * @return The repetitions of each set.
+     */
     public List<Integer> getRepetitions() {
-        return repetitions;
+        return new IntListView(repetitions);
     }
 
+    /**
+     * Gets a read-only view of the weight of each set.
+     * Prefer {@link #getWeight(int)}, which does not box.
+     *
+     * @return The weight of each set.
+     */
     public List<Integer> getWeights() {
-        return weights;
+        return new IntListView(weights);
     }
 
     @Override
@@ -42,4 +90,30 @@ public class ExerciseLog extends Activity {
 
         return false;
     }
+
+    private static int[] toIntArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static class IntListView extends AbstractList<Integer> implements RandomAccess {
+        private final int[] values;
+
+        IntListView(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
 }
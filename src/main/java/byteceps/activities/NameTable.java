@@ -0,0 +1,95 @@
+package byteceps.activities;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of the activity names of one workspace. Names are compared case-insensitively, so each distinct
+ * name is folded to lower case and given a stable integer id when an activity with that name is added or
+ * renamed. Looking a name up never adds it, so names typed by the user that match nothing do not grow the
+ * table. Ids are never reused or removed while the table lives. Lookups may come from any thread.
+ */
+public final class NameTable {
+    public static final int NO_ID = -1;
+    private static final int INITIAL_CAPACITY = 64;
+    private final ConcurrentHashMap<String, Integer> ids;
+    private volatile String[] foldedNames;
+    private int size;
+
+    public NameTable() {
+        this.ids = new ConcurrentHashMap<>();
+        this.foldedNames = new String[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Gets the id of a name, adding the name to the table if it has not been added before.
+     * Only names of activities being added or renamed should be interned; look other names up with
+     * {@link #find(String)}.
+     *
+     * @param name The name in any case.
+     * @return The id shared by every spelling of the name.
+     */
+    public int intern(String name) {
+        String foldedName = fold(name);
+        Integer id = ids.get(foldedName);
+        return id != null ? id : internNewName(foldedName);
+    }
+
+    /**
+     * Gets the id of a name without adding it to the table.
+     *
+     * @param name The name in any case.
+     * @return The id of the name, or {@link #NO_ID} if the name has never been interned.
+     */
+    public int find(String name) {
+        Integer id = ids.get(fold(name));
+        return id != null ? id : NO_ID;
+    }
+
+    /**
+     * Gets the lower case form of the name with the given id.
+     *
+     * @param id An id returned by {@link #intern(String)}.
+     * @return The case-folded name.
+     */
+    public String getFoldedName(int id) {
+        return foldedNames[id];
+    }
+
+    /**
+     * Gets the number of distinct names in the table.
+     *
+     * @return The number of names interned so far.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Folds a name to the form names are compared in. A name that is already folded is returned as is.
+     *
+     * @param name The name in any case.
+     * @return The lower case form of the name.
+     */
+    public static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private synchronized int internNewName(String foldedName) {
+        Integer id = ids.get(foldedName);
+        if (id != null) {
+            return id;
+        }
+
+        id = size;
+        if (size == foldedNames.length) {
+            foldedNames = Arrays.copyOf(foldedNames, size * 2);
+        }
+        foldedNames[size++] = foldedName;
+        // published after the folded name is stored, so a reader that finds the id can read the name
+        ids.put(foldedName, id);
+        return id;
+    }
+}
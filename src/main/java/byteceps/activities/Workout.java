@@ -85,9 +85,9 @@ public class Workout extends Activity {
     public void editWorkoutName(String newWorkoutName, ActivityManager activityManager) {
         if (newWorkoutName != null) {
             activityManager.updateActivitySet(this, new Workout(newWorkoutName));
-            this.activityName = newWorkoutName;
+            setActivityName(newWorkoutName);
         } else {
-            activityName = null;
+            setActivityName(null);
         }
     }
 }
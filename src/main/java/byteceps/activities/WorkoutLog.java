@@ -3,49 +3,48 @@ package byteceps.activities;
 import byteceps.errors.Exceptions;
 import byteceps.ui.strings.ManagerStrings;
 
+import java.util.AbstractSet;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 
+/**
+ * Represents the exercises logged on one day.
+ * Exercise logs are kept in the order they were logged, keyed by the case-folded name of the exercise,
+ * so finding, overwriting and removing the log of an exercise by name does not scan the day's logs.
+ */
 public class WorkoutLog extends Workout {
     protected final String workoutName;
-    LinkedHashSet<ExerciseLog> exerciseLogs;
+    private final LinkedHashMap<String, ExerciseLog> exerciseLogs;
+    private final Set<ExerciseLog> exerciseLogSet;
+
     public WorkoutLog(String workoutDate, String workoutName) {
         super(workoutDate);
         this.workoutName = workoutName;
-        this.exerciseLogs = new LinkedHashSet<>();
+        this.exerciseLogs = new LinkedHashMap<>();
+        this.exerciseLogSet = new ExerciseLogSet();
     }
 
+    /**
+     * Adds an exercise log after the other logs of the day, replacing any log of the same exercise.
+     *
+     * @param exerciseLog The exercise log to add.
+     */
     public void addExerciseLog(ExerciseLog exerciseLog) {
-        exerciseLogs.remove(exerciseLog);
-        exerciseLogs.add(exerciseLog);
+        exerciseLogs.remove(exerciseLog.getFoldedName());
+        exerciseLogs.put(exerciseLog.getFoldedName(), exerciseLog);
     }
 
     public boolean hasExerciseName(String exerciseName) {
-        for (Iterator<ExerciseLog> iterator = exerciseLogs.iterator(); iterator.hasNext(); ) {
-            ExerciseLog currentExerciseLog = iterator.next();
-            if (currentExerciseLog.activityName.equalsIgnoreCase(exerciseName)) {
-                return true;
-            }
-        }
-        return false;
+        return exerciseLogs.containsKey(NameTable.fold(exerciseName));
     }
 
     public void removeExistingLogEntry(String exerciseName) throws Exceptions.ActivityDoesNotExist {
-        ExerciseLog exerciseLogToFind = null;
-        for (Iterator<ExerciseLog> iterator = exerciseLogs.iterator(); iterator.hasNext(); ) {
-            ExerciseLog currentExerciseLog = iterator.next();
-            if (currentExerciseLog.activityName.equalsIgnoreCase(exerciseName)) {
-                exerciseLogToFind = currentExerciseLog;
-                break;
-            }
-        }
-
-        if (exerciseLogToFind == null) {
+        if (exerciseLogs.remove(NameTable.fold(exerciseName)) == null) {
             throw new Exceptions.ActivityDoesNotExist(ManagerStrings.LOG_ENTRY_EXERCISE_DOES_NOT_EXIST);
         }
-
-        exerciseLogs.remove(exerciseLogToFind);
     }
 
 
@@ -57,7 +56,36 @@ public class WorkoutLog extends Workout {
         return activityName;
     }
 
-    public LinkedHashSet<ExerciseLog> getExerciseLogs() {
-        return exerciseLogs;
+    /**
+     * Gets a read-only view of the exercise logs of the day, in the order they were logged.
+     *
+     * @return The exercise logs.
+     */
+    public Set<ExerciseLog> getExerciseLogs() {
+        return exerciseLogSet;
+    }
+
+    /**
+     * Read-only set view of the exercise logs, looking logs up by their folded exercise name.
+     */
+    private class ExerciseLogSet extends AbstractSet<ExerciseLog> {
+        @Override
+        public Iterator<ExerciseLog> iterator() {
+            return Collections.unmodifiableCollection(exerciseLogs.values()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return exerciseLogs.size();
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            if (!(obj instanceof ExerciseLog)) {
+                return false;
+            }
+            ExerciseLog exerciseLog = (ExerciseLog) obj;
+            return exerciseLogs.get(exerciseLog.getFoldedName()) == exerciseLog;
+        }
     }
 }
@@ -1,24 +1,52 @@
 package byteceps.processing;
 
 import byteceps.activities.Activity;
+import byteceps.activities.NameTable;
 import byteceps.commands.Parser;
 import byteceps.errors.Exceptions;
 import byteceps.ui.strings.ManagerStrings;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Abstract base class for managing activities.
  */
 public abstract class ActivityManager {
+    private static final int MAX_SIMILAR_RESULTS = 10;
     protected final String activityType;
     protected final LinkedHashSet<Activity> activitySet;
+    protected final NameTable nameTable;
+    private final Collection<Activity> activityView;
+    private final HashMap<Integer, Activity> activityIndex;
+    private volatile ActivityNameTrie nameTrie;
+    private ActivityTrigramIndex trigramIndex;
+    private volatile long modificationCount;
 
     public ActivityManager() {
+        this(new NameTable());
+    }
+
+    /**
+     * Constructs a manager whose activities are indexed by their ids in the given name table, which may be
+     * shared with the other managers of the same workspace.
+     *
+     * @param nameTable The name table of the workspace.
+     */
+    public ActivityManager(NameTable nameTable) {
+        this.nameTable = nameTable;
         this.activityType = getActivityType(false);
         this.activitySet = new LinkedHashSet<>();
+        this.activityView = Collections.unmodifiableCollection(activitySet);
+        this.activityIndex = new HashMap<>();
+        this.nameTrie = null;
+        this.trigramIndex = null;
+        this.modificationCount = 0;
     }
 
     /**
@@ -42,7 +70,7 @@ public abstract class ActivityManager {
      * @throws Exceptions.ActivityExistsException If the activity already exists.
      */
     public void add(Activity activity) throws Exceptions.ActivityExistsException {
-        boolean setReturn = activitySet.add(activity);
+        boolean setReturn = addToSet(activity);
 
         if (!setReturn) {
             String activityName = activity.getActivityName();
@@ -59,7 +87,7 @@ public abstract class ActivityManager {
      * @throws Exceptions.ActivityDoesNotExist If the activity does not exist.
      */
     public void delete(Activity activity) throws Exceptions.ActivityDoesNotExist {
-        boolean setReturn = activitySet.remove(activity);
+        boolean setReturn = removeFromSet(activity);
 
         if (!setReturn) {
             String activityName = activity.getActivityName();
@@ -71,7 +99,7 @@ public abstract class ActivityManager {
     }
 
     /**
-     * Retrieves an activity from the manager by its name.
+     * Retrieves an activity from the manager by its name, ignoring case.
      *
      * @param activityName The name of the activity to retrieve.
      * @return The retrieved activity.
@@ -85,10 +113,9 @@ public abstract class ActivityManager {
             );
         }
 
-        for (Activity currentActivity : activitySet) {
-            if (currentActivity.getActivityName().equals(activityName)) {
-                return currentActivity;
-            }
+        Activity retrievedActivity = activityIndex.get(nameTable.find(activityName));
+        if (retrievedActivity != null) {
+            return retrievedActivity;
         }
 
         // throw error as activity not found in the set
@@ -120,23 +147,13 @@ public abstract class ActivityManager {
     }
 
     /**
-     * Checks if an activity with a given name exists in the manager.
+     * Checks if an activity with a given name exists in the manager, ignoring case.
      *
      * @param activityName The name of the activity to check.
      * @return true if the activity does not exist, false otherwise.
      */
     public boolean doesNotHaveActivity(String activityName) {
-        if (activitySet.isEmpty()) {
-            return true;
-        }
-
-        for (Activity currentActivity : activitySet) {
-            if (currentActivity.getActivityName().equals(activityName)) {
-                return false;
-            }
-        }
-
-        return true;
+        return !activityIndex.containsKey(nameTable.find(activityName));
     }
 
     /**
@@ -148,6 +165,25 @@ public abstract class ActivityManager {
         return new ArrayList<>(activitySet);
     }
 
+    /**
+     * Gets a read-only view of the activities, in the order they were added, without copying them.
+     * The view changes with the manager, so it must only be used while no command can change the manager.
+     *
+     * @return The activities.
+     */
+    public Collection<Activity> getActivities() {
+        return activityView;
+    }
+
+    /**
+     * Gets the table the activities of this manager are indexed in.
+     *
+     * @return The name table of the workspace.
+     */
+    public NameTable getNameTable() {
+        return nameTable;
+    }
+
     /**
      * Gets the type of activity managed by this manager.
      *
@@ -169,32 +205,56 @@ public abstract class ActivityManager {
     }
 
     /**
-     * Checks if an activity matches the search term.
+     * Searches for activities matching the search term, ignoring case. Activities with a word starting
+     * with the search term come first, then the other activities whose names contain it, followed by the
+     * activities with names most similar to it, so that misspelt search terms still find something.
      *
-     * @param activity   The activity to check.
      * @param searchTerm The search term.
-     * @return true if the activity matches the search term, false otherwise.
+     * @return A list of activities that match the search term.
      */
-    private boolean activityMatchesSearchTerm(Activity activity, String searchTerm) {
-        String activityName = activity.getActivityName().toLowerCase();
-        String searchTermLowerCase = searchTerm.toLowerCase();
-        return activityName.contains(searchTermLowerCase);
+    private ArrayList<Activity> searchActivities(String searchTerm){
+        buildSearchIndexes();
+        LinkedHashSet<Activity> searchResults = new LinkedHashSet<>(nameTrie.findByPrefix(searchTerm));
+        searchResults.addAll(trigramIndex.findContaining(searchTerm, activitySet));
+        searchResults.addAll(trigramIndex.findSimilar(searchTerm, MAX_SIMILAR_RESULTS));
+        return new ArrayList<>(searchResults);
     }
 
     /**
-     * Searches for activities that match the search term.
+     * Gets the names of activities that complete a partly typed name, ignoring case.
      *
-     * @param searchTerm The search term.
-     * @return A list of activities that match the search term.
+     * @param prefix The partly typed name.
+     * @param limit  The largest number of names to return.
+     * @return Up to limit activity names starting with the prefix, in alphabetical order.
      */
-    private ArrayList<Activity> searchActivities(String searchTerm){
-        ArrayList <Activity> searchResults = new ArrayList<>();
-        for (Activity activity : activitySet){
-            if (activityMatchesSearchTerm(activity, searchTerm)) {
-                searchResults.add(activity);
+    public List<String> getNameCompletions(String prefix, int limit) {
+        buildSearchIndexes();
+        return nameTrie.getCompletions(prefix, limit);
+    }
+
+    /**
+     * Builds the search indexes over activity names on first use, so that managers which are never
+     * searched do not pay for them. Once built they are kept in step by addToSet and removeFromSet.
+     * Searches may run alongside each other, so only the first of them builds the indexes, and the trie
+     * is published last so that a search that sees it also sees the trigram index.
+     */
+    private void buildSearchIndexes() {
+        if (nameTrie != null) {
+            return;
+        }
+        synchronized (this) {
+            if (nameTrie != null) {
+                return;
+            }
+            ActivityNameTrie newNameTrie = new ActivityNameTrie();
+            ActivityTrigramIndex newTrigramIndex = new ActivityTrigramIndex();
+            for (Activity activity : activitySet) {
+                newNameTrie.add(activity);
+                newTrigramIndex.add(activity);
             }
+            trigramIndex = newTrigramIndex;
+            nameTrie = newNameTrie;
         }
-        return searchResults;
     }
 
     /**
@@ -227,11 +287,73 @@ public abstract class ActivityManager {
      * @param activityToAdd    The activity to add to the activity set.
      */
     public void updateActivitySet(Activity activityToRemove, Activity activityToAdd) {
-        activitySet.remove(activityToRemove);
-        activitySet.add(activityToAdd);
+        removeFromSet(activityToRemove);
+        addToSet(activityToAdd);
     }
 
     public void reset() {
         activitySet.clear();
+        activityIndex.clear();
+        nameTrie = null;
+        trigramIndex = null;
+        markModified();
+    }
+
+    /**
+     * Gets the number of changes made to the activities of this manager, so that a saved copy can be
+     * recognised as out of date.
+     *
+     * @return A count that grows every time the activities change.
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Records a change made to an activity in place, which the activity set cannot see.
+     * Insertions and removals through the activity set are recorded automatically.
+     */
+    protected void markModified() {
+        modificationCount++;
+    }
+
+    /**
+     * Adds an activity to the activity set, keeping the name index in step.
+     * All insertions into the activity set should go through this method.
+     *
+     * @param activity The activity to add.
+     * @return true if the activity was added, false if it already exists.
+     */
+    protected boolean addToSet(Activity activity) {
+        boolean isAdded = activitySet.add(activity);
+        if (isAdded) {
+            activityIndex.put(nameTable.intern(activity.getActivityName()), activity);
+            if (nameTrie != null) {
+                nameTrie.add(activity);
+                trigramIndex.add(activity);
+            }
+            markModified();
+        }
+        return isAdded;
+    }
+
+    /**
+     * Removes an activity from the activity set, keeping the name index in step.
+     * All removals from the activity set should go through this method.
+     *
+     * @param activity The activity to remove.
+     * @return true if the activity was removed, false if it did not exist.
+     */
+    protected boolean removeFromSet(Activity activity) {
+        boolean isRemoved = activitySet.remove(activity);
+        if (isRemoved) {
+            activityIndex.remove(nameTable.find(activity.getActivityName()));
+            if (nameTrie != null) {
+                nameTrie.remove(activity);
+                trigramIndex.remove(activity);
+            }
+            markModified();
+        }
+        return isRemoved;
     }
 }
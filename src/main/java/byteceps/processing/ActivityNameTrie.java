@@ -0,0 +1,253 @@
+package byteceps.processing;
+
+import byteceps.activities.Activity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Prefix trie over the case-folded names of activities. Every word of a name is a key of its own,
+ * running from the start of the word to the end of the name, so "incline bench" is found by "inc"
+ * and by "ben". The trie is a radix tree: a chain of nodes with a single child is stored as one edge
+ * labelled with the whole run of characters, so a large catalogue costs a few nodes per key rather
+ * than one per character. Finding the node of a prefix takes time proportional to the length of the
+ * prefix, and collecting the matches below it time proportional to the number of matches.
+ * Matches are returned in alphabetical order of the matching word.
+ */
+public class ActivityNameTrie {
+    private final Node root;
+
+    public ActivityNameTrie() {
+        this.root = new Node("");
+    }
+
+    public void add(Activity activity) {
+        if (activity.getFoldedName() == null) {
+            return;
+        }
+        String name = activity.getFoldedName();
+        for (int wordStart : getWordStarts(name)) {
+            addKey(name, wordStart, activity);
+        }
+    }
+
+    public void remove(Activity activity) {
+        if (activity.getFoldedName() == null) {
+            return;
+        }
+        String name = activity.getFoldedName();
+        for (int wordStart : getWordStarts(name)) {
+            removeKey(root, name, wordStart, activity);
+        }
+    }
+
+    /**
+     * Finds the activities with a word starting with the given prefix, ignoring case.
+     *
+     * @param prefix The prefix to search for.
+     * @return The matching activities, each listed once.
+     */
+    public List<Activity> findByPrefix(String prefix) {
+        Node node = findNode(prefix.toLowerCase(Locale.ROOT));
+        if (node == null) {
+            return new ArrayList<>();
+        }
+        LinkedHashSet<Activity> matches = new LinkedHashSet<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            Node current = pending.pop();
+            if (current.activities != null) {
+                matches.addAll(current.activities);
+            }
+            pushChildren(current, pending);
+        }
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Finds completions of a partly typed name, which are the activities whose whole name starts
+     * with the prefix, ignoring case.
+     *
+     * @param prefix The partly typed name.
+     * @param limit  The largest number of completions to return.
+     * @return The names of up to limit matching activities, in alphabetical order.
+     */
+    public List<String> getCompletions(String prefix, int limit) {
+        String foldedPrefix = prefix.toLowerCase(Locale.ROOT);
+        Node node = findNode(foldedPrefix);
+        List<String> completions = new ArrayList<>();
+        if (node == null) {
+            return completions;
+        }
+
+        // only names starting with the prefix complete it, not names with a later word starting with it
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty() && completions.size() < limit) {
+            Node current = pending.pop();
+            if (current.activities != null) {
+                for (Activity activity : current.activities) {
+                    if (completions.size() < limit && activity.getFoldedName().startsWith(foldedPrefix)) {
+                        completions.add(activity.getActivityName());
+                    }
+                }
+            }
+            pushChildren(current, pending);
+        }
+        return completions;
+    }
+
+    private void addKey(String name, int keyStart, Activity activity) {
+        Node node = root;
+        int index = keyStart;
+        while (index < name.length()) {
+            Node child = node.getChild(name.charAt(index));
+            if (child == null) {
+                child = new Node(name.substring(index));
+                node.putChild(child);
+                node = child;
+                break;
+            }
+
+            int matchLength = getMatchLength(child.label, name, index);
+            if (matchLength < child.label.length()) {
+                // the key leaves the edge part way along, so split the edge where they part
+                Node split = new Node(child.label.substring(0, matchLength));
+                child.label = child.label.substring(matchLength);
+                split.putChild(child);
+                node.putChild(split);
+                child = split;
+            }
+            node = child;
+            index += matchLength;
+        }
+        node.addActivity(activity);
+    }
+
+    /**
+     * Removes an activity from the key starting at the given index below the node, pruning nodes
+     * left empty and merging nodes left with a single child into that child.
+     */
+    private static void removeKey(Node node, String name, int index, Activity activity) {
+        if (index == name.length()) {
+            node.removeActivity(activity);
+            return;
+        }
+
+        Node child = node.getChild(name.charAt(index));
+        if (child == null || !name.startsWith(child.label, index)) {
+            return;
+        }
+        removeKey(child, name, index + child.label.length(), activity);
+        if (child.isEmpty()) {
+            node.children.remove(child.label.charAt(0));
+        } else if (child.activities == null && child.children.size() == 1) {
+            Node grandchild = child.children.firstEntry().getValue();
+            grandchild.label = child.label + grandchild.label;
+            node.putChild(grandchild);
+        }
+    }
+
+    /**
+     * Finds the node below which every key starts with the prefix.
+     * The prefix may end part way along the edge leading to that node.
+     */
+    private Node findNode(String prefix) {
+        Node node = root;
+        int index = 0;
+        while (index < prefix.length()) {
+            Node child = node.getChild(prefix.charAt(index));
+            if (child == null) {
+                return null;
+            }
+            int matchLength = getMatchLength(child.label, prefix, index);
+            if (index + matchLength == prefix.length()) {
+                return child;
+            }
+            if (matchLength < child.label.length()) {
+                return null;
+            }
+            node = child;
+            index += matchLength;
+        }
+        return node;
+    }
+
+    private static void pushChildren(Node node, Deque<Node> pending) {
+        if (node.children == null) {
+            return;
+        }
+        // pushed in reverse so that the alphabetically first child is visited first
+        for (Node child : node.children.descendingMap().values()) {
+            pending.push(child);
+        }
+    }
+
+    private static int getMatchLength(String label, String key, int keyStart) {
+        int matchLength = 0;
+        int maxLength = Math.min(label.length(), key.length() - keyStart);
+        while (matchLength < maxLength && label.charAt(matchLength) == key.charAt(keyStart + matchLength)) {
+            matchLength++;
+        }
+        return matchLength;
+    }
+
+    private static List<Integer> getWordStarts(String name) {
+        List<Integer> wordStarts = new ArrayList<>();
+        for (int i = 0; i < name.length(); i++) {
+            boolean isWordStart = (i == 0 || name.charAt(i - 1) == ' ') && name.charAt(i) != ' ';
+            if (isWordStart) {
+                wordStarts.add(i);
+            }
+        }
+        return wordStarts;
+    }
+
+    /**
+     * A node of the radix tree. Its children and activities are only allocated when it first has some,
+     * since most nodes are leaves holding a single activity.
+     */
+    private static class Node {
+        private String label;
+        private TreeMap<Character, Node> children;
+        private LinkedHashSet<Activity> activities;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node getChild(char firstChar) {
+            return children == null ? null : children.get(firstChar);
+        }
+
+        private void putChild(Node child) {
+            if (children == null) {
+                children = new TreeMap<>();
+            }
+            children.put(child.label.charAt(0), child);
+        }
+
+        private void addActivity(Activity activity) {
+            if (activities == null) {
+                activities = new LinkedHashSet<>();
+            }
+            activities.add(activity);
+        }
+
+        private void removeActivity(Activity activity) {
+            if (activities != null && activities.remove(activity) && activities.isEmpty()) {
+                activities = null;
+            }
+        }
+
+        private boolean isEmpty() {
+            return activities == null && (children == null || children.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package byteceps.processing;
+
+import byteceps.activities.Activity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Inverted index from the trigrams of case-folded activity names to the activities, for finding
+ * misspelt names. Each word is padded so that word starts and ends count as trigrams. A name matches
+ * when it contains at least half of the trigrams of the search term, so a misspelt word still finds
+ * longer names containing it, and matches are ranked by the share of trigrams the two have in common
+ * (their Jaccard index), so closer names come first. A matching name must appear in at least one of
+ * the rarest few posting lists of the term. Only those lists are scanned for candidates, and the
+ * remaining, longer lists are only probed for the candidates, which keeps a search fast even when the
+ * term also contains trigrams that nearly every name has. The index also finds names containing a term
+ * exactly, from the trigrams inside the words of the term.
+ */
+public class ActivityTrigramIndex {
+    public static final double MIN_TERM_COVERAGE = 0.5;
+    private static final String WORD_PADDING = "  ";
+
+    private static final Comparator<Match> MATCH_ORDER = Comparator.comparingDouble((Match match) -> -match.similarity)
+            .thenComparing(match -> match.activity.getFoldedName());
+
+    private final HashMap<String, HashSet<Activity>> postings;
+    private final HashMap<Activity, Integer> trigramCounts;
+
+    public ActivityTrigramIndex() {
+        this.postings = new HashMap<>();
+        this.trigramCounts = new HashMap<>();
+    }
+
+    public void add(Activity activity) {
+        if (activity.getFoldedName() == null) {
+            return;
+        }
+        HashSet<String> trigrams = getTrigrams(activity.getFoldedName());
+        for (String trigram : trigrams) {
+            postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(activity);
+        }
+        trigramCounts.put(activity, trigrams.size());
+    }
+
+    public void remove(Activity activity) {
+        if (activity.getFoldedName() == null) {
+            return;
+        }
+        for (String trigram : getTrigrams(activity.getFoldedName())) {
+            HashSet<Activity> activities = postings.get(trigram);
+            if (activities == null) {
+                continue;
+            }
+            activities.remove(activity);
+            if (activities.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+        trigramCounts.remove(activity);
+    }
+
+    /**
+     * Finds the activities whose names contain the search term, ignoring case. Only the names holding every
+     * trigram inside the words of the term are checked. A term without a word of three or more characters
+     * has no such trigrams, so every activity is checked instead.
+     *
+     * @param searchTerm    The search term.
+     * @param allActivities Every activity in the index, checked when the term is too short to narrow down.
+     * @return The activities containing the search term, in alphabetical order.
+     */
+    public List<Activity> findContaining(String searchTerm, Collection<Activity> allActivities) {
+        String foldedTerm = searchTerm.toLowerCase(Locale.ROOT);
+        List<HashSet<Activity>> termPostings = new ArrayList<>();
+        for (String trigram : getInnerTrigrams(foldedTerm)) {
+            HashSet<Activity> activities = postings.get(trigram);
+            if (activities == null) {
+                return new ArrayList<>();
+            }
+            termPostings.add(activities);
+        }
+
+        Collection<Activity> candidates = allActivities;
+        if (!termPostings.isEmpty()) {
+            termPostings.sort(Comparator.comparingInt(HashSet::size));
+            candidates = termPostings.get(0);
+        }
+        List<Activity> matches = new ArrayList<>();
+        for (Activity candidate : candidates) {
+            String foldedName = candidate.getFoldedName();
+            if (foldedName != null && foldedName.contains(foldedTerm)) {
+                matches.add(candidate);
+            }
+        }
+        matches.sort(Comparator.comparing(Activity::getFoldedName));
+        return matches;
+    }
+
+    /**
+     * Finds the activities with names similar to the search term, most similar first.
+     *
+     * @param searchTerm The search term, which may be misspelt.
+     * @param limit      The largest number of activities to return.
+     * @return Up to limit activities containing enough of the trigrams of the search term.
+     */
+    public List<Activity> findSimilar(String searchTerm, int limit) {
+        HashSet<String> searchTrigrams = getTrigrams(searchTerm.toLowerCase(Locale.ROOT));
+        List<HashSet<Activity>> searchPostings = new ArrayList<>();
+        for (String trigram : searchTrigrams) {
+            searchPostings.add(postings.getOrDefault(trigram, new HashSet<>()));
+        }
+        searchPostings.sort(Comparator.comparingInt(HashSet::size));
+
+        int minSharedTrigrams = (int) Math.ceil(MIN_TERM_COVERAGE * searchTrigrams.size());
+        int candidateListCount = Math.min(searchTrigrams.size() - minSharedTrigrams + 1, searchPostings.size());
+        HashMap<Activity, Integer> sharedTrigramCounts = new HashMap<>();
+        for (int i = 0; i < candidateListCount; i++) {
+            for (Activity candidate : searchPostings.get(i)) {
+                sharedTrigramCounts.merge(candidate, 1, Integer::sum);
+            }
+        }
+
+        // only the best few matches are kept, in a heap with the worst of them on top
+        PriorityQueue<Match> bestMatches = new PriorityQueue<>(MATCH_ORDER.reversed());
+        for (Map.Entry<Activity, Integer> entry : sharedTrigramCounts.entrySet()) {
+            Activity candidate = entry.getKey();
+            int sharedTrigrams = entry.getValue();
+            for (int i = candidateListCount; i < searchPostings.size(); i++) {
+                if (searchPostings.get(i).contains(candidate)) {
+                    sharedTrigrams++;
+                }
+            }
+            if (sharedTrigrams < minSharedTrigrams) {
+                continue;
+            }
+            double similarity = (double) sharedTrigrams
+                    / (searchTrigrams.size() + trigramCounts.get(candidate) - sharedTrigrams);
+            bestMatches.add(new Match(candidate, similarity));
+            if (bestMatches.size() > limit) {
+                bestMatches.poll();
+            }
+        }
+
+        List<Match> sortedMatches = new ArrayList<>(bestMatches);
+        sortedMatches.sort(MATCH_ORDER);
+        List<Activity> matches = new ArrayList<>();
+        for (Match match : sortedMatches) {
+            matches.add(match.activity);
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the distinct trigrams of a name. Every word is padded with two spaces in front and one behind,
+     * so "row" gives "  r", " ro", "row" and "ow ".
+     */
+    private static HashSet<String> getTrigrams(String name) {
+        HashSet<String> trigrams = new HashSet<>();
+        for (String word : name.trim().split(" +")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String paddedWord = WORD_PADDING + word + " ";
+            for (int i = 0; i + 3 <= paddedWord.length(); i++) {
+                trigrams.add(paddedWord.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * Gets the trigrams inside the words of a term, without padding, so that every name containing the term
+     * also has them. "ush up" gives "ush" only.
+     */
+    private static HashSet<String> getInnerTrigrams(String term) {
+        HashSet<String> trigrams = new HashSet<>();
+        for (String word : term.split(" +")) {
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                trigrams.add(word.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    private static class Match {
+        private final Activity activity;
+        private final double similarity;
+
+        private Match(Activity activity, double similarity) {
+            this.activity = activity;
+            this.similarity = similarity;
+        }
+    }
+}
@@ -2,19 +2,18 @@ package byteceps.processing;
 
 import byteceps.activities.Activity;
 import byteceps.activities.Day;
-import byteceps.activities.Exercise;
 import byteceps.activities.Workout;
 import byteceps.commands.Parser;
 import byteceps.errors.Exceptions;
 import byteceps.ui.strings.CommandStrings;
 
-import java.util.ArrayList;
 import java.util.LinkedHashSet;
 
 public class CascadingDeletionProcessor {
     /**
      * Checks if any deletion of an exercise/workout causes cascading effects on the container classes.
      * If yes, removes the exercise/workout from the workout/program respectively, silently.
+     * Renaming an exercise is passed on to the workout manager's exercise to workout index.
      *
      * @param parser User input in the form of a Parser object.
      * @param workoutManager The activity manager containing all workouts
@@ -24,11 +23,17 @@ public class CascadingDeletionProcessor {
                                                    WeeklyProgramManager weeklyProgramManager) {
         try {
             String parserAction = parser.getAction();
+            String parserCommand = parser.getCommand();
+            if (parserAction.equals(CommandStrings.ACTION_EDIT)
+                    && parserCommand.equals(CommandStrings.COMMAND_EXERCISE)) {
+                workoutManager.renameExercise(parser.getActionParameter(),
+                        parser.getAdditionalArguments(CommandStrings.ARG_TO));
+                return;
+            }
             if (!parserAction.equals(CommandStrings.ACTION_DELETE)) {
                 return;
             }
 
-            String parserCommand = parser.getCommand();
             if(parserCommand.equals(CommandStrings.COMMAND_EXERCISE)) {
                 removeDeletedExerciseFromWorkouts(parser.getActionParameter(), workoutManager);
             } else if(parserCommand.equals(CommandStrings.COMMAND_WORKOUT)) {
@@ -42,32 +47,25 @@ public class CascadingDeletionProcessor {
     }
 
     private static void removeDeletedExerciseFromWorkouts (String exerciseName, WorkoutManager workoutManager) {
-        ArrayList<Activity> workoutList = workoutManager.getActivityList();
-        for (Activity item : workoutList) {
-            Workout workout = (Workout) item;
-            ArrayList<Exercise> workoutExerciseList = ((Workout) workout).getExerciseList();
-            workoutExerciseList.removeIf(exercise -> exercise.getActivityName().equalsIgnoreCase(exerciseName));
-        }
+        workoutManager.removeExerciseFromWorkouts(exerciseName);
     }
 
     private static void removeDeletedWorkoutsFromProgram (String workoutName,
                                                           WeeklyProgramManager weeklyProgramManager)
             throws Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput {
-        LinkedHashSet<Activity> newWorkoutsInProgram = weeklyProgramManager.getDaySet();
-        LinkedHashSet<Activity> oldWorkoutsInProgram = new LinkedHashSet<>(newWorkoutsInProgram);
+        LinkedHashSet<Activity> oldWorkoutsInProgram = new LinkedHashSet<>(weeklyProgramManager.getDaySet());
 
         for (Activity item : oldWorkoutsInProgram) {
             Day currentDay = (Day) item;
             Workout workout = currentDay.getAssignedWorkout();
             if (workout == null) {
                 continue;
-            } else if (workout.getActivityName().equals(workoutName)) {
+            } else if (workout.hasName(workoutName)) {
                 String currentDayString = currentDay.getActivityName();
 
-                newWorkoutsInProgram.remove(weeklyProgramManager.getDay(currentDayString));
                 Day newDay = new Day(currentDayString);
                 newDay.setAssignedWorkout(null);
-                newWorkoutsInProgram.add(newDay);
+                weeklyProgramManager.updateActivitySet(weeklyProgramManager.getDay(currentDayString), newDay);
             }
         }
     }
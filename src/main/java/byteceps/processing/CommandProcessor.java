@@ -0,0 +1,120 @@
+package byteceps.processing;
+
+import byteceps.commands.Parser;
+import byteceps.errors.Exceptions;
+import byteceps.ui.strings.CommandStrings;
+
+/**
+ * Dispatches parsed user commands to the manager responsible for them.
+ */
+public class CommandProcessor {
+    private final ExerciseManager exerciseManager;
+    private final WorkoutManager workoutManager;
+    private final WeeklyProgramManager weeklyProgramManager;
+    private final HelpMenuManager helpMenuManager;
+
+    public CommandProcessor(ExerciseManager exerciseManager, WorkoutManager workoutManager,
+                            WeeklyProgramManager weeklyProgramManager, HelpMenuManager helpMenuManager) {
+        this.exerciseManager = exerciseManager;
+        this.workoutManager = workoutManager;
+        this.weeklyProgramManager = weeklyProgramManager;
+        this.helpMenuManager = helpMenuManager;
+    }
+
+    /**
+     * Executes the command held by the parser, then applies any cascading deletions it causes.
+     *
+     * @param parser Parser containing user input.
+     * @return Message to user after executing the command.
+     * @throws Exceptions.InvalidInput            if the command is not valid.
+     * @throws Exceptions.ErrorAddingActivity     if there is an error adding an activity.
+     * @throws Exceptions.ActivityExistsException if the activity already exists.
+     * @throws Exceptions.ActivityDoesNotExist    if the activity does not exist.
+     */
+    public String execute(Parser parser) throws Exceptions.InvalidInput, Exceptions.ErrorAddingActivity,
+            Exceptions.ActivityExistsException, Exceptions.ActivityDoesNotExist {
+        String messageToUser;
+        switch (parser.getCommand()) {
+        case CommandStrings.COMMAND_EXERCISE:
+            messageToUser = exerciseManager.execute(parser);
+            break;
+        case CommandStrings.COMMAND_WORKOUT:
+            messageToUser = workoutManager.execute(parser);
+            break;
+        case CommandStrings.COMMAND_PROGRAM:
+            messageToUser = weeklyProgramManager.execute(parser);
+            break;
+        case CommandStrings.COMMAND_HELP:
+            messageToUser = helpMenuManager.execute(parser);
+            break;
+        default:
+            messageToUser = CommandStrings.UNKNOWN_COMMAND;
+        }
+        CascadingDeletionProcessor.checkForCascadingDeletions(parser, workoutManager, weeklyProgramManager);
+        return messageToUser;
+    }
+
+    /**
+     * Checks if the command held by the parser changes any persisted data.
+     *
+     * @param parser Parser containing user input.
+     * @return true if the command mutates a manager, false otherwise.
+     */
+    public static boolean isMutatingCommand(Parser parser) {
+        String action;
+        try {
+            action = parser.getAction();
+        } catch (Exceptions.InvalidInput e) {
+            return false;
+        }
+
+        switch (parser.getCommand()) {
+        case CommandStrings.COMMAND_EXERCISE:
+            return action.equals(CommandStrings.ACTION_ADD) || action.equals(CommandStrings.ACTION_EDIT)
+                    || action.equals(CommandStrings.ACTION_DELETE);
+        case CommandStrings.COMMAND_WORKOUT:
+            return action.equals(CommandStrings.ACTION_CREATE) || action.equals(CommandStrings.ACTION_EDIT)
+                    || action.equals(CommandStrings.ACTION_DELETE) || action.equals(CommandStrings.ACTION_ASSIGN)
+                    || action.equals(CommandStrings.ACTION_UNASSIGN);
+        case CommandStrings.COMMAND_PROGRAM:
+            return action.equals(CommandStrings.ACTION_ASSIGN) || action.equals(CommandStrings.ACTION_CLEAR)
+                    || action.equals(CommandStrings.ACTION_LOG);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the command held by the parser only reads the managers, so that it may run alongside other
+     * commands that only read them. Commands that page a workout log in or start today's log count as changes,
+     * even though they are not journaled.
+     *
+     * @param parser Parser containing user input.
+     * @return true if the command never changes a manager, false otherwise.
+     */
+    public static boolean isReadOnlyCommand(Parser parser) {
+        if (parser.getCommand().equals(CommandStrings.COMMAND_HELP)) {
+            return true;
+        }
+
+        String action;
+        try {
+            action = parser.getAction();
+        } catch (Exceptions.InvalidInput e) {
+            return false;
+        }
+
+        switch (parser.getCommand()) {
+        case CommandStrings.COMMAND_EXERCISE:
+            return action.equals(CommandStrings.ACTION_LIST) || action.equals(CommandStrings.ACTION_SEARCH);
+        case CommandStrings.COMMAND_WORKOUT:
+            return action.equals(CommandStrings.ACTION_INFO) || action.equals(CommandStrings.ACTION_LIST)
+                    || action.equals(CommandStrings.ACTION_SEARCH);
+        case CommandStrings.COMMAND_PROGRAM:
+            return action.equals(CommandStrings.ACTION_LIST)
+                    || (action.equals(CommandStrings.ACTION_HISTORY) && parser.getActionParameter().isBlank());
+        default:
+            return false;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package byteceps.processing;
+
+import byteceps.activities.Activity;
+import byteceps.activities.Exercise;
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.Workout;
+import byteceps.activities.WorkoutLog;
+import byteceps.errors.Exceptions;
+import byteceps.ui.strings.DayStrings;
+import byteceps.ui.strings.ManagerStrings;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable copy of the four persisted managers as they were between two commands, so that saves, exports
+ * and analytics can read a consistent view while the user keeps working.
+ * A snapshot shares every part that has not changed with the snapshot taken before it. The exercises,
+ * workouts and weekly program are only copied again when their manager has changed, and workout logs are
+ * copied a month at a time, so a snapshot taken after a day of logging copies only that month.
+ * Exercise logs never change once created, so they are shared rather than copied, and paged workout logs
+ * stay paged. A snapshot also records the sequence number of the last journal entry it includes.
+ */
+public final class DomainSnapshot {
+    private final long exerciseModificationCount;
+    private final List<String> exerciseNames;
+    private final long workoutModificationCount;
+    private final Map<String, List<String>> workouts;
+    private final long weeklyProgramModificationCount;
+    private final List<String> program;
+    private final NavigableMap<YearMonth, LogMonth> logMonths;
+    private final WorkoutLogSource pagedLogs;
+    private final long journalSequence;
+
+    private DomainSnapshot(long exerciseModificationCount, List<String> exerciseNames,
+                           long workoutModificationCount, Map<String, List<String>> workouts,
+                           long weeklyProgramModificationCount, List<String> program,
+                           NavigableMap<YearMonth, LogMonth> logMonths, WorkoutLogSource pagedLogs,
+                           long journalSequence) {
+        this.exerciseModificationCount = exerciseModificationCount;
+        this.exerciseNames = exerciseNames;
+        this.workoutModificationCount = workoutModificationCount;
+        this.workouts = workouts;
+        this.weeklyProgramModificationCount = weeklyProgramModificationCount;
+        this.program = program;
+        this.logMonths = logMonths;
+        this.pagedLogs = pagedLogs;
+        this.journalSequence = journalSequence;
+    }
+
+    /**
+     * Takes a snapshot of the managers, sharing what has not changed with an earlier snapshot of them.
+     * Must be called while no command can change the managers.
+     *
+     * @param journalSequence The sequence number of the last journal entry applied to the managers.
+     * @param previous        An earlier snapshot of the same managers, or null to copy everything.
+     * @return The snapshot.
+     */
+    public static DomainSnapshot take(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                                      WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager,
+                                      long journalSequence, DomainSnapshot previous) {
+        long exerciseModificationCount = allExercises.getModificationCount();
+        List<String> exerciseNames = previous != null
+                && previous.exerciseModificationCount == exerciseModificationCount
+                ? previous.exerciseNames
+                : copyExerciseNames(allExercises);
+
+        long workoutModificationCount = allWorkouts.getModificationCount();
+        Map<String, List<String>> workouts = previous != null
+                && previous.workoutModificationCount == workoutModificationCount
+                ? previous.workouts
+                : copyWorkouts(allWorkouts);
+
+        // the weekly program names its workouts, so renaming a workout changes it too
+        long weeklyProgramModificationCount = workoutModificationCount + weeklyProgram.getModificationCount();
+        List<String> program = previous != null
+                && previous.weeklyProgramModificationCount == weeklyProgramModificationCount
+                ? previous.program
+                : copyProgram(weeklyProgram);
+
+        TreeMap<YearMonth, LogMonth> logMonths = new TreeMap<>();
+        for (Map.Entry<YearMonth, Long> month : workoutLogsManager.getMonthModificationCounts().entrySet()) {
+            LogMonth previousMonth = previous == null ? null : previous.logMonths.get(month.getKey());
+            if (previousMonth != null && previousMonth.modificationCount == month.getValue()) {
+                logMonths.put(month.getKey(), previousMonth);
+            } else {
+                logMonths.put(month.getKey(), new LogMonth(month.getValue(),
+                        workoutLogsManager.getHeldWorkoutLogs(month.getKey())));
+            }
+        }
+
+        return new DomainSnapshot(exerciseModificationCount, exerciseNames, workoutModificationCount, workouts,
+                weeklyProgramModificationCount, program, Collections.unmodifiableNavigableMap(logMonths),
+                workoutLogsManager.getPagedLogs(), journalSequence);
+    }
+
+    /**
+     * Gets the names of the exercises, in the order they were added.
+     *
+     * @return The exercise names.
+     */
+    public List<String> getExerciseNames() {
+        return exerciseNames;
+    }
+
+    /**
+     * Gets the workouts, in the order they were created, each with the names of its exercises.
+     *
+     * @return The exercise names of each workout, keyed by workout name.
+     */
+    public Map<String, List<String>> getWorkouts() {
+        return workouts;
+    }
+
+    /**
+     * Gets the workout assigned to each day of the weekly program, Monday first.
+     *
+     * @return The workout name of each day, or null for a rest day.
+     */
+    public List<String> getProgram() {
+        return program;
+    }
+
+    /**
+     * Gets the date of every workout log, whether it was held in memory or still paged, earliest first.
+     *
+     * @return The workout log dates.
+     */
+    public List<String> getWorkoutLogDates() {
+        int heldLogCount = 0;
+        for (LogMonth month : logMonths.values()) {
+            heldLogCount += month.epochDays.length;
+        }
+        int[] heldDays = new int[heldLogCount];
+        int position = 0;
+        for (LogMonth month : logMonths.values()) {
+            System.arraycopy(month.epochDays, 0, heldDays, position, month.epochDays.length);
+            position += month.epochDays.length;
+        }
+        int[] pagedDays = pagedLogs == null
+                ? new int[0]
+                : pagedLogs.getEpochDays(Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        // both are sorted, and a held log replaces a paged log on the same day
+        List<String> workoutLogDates = new ArrayList<>(heldDays.length + pagedDays.length);
+        int heldPosition = 0;
+        int pagedPosition = 0;
+        while (heldPosition < heldDays.length || pagedPosition < pagedDays.length) {
+            int epochDay;
+            if (pagedPosition == pagedDays.length
+                    || (heldPosition < heldDays.length && heldDays[heldPosition] <= pagedDays[pagedPosition])) {
+                epochDay = heldDays[heldPosition++];
+                if (pagedPosition < pagedDays.length && pagedDays[pagedPosition] == epochDay) {
+                    pagedPosition++;
+                }
+            } else {
+                epochDay = pagedDays[pagedPosition++];
+            }
+            workoutLogDates.add(LocalDate.ofEpochDay(epochDay).toString());
+        }
+        return workoutLogDates;
+    }
+
+    /**
+     * Gets the workout log on a date. Every call returns a new copy, so the caller may keep or change it.
+     *
+     * @param workoutLogDate The date of the workout log.
+     * @return The workout log.
+     * @throws Exceptions.ActivityDoesNotExist If there is no workout log on that date.
+     */
+    public WorkoutLog getWorkoutLog(String workoutLogDate) throws Exceptions.ActivityDoesNotExist {
+        LocalDate date = LocalDate.parse(workoutLogDate);
+        int epochDay = Math.toIntExact(date.toEpochDay());
+        LogMonth month = logMonths.get(YearMonth.from(date));
+        if (month != null) {
+            int position = Arrays.binarySearch(month.epochDays, epochDay);
+            if (position >= 0) {
+                WorkoutLog workoutLog = new WorkoutLog(workoutLogDate, month.workoutNames[position]);
+                for (ExerciseLog exerciseLog : month.exerciseLogs[position]) {
+                    workoutLog.addExerciseLog(exerciseLog);
+                }
+                return workoutLog;
+            }
+        }
+        WorkoutLog pagedLog = pagedLogs == null ? null : pagedLogs.load(epochDay);
+        if (pagedLog == null) {
+            throw new Exceptions.ActivityDoesNotExist(String.format(
+                    ManagerStrings.ACTIVITY_DOES_NOT_EXIST_EXCEPTION, ManagerStrings.WORKOUT_LOG, workoutLogDate));
+        }
+        return pagedLog;
+    }
+
+    /**
+     * Gets the sequence number of the last journal entry the snapshot includes, so that replaying the journal
+     * over the snapshot can skip it.
+     *
+     * @return The journal sequence number, or 0 if no entry was ever journaled.
+     */
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public long getExerciseModificationCount() {
+        return exerciseModificationCount;
+    }
+
+    public long getWorkoutModificationCount() {
+        return workoutModificationCount;
+    }
+
+    /**
+     * Gets the number of changes that affect the weekly program, which names its workouts and so also
+     * changes when a workout is renamed.
+     *
+     * @return A count that grows every time the weekly program changes.
+     */
+    public long getWeeklyProgramModificationCount() {
+        return weeklyProgramModificationCount;
+    }
+
+    /**
+     * Gets the modification count of the workout logs as it was when a log in the given month last changed.
+     *
+     * @param month The month of the workout logs.
+     * @return The modification count, or -1 if no log in the month had changed since the managers were loaded.
+     */
+    public long getMonthModificationCount(YearMonth month) {
+        LogMonth logMonth = logMonths.get(month);
+        return logMonth == null ? -1 : logMonth.modificationCount;
+    }
+
+    private static List<String> copyExerciseNames(ExerciseManager allExercises) {
+        List<String> exerciseNames = new ArrayList<>(allExercises.getActivities().size());
+        for (Activity exercise : allExercises.getActivities()) {
+            exerciseNames.add(exercise.getActivityName());
+        }
+        return Collections.unmodifiableList(exerciseNames);
+    }
+
+    private static Map<String, List<String>> copyWorkouts(WorkoutManager allWorkouts) {
+        LinkedHashMap<String, List<String>> workouts = new LinkedHashMap<>();
+        for (Activity activity : allWorkouts.getActivities()) {
+            List<Exercise> exerciseList = ((Workout) activity).getExerciseList();
+            String[] exerciseNames = new String[exerciseList.size()];
+            for (int i = 0; i < exerciseNames.length; i++) {
+                exerciseNames[i] = exerciseList.get(i).getActivityName();
+            }
+            workouts.put(activity.getActivityName(), List.of(exerciseNames));
+        }
+        return Collections.unmodifiableMap(workouts);
+    }
+
+    private static List<String> copyProgram(WeeklyProgramManager weeklyProgram) {
+        String[] program = new String[DayStrings.DAYS.length];
+        try {
+            for (int i = 0; i < DayStrings.DAYS.length; i++) {
+                Workout assignedWorkout = weeklyProgram.getDay(DayStrings.DAYS[i]).getAssignedWorkout();
+                program[i] = assignedWorkout == null ? null : assignedWorkout.getActivityName();
+            }
+        } catch (Exceptions.InvalidInput | Exceptions.ActivityDoesNotExist ignored) {
+            // should not get an exception as the days are generated
+        }
+        return Collections.unmodifiableList(Arrays.asList(program));
+    }
+
+    /**
+     * The workout logs of one month that were held in memory, in parallel arrays ordered by day.
+     */
+    private static class LogMonth {
+        private final long modificationCount;
+        private final int[] epochDays;
+        private final String[] workoutNames;
+        private final ExerciseLog[][] exerciseLogs;
+
+        private LogMonth(long modificationCount, List<WorkoutLog> workoutLogs) {
+            this.modificationCount = modificationCount;
+            this.epochDays = new int[workoutLogs.size()];
+            this.workoutNames = new String[workoutLogs.size()];
+            this.exerciseLogs = new ExerciseLog[workoutLogs.size()][];
+            for (int i = 0; i < workoutLogs.size(); i++) {
+                WorkoutLog workoutLog = workoutLogs.get(i);
+                epochDays[i] = Math.toIntExact(LocalDate.parse(workoutLog.getWorkoutDate()).toEpochDay());
+                workoutNames[i] = workoutLog.getWorkoutName();
+                exerciseLogs[i] = workoutLog.getExerciseLogs().toArray(new ExerciseLog[0]);
+            }
+        }
+    }
+}
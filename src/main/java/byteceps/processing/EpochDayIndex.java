@@ -0,0 +1,116 @@
+package byteceps.processing;
+
+import byteceps.activities.WorkoutLog;
+
+import java.util.Arrays;
+
+/**
+ * Sorted index of workout logs keyed by epoch day.
+ * Days are kept in a primitive array in ascending order alongside the logs, so point lookups and the
+ * start of a range scan are binary searches, and walking the index visits the logs in date order.
+ * Logs are usually added for the latest date, which only appends to the arrays.
+ */
+public class EpochDayIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] epochDays;
+    private WorkoutLog[] workoutLogs;
+    private int size;
+
+    public EpochDayIndex() {
+        this.epochDays = new int[INITIAL_CAPACITY];
+        this.workoutLogs = new WorkoutLog[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a workout log to the index, replacing any log already indexed on the same day.
+     *
+     * @param epochDay   The day of the workout log.
+     * @param workoutLog The workout log.
+     */
+    public void put(int epochDay, WorkoutLog workoutLog) {
+        int position = lowerBound(epochDay);
+        if (position < size && epochDays[position] == epochDay) {
+            workoutLogs[position] = workoutLog;
+            return;
+        }
+
+        if (size == epochDays.length) {
+            epochDays = Arrays.copyOf(epochDays, size * 2);
+            workoutLogs = Arrays.copyOf(workoutLogs, size * 2);
+        }
+        System.arraycopy(epochDays, position, epochDays, position + 1, size - position);
+        System.arraycopy(workoutLogs, position, workoutLogs, position + 1, size - position);
+        epochDays[position] = epochDay;
+        workoutLogs[position] = workoutLog;
+        size++;
+    }
+
+    /**
+     * Removes the workout log indexed on a day, if there is one.
+     *
+     * @param epochDay The day of the workout log.
+     */
+    public void remove(int epochDay) {
+        int position = lowerBound(epochDay);
+        if (position == size || epochDays[position] != epochDay) {
+            return;
+        }
+        System.arraycopy(epochDays, position + 1, epochDays, position, size - position - 1);
+        System.arraycopy(workoutLogs, position + 1, workoutLogs, position, size - position - 1);
+        size--;
+        workoutLogs[size] = null;
+    }
+
+    /**
+     * Gets the workout log indexed on a day.
+     *
+     * @param epochDay The day of the workout log.
+     * @return The workout log, or null if there is none on that day.
+     */
+    public WorkoutLog get(int epochDay) {
+        int position = lowerBound(epochDay);
+        if (position == size || epochDays[position] != epochDay) {
+            return null;
+        }
+        return workoutLogs[position];
+    }
+
+    /**
+     * Finds the position of the first indexed day on or after the given day.
+     *
+     * @param epochDay The day to search for.
+     * @return The position of the first day on or after the given day, or the size if there is none.
+     */
+    public int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochDays[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public int getEpochDay(int position) {
+        return epochDays[position];
+    }
+
+    public WorkoutLog getWorkoutLog(int position) {
+        return workoutLogs[position];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(workoutLogs, 0, size, null);
+        size = 0;
+    }
+}
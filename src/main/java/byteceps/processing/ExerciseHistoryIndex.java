@@ -0,0 +1,137 @@
+package byteceps.processing;
+
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.NameTable;
+import byteceps.activities.WorkoutLog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Inverted index from each logged exercise to the days it was logged on.
+ * Exercises are keyed by their {@link NameTable} id, so names are matched case-insensitively, and the days of
+ * each exercise are kept in a primitive array in ascending order, so the history of an exercise is read
+ * without visiting a single workout log. Exercises are usually logged on the latest date, which only
+ * appends to the array.
+ */
+public class ExerciseHistoryIndex {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final NameTable nameTable;
+    private final HashMap<Integer, EpochDays> epochDaysByExercise;
+
+    public ExerciseHistoryIndex(NameTable nameTable) {
+        this.nameTable = nameTable;
+        this.epochDaysByExercise = new HashMap<>();
+    }
+
+    /**
+     * Records every exercise in a workout log as logged on the day of the log.
+     *
+     * @param epochDay   The day of the workout log.
+     * @param workoutLog The workout log.
+     */
+    public void addWorkoutLog(int epochDay, WorkoutLog workoutLog) {
+        for (ExerciseLog exerciseLog : workoutLog.getExerciseLogs()) {
+            addExerciseLog(epochDay, exerciseLog);
+        }
+    }
+
+    /**
+     * Removes every exercise in a workout log from the day of the log.
+     *
+     * @param epochDay   The day of the workout log.
+     * @param workoutLog The workout log.
+     */
+    public void removeWorkoutLog(int epochDay, WorkoutLog workoutLog) {
+        for (ExerciseLog exerciseLog : workoutLog.getExerciseLogs()) {
+            removeExerciseLog(epochDay, nameTable.find(exerciseLog.getActivityName()));
+        }
+    }
+
+    /**
+     * Records an exercise as logged on a day. Logging the same exercise twice on a day records the day once.
+     *
+     * @param epochDay    The day the exercise was logged on.
+     * @param exerciseLog The exercise log.
+     */
+    public void addExerciseLog(int epochDay, ExerciseLog exerciseLog) {
+        epochDaysByExercise.computeIfAbsent(nameTable.intern(exerciseLog.getActivityName()), key -> new EpochDays())
+                .add(epochDay);
+    }
+
+    /**
+     * Removes a day from the history of an exercise, such as when its log entry is removed.
+     *
+     * @param epochDay     The day the exercise was logged on.
+     * @param exerciseName The name of the exercise.
+     */
+    public void removeExerciseLog(int epochDay, String exerciseName) {
+        removeExerciseLog(epochDay, nameTable.find(exerciseName));
+    }
+
+    private void removeExerciseLog(int epochDay, int exerciseId) {
+        EpochDays epochDays = epochDaysByExercise.get(exerciseId);
+        if (epochDays == null) {
+            return;
+        }
+        epochDays.remove(epochDay);
+        if (epochDays.size == 0) {
+            epochDaysByExercise.remove(exerciseId);
+        }
+    }
+
+    /**
+     * Gets every day an exercise was logged on.
+     *
+     * @param exerciseName The name of the exercise.
+     * @return The days, earliest first, or an empty array if the exercise was never logged.
+     */
+    public int[] getEpochDays(String exerciseName) {
+        EpochDays epochDays = epochDaysByExercise.get(nameTable.find(exerciseName));
+        return epochDays == null ? new int[0] : Arrays.copyOf(epochDays.days, epochDays.size);
+    }
+
+    /**
+     * The days one exercise was logged on, in ascending order.
+     */
+    private static class EpochDays {
+        private int[] days;
+        private int size;
+
+        private EpochDays() {
+            this.days = new int[INITIAL_CAPACITY];
+            this.size = 0;
+        }
+
+        private void add(int epochDay) {
+            if (size > 0 && days[size - 1] == epochDay) {
+                return;
+            }
+            int position = size > 0 && days[size - 1] < epochDay ? size : lowerBound(epochDay);
+            if (position < size && days[position] == epochDay) {
+                return;
+            }
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+            }
+            System.arraycopy(days, position, days, position + 1, size - position);
+            days[position] = epochDay;
+            size++;
+        }
+
+        private void remove(int epochDay) {
+            int position = lowerBound(epochDay);
+            if (position == size || days[position] != epochDay) {
+                return;
+            }
+            System.arraycopy(days, position + 1, days, position, size - position - 1);
+            size--;
+        }
+
+        private int lowerBound(int epochDay) {
+            int position = Arrays.binarySearch(days, 0, size, epochDay);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+}
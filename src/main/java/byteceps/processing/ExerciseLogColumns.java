@@ -0,0 +1,241 @@
+package byteceps.processing;
+
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.NameTable;
+import byteceps.activities.WorkoutLog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Column-oriented copy of every logged set, for aggregates over the whole log history.
+ * Each row is one set, spread over parallel primitive arrays of epoch day, exercise id, set index,
+ * weight and reps, so an aggregate is a single pass over a few int arrays instead of a walk through
+ * every WorkoutLog and ExerciseLog. The exercise column holds {@link NameTable} ids, so exercise names are
+ * matched case-insensitively, like log entries are.
+ * The sets of an exercise log are appended together, so each (day, exercise) owns one run of rows, which is
+ * kept in a per-day index. Removing a log marks its rows deleted instead of shifting every later row, and
+ * the columns are only compacted once deleted rows make up half of them.
+ */
+public class ExerciseLogColumns {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int DELETED = -2;
+    private static final int FIRST_ROW = 0;
+    private static final int ROW_COUNT = 1;
+
+    private final NameTable nameTable;
+    private final HashMap<Integer, HashMap<Integer, int[]>> rowRangesByDay;
+    private int[] epochDays;
+    private int[] exerciseColumn;
+    private int[] setIndexes;
+    private int[] weights;
+    private int[] repetitions;
+    private int size;
+    private int deletedCount;
+
+    public ExerciseLogColumns(NameTable nameTable) {
+        this.nameTable = nameTable;
+        this.rowRangesByDay = new HashMap<>();
+        this.epochDays = new int[INITIAL_CAPACITY];
+        this.exerciseColumn = new int[INITIAL_CAPACITY];
+        this.setIndexes = new int[INITIAL_CAPACITY];
+        this.weights = new int[INITIAL_CAPACITY];
+        this.repetitions = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Appends a row for every set of every exercise in a workout log.
+     *
+     * @param epochDay   The day of the workout log.
+     * @param workoutLog The workout log.
+     */
+    public void addWorkoutLog(int epochDay, WorkoutLog workoutLog) {
+        for (ExerciseLog exerciseLog : workoutLog.getExerciseLogs()) {
+            addExerciseLog(epochDay, exerciseLog);
+        }
+    }
+
+    /**
+     * Appends a row for every set of an exercise log.
+     *
+     * @param epochDay    The day the exercise was logged on.
+     * @param exerciseLog The exercise log.
+     */
+    public void addExerciseLog(int epochDay, ExerciseLog exerciseLog) {
+        int exerciseId = nameTable.intern(exerciseLog.getActivityName());
+        int sets = exerciseLog.getSets();
+        ensureCapacity(size + sets);
+        int[] replacedRowRange = rowRangesByDay.computeIfAbsent(epochDay, day -> new HashMap<>())
+                .put(exerciseId, new int[]{size, sets});
+        if (replacedRowRange != null) {
+            // a log added over an existing one replaces it, as in the workout log
+            deleteRows(replacedRowRange);
+        }
+        for (int set = 0; set < sets; set++) {
+            epochDays[size] = epochDay;
+            exerciseColumn[size] = exerciseId;
+            setIndexes[size] = set;
+            weights[size] = exerciseLog.getWeight(set);
+            repetitions[size] = exerciseLog.getRepetition(set);
+            size++;
+        }
+        if (replacedRowRange != null) {
+            compactIfSparse();
+        }
+    }
+
+    /**
+     * Removes the rows of an exercise logged on a day, such as when the log entry is overwritten.
+     *
+     * @param epochDay     The day the exercise was logged on.
+     * @param exerciseName The name of the exercise.
+     */
+    public void removeExerciseLog(int epochDay, String exerciseName) {
+        int exerciseId = nameTable.find(exerciseName);
+        HashMap<Integer, int[]> dayRowRanges = rowRangesByDay.get(epochDay);
+        if (exerciseId == NameTable.NO_ID || dayRowRanges == null) {
+            return;
+        }
+        int[] rowRange = dayRowRanges.remove(exerciseId);
+        if (rowRange != null) {
+            deleteRows(rowRange);
+        }
+        if (dayRowRanges.isEmpty()) {
+            rowRangesByDay.remove(epochDay);
+        }
+        compactIfSparse();
+    }
+
+    /**
+     * Removes the rows of every exercise logged on a day.
+     *
+     * @param epochDay The day of the workout log.
+     */
+    public void removeWorkoutLog(int epochDay) {
+        HashMap<Integer, int[]> dayRowRanges = rowRangesByDay.remove(epochDay);
+        if (dayRowRanges == null) {
+            return;
+        }
+        for (int[] rowRange : dayRowRanges.values()) {
+            deleteRows(rowRange);
+        }
+        compactIfSparse();
+    }
+
+    /**
+     * Sums weight times reps over every logged set of an exercise.
+     *
+     * @param exerciseName The name of the exercise.
+     * @return The total volume lifted, or 0 if the exercise was never logged.
+     */
+    public long getTotalVolume(String exerciseName) {
+        int exerciseId = getExerciseId(exerciseName);
+        long totalVolume = 0;
+        for (int row = 0; row < size; row++) {
+            if (exerciseColumn[row] == exerciseId) {
+                totalVolume += (long) weights[row] * repetitions[row];
+            }
+        }
+        return totalVolume;
+    }
+
+    /**
+     * Finds the heaviest logged set of an exercise, preferring more reps between sets of equal weight.
+     *
+     * @param exerciseName The name of the exercise.
+     * @return The weight and reps of the best set, or null if the exercise was never logged.
+     */
+    public int[] getBestSet(String exerciseName) {
+        int exerciseId = getExerciseId(exerciseName);
+        int bestRow = -1;
+        for (int row = 0; row < size; row++) {
+            if (exerciseColumn[row] != exerciseId) {
+                continue;
+            }
+            if (bestRow < 0 || weights[row] > weights[bestRow]
+                    || (weights[row] == weights[bestRow] && repetitions[row] > repetitions[bestRow])) {
+                bestRow = row;
+            }
+        }
+        return bestRow < 0 ? null : new int[]{weights[bestRow], repetitions[bestRow]};
+    }
+
+    /**
+     * Counts the days an exercise was logged on.
+     *
+     * @param exerciseName The name of the exercise.
+     * @return The number of days with a log of the exercise.
+     */
+    public int getFrequency(String exerciseName) {
+        int exerciseId = getExerciseId(exerciseName);
+        int frequency = 0;
+        for (int row = 0; row < size; row++) {
+            // every logged exercise has exactly one first set per day
+            if (exerciseColumn[row] == exerciseId && setIndexes[row] == 0) {
+                frequency++;
+            }
+        }
+        return frequency;
+    }
+
+    /**
+     * Gets the number of logged sets, not counting rows that were removed but not yet compacted away.
+     *
+     * @return The number of rows in use.
+     */
+    public int size() {
+        return size - deletedCount;
+    }
+
+    private void deleteRows(int[] rowRange) {
+        int endRow = rowRange[FIRST_ROW] + rowRange[ROW_COUNT];
+        Arrays.fill(exerciseColumn, rowRange[FIRST_ROW], endRow, DELETED);
+        deletedCount += rowRange[ROW_COUNT];
+    }
+
+    /**
+     * Drops the deleted rows once they make up half of the columns, so removals cost amortised constant
+     * time per row instead of a pass over every row.
+     */
+    private void compactIfSparse() {
+        if (deletedCount * 2 < size) {
+            return;
+        }
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (exerciseColumn[row] == DELETED) {
+                continue;
+            }
+            if (kept != row) {
+                epochDays[kept] = epochDays[row];
+                exerciseColumn[kept] = exerciseColumn[row];
+                setIndexes[kept] = setIndexes[row];
+                weights[kept] = weights[row];
+                repetitions[kept] = repetitions[row];
+            }
+            if (setIndexes[kept] == 0) {
+                rowRangesByDay.get(epochDays[kept]).get(exerciseColumn[kept])[FIRST_ROW] = kept;
+            }
+            kept++;
+        }
+        size = kept;
+        deletedCount = 0;
+    }
+
+    private int getExerciseId(String exerciseName) {
+        return nameTable.find(exerciseName);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= epochDays.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, epochDays.length * 2);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        exerciseColumn = Arrays.copyOf(exerciseColumn, newCapacity);
+        setIndexes = Arrays.copyOf(setIndexes, newCapacity);
+        weights = Arrays.copyOf(weights, newCapacity);
+        repetitions = Arrays.copyOf(repetitions, newCapacity);
+    }
+}
@@ -1,6 +1,7 @@
 package byteceps.processing;
 
 import byteceps.activities.Exercise;
+import byteceps.activities.NameTable;
 import byteceps.commands.Parser;
 import byteceps.errors.Exceptions;
 import byteceps.ui.strings.CommandStrings;
@@ -11,6 +12,14 @@ import byteceps.validators.ExerciseValidator;
  * Manages operations related to exercises, such as adding, deleting, editing, listing, and searching exercises.
  */
 public class ExerciseManager extends ActivityManager {
+    public ExerciseManager() {
+        super();
+    }
+
+    public ExerciseManager(NameTable nameTable) {
+        super(nameTable);
+    }
+
     //@@author V4vern
     /**
      * Executes all commands that start with the keyword "exercise".
@@ -56,19 +65,18 @@ public class ExerciseManager extends ActivityManager {
     }
     //@@author LWachtel1
     private String executeEditAction(Parser parser) throws Exceptions.ActivityDoesNotExist {
-        String oldExerciseName = parser.getActionParameter().toLowerCase();
-        String newExerciseName = parser.getAdditionalArguments(CommandStrings.ARG_TO).toLowerCase();
+        String oldExerciseName = NameTable.fold(parser.getActionParameter());
+        String newExerciseName = NameTable.fold(parser.getAdditionalArguments(CommandStrings.ARG_TO));
 
         if (oldExerciseName.equals(newExerciseName)) {
             return String.format(ManagerStrings.EXERCISE_NAME_SAME, oldExerciseName);
         }
 
         Exercise retrievedExercise = retrieveExercise(parser);
-        retrievedExercise.editExerciseName(newExerciseName.toLowerCase(), this);
-        newExerciseName =  newExerciseName.toLowerCase();
+        retrievedExercise.editExerciseName(newExerciseName, this);
 
         return String.format(
-                ManagerStrings.EXERCISE_EDITED, parser.getActionParameter().toLowerCase(), newExerciseName
+                ManagerStrings.EXERCISE_EDITED, oldExerciseName, newExerciseName
         );
     }
     //@@author V4vern
@@ -84,7 +92,7 @@ public class ExerciseManager extends ActivityManager {
 
     //@@author V4vern
     private String executeAddAction(Parser parser) throws Exceptions.ActivityExistsException {
-        String exerciseName =  parser.getActionParameter().toLowerCase();
+        String exerciseName =  NameTable.fold(parser.getActionParameter());
         Exercise newExercise = new Exercise(exerciseName);
         add(newExercise);
         return String.format(ManagerStrings.EXERCISE_ADDED, newExercise.getActivityName());
@@ -93,7 +101,7 @@ public class ExerciseManager extends ActivityManager {
 
     //@@author V4vern
     private Exercise retrieveExercise(Parser parser) throws Exceptions.ActivityDoesNotExist {
-        String exerciseName = parser.getActionParameter().toLowerCase();
+        String exerciseName = NameTable.fold(parser.getActionParameter());
         return (Exercise) retrieve(exerciseName);
     }
 
@@ -25,12 +25,14 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 public class WeeklyProgramManager extends ActivityManager {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DayStrings.YEAR_FORMAT);
     private final ExerciseManager exerciseManager;
     private final WorkoutManager workoutManager;
     private final WorkoutLogsManager workoutLogsManager;
 
     public WeeklyProgramManager(ExerciseManager exerciseManager, WorkoutManager workoutManager,
                                 WorkoutLogsManager workoutLogsManager) {
+        super(exerciseManager.getNameTable());
         this.exerciseManager = exerciseManager;
         this.workoutManager = workoutManager;
         this.workoutLogsManager = workoutLogsManager;
@@ -64,7 +66,7 @@ public class WeeklyProgramManager extends ActivityManager {
         for (String day : DayStrings.DAYS) {
             Day newDay = new Day(day);
             newDay.setAssignedWorkout(null);
-            activitySet.add(newDay);
+            addToSet(newDay);
         }
     }
   
@@ -188,6 +190,7 @@ public class WeeklyProgramManager extends ActivityManager {
             );
         }
         selectedDay.setAssignedWorkout((Workout) workout);
+        markModified();
         return String.format(ManagerStrings.WORKOUT_ASSIGNED, workout.getActivityName(), day);
     }
 
@@ -198,9 +201,7 @@ public class WeeklyProgramManager extends ActivityManager {
 
     private Day getDayFromDate(String dateString)
             throws Exceptions.ActivityDoesNotExist, DateTimeParseException, Exceptions.InvalidInput {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DayStrings.YEAR_FORMAT);
-        formatter = formatter.withLocale(formatter.getLocale());
-        LocalDate date = LocalDate.parse(dateString, formatter);
+        LocalDate date = LocalDate.parse(dateString, DATE_FORMATTER);
         DayOfWeek dayFromDate = date.getDayOfWeek();
         return getDay(dayFromDate.toString());
     }
@@ -220,27 +221,35 @@ public class WeeklyProgramManager extends ActivityManager {
         String workoutName = getWorkoutName(selectedDay, workoutDate);
         workoutLogsManager.addWorkoutLog(workoutDate, workoutName);
 
-        workoutLogsManager.addExerciseLog(workoutDate, exerciseName, weight, sets, repetition);
+        boolean isOverwritten = workoutLogsManager.addExerciseLog(workoutDate, exerciseName, weight, sets,
+                repetition);
 
         int setsInt = Integer.parseInt(sets);
         List<String> weightList = Arrays.asList(weight.split(" "));
-        List<Integer> repetitionList = Arrays.stream(repetition.split(" "))
-                .map(Integer::parseInt)
-                .collect(Collectors.toList());
+        int[] repetitions = WorkoutLogsManager.parseLogValues(repetition);
 
         String formattedWeights = weightList.stream()
                 .map(w -> w + "kg")
                 .collect(Collectors.joining(", "));
 
-        String formattedReps = repetitionList.size() == 1 ? repetitionList.get(0).toString() :
-                repetitionList.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        StringBuilder formattedReps = new StringBuilder();
+        for (int i = 0; i < repetitions.length; i++) {
+            if (i > 0) {
+                formattedReps.append(", ");
+            }
+            formattedReps.append(repetitions[i]);
+        }
 
         String setWord = setsInt == 1 ? "set" : "sets";
         String weightWord = weightList.size() == 1 ? "weight of" : "weights of";
-        String repWord = (repetitionList.size() == 1 && repetitionList.get(0) == 1) ? "rep" : "reps";
+        String repWord = (repetitions.length == 1 && repetitions[0] == 1) ? "rep" : "reps";
 
-        return String.format(ManagerStrings.LOG_SUCCESS,
+        String logMessage = String.format(ManagerStrings.LOG_SUCCESS,
                 exerciseName, weightWord, formattedWeights, formattedReps, repWord, setsInt, setWord, workoutDate);
+        return isOverwritten
+                ? String.format(ManagerStrings.OVERWRITE_EXERCISE_LOG, exerciseName) + System.lineSeparator()
+                        + logMessage
+                : logMessage;
     }
 
     private String executeTodayAction() throws Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput {
@@ -270,6 +279,11 @@ public class WeeklyProgramManager extends ActivityManager {
 
     private String executeHistoryAction(Parser parser)
             throws Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput {
+        String exerciseName = parser.getAdditionalArguments(CommandStrings.ARG_EXERCISE);
+        if (!exerciseName.isEmpty()) {
+            return getExerciseHistoryString(exerciseName);
+        }
+
         String parameter = parser.getActionParameter();
         if (parameter.isBlank()) {
             return getHistoryString();
@@ -290,6 +304,29 @@ public class WeeklyProgramManager extends ActivityManager {
         return workoutLogsManager.getListString();
     }
 
+    /**
+     * Lists every date an exercise was logged on, found through the exercise history index rather than
+     * by searching every workout log.
+     *
+     * @param exerciseName The name of the exercise, in any case.
+     * @return The dates the exercise was logged on, earliest first.
+     */
+    private String getExerciseHistoryString(String exerciseName) {
+        List<String> exerciseLogDates = workoutLogsManager.getExerciseLogDates(exerciseName);
+        if (exerciseLogDates.isEmpty()) {
+            return String.format(ManagerStrings.EXERCISE_HISTORY_EMPTY, exerciseName);
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(ManagerStrings.EXERCISE_HISTORY, exerciseName, System.lineSeparator()));
+        int index = 1;
+        for (String exerciseLogDate : exerciseLogDates) {
+            result.append(String.format(ManagerStrings.ACTIVITY_LIST_ITEM, index, exerciseLogDate));
+            index++;
+        }
+        return result.toString();
+    }
+
     public LinkedHashSet<Activity> getDaySet() {
         return activitySet;
     }
@@ -297,8 +334,7 @@ public class WeeklyProgramManager extends ActivityManager {
     private String executeClearAction(Parser parser) throws Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput {
         String day = parser.getActionParameter();
         if (day == null || day.isEmpty()) {
-            activitySet.clear();
-            initializeDays();
+            reset();
             return ManagerStrings.PROGRAMS_CLEARED;
         }
         Day selectedDay = getDay(day);
@@ -309,8 +345,7 @@ public class WeeklyProgramManager extends ActivityManager {
         }
 
         selectedDay.setAssignedWorkout(null);
-        activitySet.remove(selectedDay);
-        activitySet.add(selectedDay);
+        updateActivitySet(selectedDay, selectedDay);
         return String.format(ManagerStrings.WORKOUT_CLEARED, day);
     }
 
@@ -0,0 +1,35 @@
+package byteceps.processing;
+
+import byteceps.activities.WorkoutLog;
+
+/**
+ * Read-only source of workout logs that are kept off the heap and only materialised when asked for.
+ * Logs are keyed by the epoch day of their date.
+ */
+public interface WorkoutLogSource {
+    /**
+     * Checks if the source holds a workout log on the given day.
+     *
+     * @param epochDay The day of the workout log.
+     * @return true if the source holds a workout log on that day, false otherwise.
+     */
+    boolean contains(int epochDay);
+
+    /**
+     * Materialises the workout log on the given day.
+     * Every call returns a new copy, so callers that keep the log should cache it themselves.
+     *
+     * @param epochDay The day of the workout log.
+     * @return The workout log, or null if the source holds no workout log on that day.
+     */
+    WorkoutLog load(int epochDay);
+
+    /**
+     * Gets the days between two days, inclusive, on which the source holds a workout log.
+     *
+     * @param startEpochDay The first day of the range.
+     * @param endEpochDay   The last day of the range.
+     * @return The days in the range with a workout log, earliest first.
+     */
+    int[] getEpochDays(int startEpochDay, int endEpochDay);
+}
@@ -3,6 +3,7 @@ package byteceps.processing;
 import byteceps.activities.Activity;
 import byteceps.activities.Exercise;
 import byteceps.activities.ExerciseLog;
+import byteceps.activities.NameTable;
 import byteceps.activities.WorkoutLog;
 import byteceps.commands.Parser;
 import byteceps.errors.Exceptions;
@@ -12,14 +13,49 @@ import byteceps.validators.WorkoutLogsValidator;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 public class WorkoutLogsManager extends ActivityManager {
+    private final EpochDayIndex workoutLogIndex;
+    private WorkoutLogSource pagedLogs;
+    private volatile ExerciseLogColumns exerciseLogColumns;
+    private volatile ExerciseHistoryIndex exerciseHistoryIndex;
+    private final HashMap<YearMonth, Long> monthModificationCounts;
+    private boolean isMaterializing;
+
     public WorkoutLogsManager() {
+        this(new NameTable());
+    }
+
+    /**
+     * Constructs a manager that indexes logged exercises by their ids in the given name table.
+     *
+     * @param nameTable The name table of the workspace.
+     */
+    public WorkoutLogsManager(NameTable nameTable) {
+        super(nameTable);
+        this.workoutLogIndex = new EpochDayIndex();
+        this.monthModificationCounts = new HashMap<>();
+    }
+
+    /**
+     * Backs the manager with workout logs that stay off the heap until they are needed.
+     * Logs held in memory take precedence over paged logs on the same date.
+     *
+     * @param pagedLogs The source of the paged workout logs.
+     */
+    public void attachPagedLogs(WorkoutLogSource pagedLogs) {
+        this.pagedLogs = pagedLogs;
     }
 
     @Override
@@ -29,6 +65,7 @@ public class WorkoutLogsManager extends ActivityManager {
 
     public void addWorkoutLog(String workoutLogDate, String workoutName) {
         WorkoutLog newWorkoutLog = new WorkoutLog(workoutLogDate, workoutName);
+        materialize(workoutLogDate);
         try {
             add(newWorkoutLog);
         } catch (Exceptions.ActivityExistsException e) {
@@ -36,34 +73,94 @@ public class WorkoutLogsManager extends ActivityManager {
         }
     }
 
-    public void addExerciseLog(String workoutLogDate, String exerciseName,
-                               String weight, String sets, String repetitions)
+    /**
+     * Parses, validates and adds an exercise log, replacing any log of the same exercise on that date.
+     *
+     * @return true if an earlier log of the exercise on that date was overwritten, false otherwise.
+     */
+    public boolean addExerciseLog(String workoutLogDate, String exerciseName,
+                                  String weight, String sets, String repetitions)
             throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
         try {
-            List<Integer> weightsList = Arrays.stream(weight.split(" "))
-                    .map(Integer::parseInt)
-                    .collect(Collectors.toList());
+            int[] weights = parseLogValues(weight);
             int setsInt = Integer.parseInt(sets);
-            List<Integer> repsList = Arrays.stream(repetitions.split(" "))
-                    .map(Integer::parseInt)
-                    .collect(Collectors.toList());
+            int[] reps = parseLogValues(repetitions);
 
-            WorkoutLogsValidator.hasNegativeInput(weightsList, repsList, setsInt);
+            WorkoutLogsValidator.hasNegativeInput(weights, reps, setsInt);
 
-            ExerciseLog newExerciseLog = new ExerciseLog(exerciseName, weightsList, setsInt, repsList);
+            ExerciseLog newExerciseLog = new ExerciseLog(exerciseName, weights, setsInt, reps);
             WorkoutLog workoutLog = (WorkoutLog) retrieve(workoutLogDate);
-            WorkoutLogsValidator.removeExerciseIfLogExists(workoutLog, exerciseName);
-            workoutLog.addExerciseLog(newExerciseLog);
+            boolean isOverwritten = WorkoutLogsValidator.removeExerciseIfLogExists(workoutLog, exerciseName);
+            replaceExerciseLog(workoutLogDate, newExerciseLog);
+            return isOverwritten;
         } catch (NumberFormatException e) {
             throw new Exceptions.InvalidInput(ManagerStrings.INVALID_REPS_SETS);
         }
     }
 
+    /**
+     * Adds an exercise log that has already been validated, quietly replacing any log of the same exercise
+     * on that date.
+     *
+     * @param workoutLogDate The date of the workout log to add to.
+     * @param exerciseLog    The exercise log to add.
+     * @throws Exceptions.ActivityDoesNotExist If there is no workout log on that date.
+     */
+    public void replaceExerciseLog(String workoutLogDate, ExerciseLog exerciseLog)
+            throws Exceptions.ActivityDoesNotExist {
+        WorkoutLog workoutLog = (WorkoutLog) retrieve(workoutLogDate);
+        workoutLog.addExerciseLog(exerciseLog);
+        int epochDay = toEpochDay(workoutLogDate);
+        String exerciseName = exerciseLog.getActivityName();
+        if (exerciseLogColumns != null) {
+            exerciseLogColumns.removeExerciseLog(epochDay, exerciseName);
+            exerciseLogColumns.addExerciseLog(epochDay, exerciseLog);
+        }
+        if (exerciseHistoryIndex != null) {
+            exerciseHistoryIndex.removeExerciseLog(epochDay, exerciseName);
+            exerciseHistoryIndex.addExerciseLog(epochDay, exerciseLog);
+        }
+        markModified(workoutLogDate);
+    }
+
+    /**
+     * Parses space-separated log values, such as the weights or reps of each set, without boxing them.
+     * Trailing spaces are ignored, but any other empty value is rejected.
+     *
+     * @param values The space-separated values.
+     * @return The parsed values.
+     * @throws NumberFormatException If a value is not an integer.
+     */
+    public static int[] parseLogValues(String values) throws NumberFormatException {
+        int end = values.length();
+        while (end > 0 && values.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (values.charAt(i) == ' ') {
+                count++;
+            }
+        }
+
+        int[] parsedValues = new int[count];
+        int valueStart = 0;
+        for (int i = 0; i < count; i++) {
+            int valueEnd = values.indexOf(' ', valueStart);
+            if (valueEnd < 0 || valueEnd > end) {
+                valueEnd = end;
+            }
+            parsedValues[i] = Integer.parseInt(values, valueStart, valueEnd, 10);
+            valueStart = valueEnd + 1;
+        }
+        return parsedValues;
+    }
+
     public String getWorkoutLogString(String date, LinkedHashSet<Exercise> workoutLinkedHashSet)
             throws Exceptions.ActivityDoesNotExist {
         WorkoutLog retrievedWorkout = (WorkoutLog) retrieve(date);
-        LinkedHashSet<ExerciseLog> exerciseLogs = retrievedWorkout.getExerciseLogs();
-        LinkedHashSet<Exercise> tempSet = new LinkedHashSet<>(workoutLinkedHashSet);
+        Set<ExerciseLog> exerciseLogs = retrievedWorkout.getExerciseLogs();
         StringBuilder result = new StringBuilder();
         result.append(String.format(
                 ManagerStrings.LOG_LIST, date));
@@ -72,23 +169,22 @@ public class WorkoutLogsManager extends ActivityManager {
         for (ExerciseLog currentExerciseLog : exerciseLogs) {
             String exerciseName = currentExerciseLog.getActivityName();
             int setCount = currentExerciseLog.getSets();
-            List<Integer> repsList = currentExerciseLog.getRepetitions();
-            List<Integer> weightsList = currentExerciseLog.getWeights();
-
 
             result.append(String.format("\t\t\t %d. %s\n", index, exerciseName));
             for (int setIndex = 0; setIndex < setCount; setIndex++) {
-                int weight = weightsList.get(setIndex);
-                int reps = repsList.get(setIndex);
+                int weight = currentExerciseLog.getWeight(setIndex);
+                int reps = currentExerciseLog.getRepetition(setIndex);
                 result.append(String.format(ManagerStrings.LOG_LIST_ITEM, setIndex + 1, weight, reps));
             }
-
-            tempSet.removeIf(p -> p.getActivityName().equals(exerciseName));
             index++;
         }
 
-        for (Exercise currentExercise : tempSet) {
+        // planned exercises that have not been logged yet follow the logged ones
+        for (Exercise currentExercise : workoutLinkedHashSet) {
             String exerciseName = currentExercise.getActivityName();
+            if (retrievedWorkout.hasExerciseName(exerciseName)) {
+                continue;
+            }
             result.append(String.format(ManagerStrings.ACTIVITY_LIST_ITEM, index, exerciseName));
             index++;
         }
@@ -96,20 +192,345 @@ public class WorkoutLogsManager extends ActivityManager {
         return result.toString();
     }
 
+    @Override
+    public Activity retrieve(String workoutLogDate) throws Exceptions.ActivityDoesNotExist {
+        materialize(workoutLogDate);
+        return super.retrieve(workoutLogDate);
+    }
+
+    @Override
+    public boolean doesNotHaveActivity(String workoutLogDate) {
+        return super.doesNotHaveActivity(workoutLogDate) && !hasPagedLog(workoutLogDate);
+    }
+
+    /**
+     * Gets a string representation of the list of workout logs, earliest date first.
+     *
+     * @return A string representation of the list of workout logs.
+     */
+    @Override
+    public String getListString() {
+        List<String> workoutLogDates = getWorkoutLogDates();
+        if (workoutLogDates.isEmpty()) {
+            return String.format(ManagerStrings.ACTIVITY_EMPTY_LIST, getActivityType(true));
+        }
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(ManagerStrings.ACTIVITY_LIST, getActivityType(true), System.lineSeparator()));
+        int index = 1;
+        for (String workoutLogDate : workoutLogDates) {
+            result.append(String.format(ManagerStrings.ACTIVITY_LIST_ITEM, index, workoutLogDate));
+            index++;
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void add(Activity activity) throws Exceptions.ActivityExistsException {
+        super.add(activity);
+        WorkoutLog workoutLog = (WorkoutLog) activity;
+        int epochDay = toEpochDay(workoutLog.getWorkoutDate());
+        if (exerciseLogColumns != null) {
+            exerciseLogColumns.addWorkoutLog(epochDay, workoutLog);
+        }
+        if (exerciseHistoryIndex != null) {
+            exerciseHistoryIndex.addWorkoutLog(epochDay, workoutLog);
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        workoutLogIndex.clear();
+        pagedLogs = null;
+        exerciseLogColumns = null;
+        exerciseHistoryIndex = null;
+        monthModificationCounts.clear();
+    }
+
+    /**
+     * Gets the modification count of the manager as it was when a log in the given month last changed,
+     * so that a saved copy of the month can be recognised as out of date.
+     *
+     * @param month The month of the workout logs.
+     * @return The modification count, or -1 if no log in the month has changed since the last reset.
+     */
+    public long getMonthModificationCount(YearMonth month) {
+        return monthModificationCounts.getOrDefault(month, -1L);
+    }
+
+    @Override
+    protected void markModified() {
+        if (!isMaterializing) {
+            super.markModified();
+        }
+    }
+
+    private void markModified(String workoutLogDate) {
+        if (isMaterializing) {
+            return;
+        }
+        markModified();
+        monthModificationCounts.put(YearMonth.from(LocalDate.parse(workoutLogDate)), getModificationCount());
+    }
+
+    @Override
+    protected boolean addToSet(Activity activity) {
+        int epochDay = toEpochDay(activity.getActivityName());
+        boolean isAdded = super.addToSet(activity);
+        if (isAdded) {
+            workoutLogIndex.put(epochDay, (WorkoutLog) activity);
+            markModified(activity.getActivityName());
+        }
+        return isAdded;
+    }
+
+    @Override
+    protected boolean removeFromSet(Activity activity) {
+        boolean isRemoved = super.removeFromSet(activity);
+        if (isRemoved) {
+            int epochDay = toEpochDay(activity.getActivityName());
+            workoutLogIndex.remove(epochDay);
+            if (exerciseLogColumns != null) {
+                exerciseLogColumns.removeWorkoutLog(epochDay);
+            }
+            if (exerciseHistoryIndex != null) {
+                exerciseHistoryIndex.removeWorkoutLog(epochDay, (WorkoutLog) activity);
+            }
+            markModified(activity.getActivityName());
+        }
+        return isRemoved;
+    }
+
+    /**
+     * Gets the columns of every logged set, for aggregates such as volume, best set and frequency.
+     * The columns are built from every workout log, paged or not, the first time they are asked for,
+     * and are kept up to date from then on. Readers may ask for them at the same time, so only one builds them.
+     *
+     * @return The exercise log columns.
+     */
+    public ExerciseLogColumns getExerciseLogColumns() {
+        ExerciseLogColumns columns = exerciseLogColumns;
+        if (columns != null) {
+            return columns;
+        }
+        synchronized (this) {
+            if (exerciseLogColumns == null) {
+                columns = new ExerciseLogColumns(nameTable);
+                for (String workoutLogDate : getWorkoutLogDates()) {
+                    try {
+                        columns.addWorkoutLog(toEpochDay(workoutLogDate), peekWorkoutLog(workoutLogDate));
+                    } catch (Exceptions.ActivityDoesNotExist e) {
+                        // should not get an exception as the dates come from the manager
+                    }
+                }
+                exerciseLogColumns = columns;
+            }
+            return exerciseLogColumns;
+        }
+    }
+
+    /**
+     * Gets every date an exercise was logged on. The exercise history index is built from every workout log,
+     * paged or not, the first time it is asked for, and is kept up to date from then on.
+     * Readers may ask for it at the same time, so only one builds it.
+     *
+     * @param exerciseName The name of the exercise, in any case.
+     * @return The dates the exercise was logged on, earliest first.
+     */
+    public List<String> getExerciseLogDates(String exerciseName) {
+        int[] epochDays = getExerciseHistoryIndex().getEpochDays(exerciseName);
+        List<String> exerciseLogDates = new ArrayList<>(epochDays.length);
+        for (int epochDay : epochDays) {
+            exerciseLogDates.add(LocalDate.ofEpochDay(epochDay).toString());
+        }
+        return exerciseLogDates;
+    }
+
+    private ExerciseHistoryIndex getExerciseHistoryIndex() {
+        ExerciseHistoryIndex index = exerciseHistoryIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (exerciseHistoryIndex == null) {
+                index = new ExerciseHistoryIndex(nameTable);
+                for (String workoutLogDate : getWorkoutLogDates()) {
+                    try {
+                        index.addWorkoutLog(toEpochDay(workoutLogDate), peekWorkoutLog(workoutLogDate));
+                    } catch (Exceptions.ActivityDoesNotExist e) {
+                        // should not get an exception as the dates come from the manager
+                    }
+                }
+                exerciseHistoryIndex = index;
+            }
+            return exerciseHistoryIndex;
+        }
+    }
+
+    WorkoutLogSource getPagedLogs() {
+        return pagedLogs;
+    }
+
+    /**
+     * Gets the modification count of every month with a workout log that changed since the last reset.
+     * The logs of any other month are either paged or were paged in without being changed.
+     */
+    Map<YearMonth, Long> getMonthModificationCounts() {
+        return Collections.unmodifiableMap(monthModificationCounts);
+    }
+
+    /**
+     * Gets the workout logs of a month that are held in memory, earliest first.
+     */
+    List<WorkoutLog> getHeldWorkoutLogs(YearMonth month) {
+        int start = workoutLogIndex.lowerBound(Math.toIntExact(month.atDay(1).toEpochDay()));
+        int end = workoutLogIndex.lowerBound(Math.toIntExact(month.atEndOfMonth().toEpochDay()) + 1);
+        List<WorkoutLog> workoutLogs = new ArrayList<>(end - start);
+        for (int position = start; position < end; position++) {
+            workoutLogs.add(workoutLogIndex.getWorkoutLog(position));
+        }
+        return workoutLogs;
+    }
+
+    /**
+     * Gets the date of every workout log, whether it is held in memory or still paged, earliest first.
+     *
+     * @return The workout log dates.
+     */
+    public List<String> getWorkoutLogDates() {
+        int[] epochDays = getEpochDaysBetween(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        List<String> workoutLogDates = new ArrayList<>(epochDays.length);
+        for (int epochDay : epochDays) {
+            workoutLogDates.add(LocalDate.ofEpochDay(epochDay).toString());
+        }
+        return workoutLogDates;
+    }
+
+    /**
+     * Gets the workout logs between two dates, inclusive, earliest first.
+     * Paged logs in the range are decoded for the caller but not kept on the heap.
+     *
+     * @param startDate The first date of the range.
+     * @param endDate   The last date of the range.
+     * @return The workout logs in the range.
+     */
+    public List<WorkoutLog> getWorkoutLogsBetween(LocalDate startDate, LocalDate endDate) {
+        int[] epochDays = getEpochDaysBetween(Math.toIntExact(startDate.toEpochDay()),
+                Math.toIntExact(endDate.toEpochDay()));
+        List<WorkoutLog> workoutLogs = new ArrayList<>(epochDays.length);
+        for (int epochDay : epochDays) {
+            WorkoutLog workoutLog = workoutLogIndex.get(epochDay);
+            workoutLogs.add(workoutLog != null ? workoutLog : pagedLogs.load(epochDay));
+        }
+        return workoutLogs;
+    }
+
+    /**
+     * Gets the workout log on a date without keeping a paged log on the heap afterwards.
+     * Used when every log has to be visited once, such as when writing a snapshot.
+     *
+     * @param workoutLogDate The date of the workout log.
+     * @return The workout log.
+     * @throws Exceptions.ActivityDoesNotExist If there is no workout log on that date.
+     */
+    public WorkoutLog peekWorkoutLog(String workoutLogDate) throws Exceptions.ActivityDoesNotExist {
+        if (super.doesNotHaveActivity(workoutLogDate)) {
+            WorkoutLog pagedLog = loadPagedLog(workoutLogDate);
+            if (pagedLog != null) {
+                return pagedLog;
+            }
+        }
+        return (WorkoutLog) super.retrieve(workoutLogDate);
+    }
+
+    /**
+     * Merges the days with a workout log in memory with the days with a paged workout log.
+     * Both are already sorted, so the merge needs neither sorting nor date parsing.
+     */
+    private int[] getEpochDaysBetween(int startEpochDay, int endEpochDay) {
+        int[] pagedDays = pagedLogs == null ? new int[0] : pagedLogs.getEpochDays(startEpochDay, endEpochDay);
+        int memoryStart = workoutLogIndex.lowerBound(startEpochDay);
+        int memoryEnd = endEpochDay == Integer.MAX_VALUE
+                ? workoutLogIndex.size()
+                : workoutLogIndex.lowerBound(endEpochDay + 1);
+
+        int[] epochDays = new int[pagedDays.length + memoryEnd - memoryStart];
+        int count = 0;
+        int pagedPosition = 0;
+        int memoryPosition = memoryStart;
+        while (pagedPosition < pagedDays.length || memoryPosition < memoryEnd) {
+            if (memoryPosition == memoryEnd || (pagedPosition < pagedDays.length
+                    && pagedDays[pagedPosition] < workoutLogIndex.getEpochDay(memoryPosition))) {
+                epochDays[count++] = pagedDays[pagedPosition++];
+                continue;
+            }
+            int memoryDay = workoutLogIndex.getEpochDay(memoryPosition++);
+            if (pagedPosition < pagedDays.length && pagedDays[pagedPosition] == memoryDay) {
+                pagedPosition++;
+            }
+            epochDays[count++] = memoryDay;
+        }
+        return Arrays.copyOf(epochDays, count);
+    }
+
+    private boolean hasPagedLog(String workoutLogDate) {
+        if (pagedLogs == null) {
+            return false;
+        }
+        try {
+            return pagedLogs.contains(toEpochDay(workoutLogDate));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private WorkoutLog loadPagedLog(String workoutLogDate) {
+        if (pagedLogs == null) {
+            return null;
+        }
+        try {
+            return pagedLogs.load(toEpochDay(workoutLogDate));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void materialize(String workoutLogDate) {
+        if (pagedLogs == null || !super.doesNotHaveActivity(workoutLogDate)) {
+            return;
+        }
+        WorkoutLog pagedLog = loadPagedLog(workoutLogDate);
+        if (pagedLog != null) {
+            // paging a saved log in is not a change to it
+            isMaterializing = true;
+            addToSet(pagedLog);
+            isMaterializing = false;
+        }
+    }
+
+    private static int toEpochDay(String workoutLogDate) throws DateTimeParseException {
+        return Math.toIntExact(LocalDate.parse(workoutLogDate).toEpochDay());
+    }
+
     @Override
     public String getActivityType(boolean plural) {
         return plural ? ManagerStrings.WORKOUT_LOGS : ManagerStrings.WORKOUT_LOG;
     }
 
     public JSONArray exportToJSON() {
-        ArrayList<Activity> workoutLogs = getActivityList();
         JSONArray workouts = new JSONArray();
-        for (Activity currentActivity : workoutLogs) {
-            WorkoutLog currentWorkout = (WorkoutLog) currentActivity;
+        for (String workoutLogDate : getWorkoutLogDates()) {
+            WorkoutLog currentWorkout;
+            try {
+                currentWorkout = peekWorkoutLog(workoutLogDate);
+            } catch (Exceptions.ActivityDoesNotExist e) {
+                // should not get an exception as the dates come from the manager
+                continue;
+            }
             String workoutDate = currentWorkout.getWorkoutDate();
             String workoutName = currentWorkout.getWorkoutName();
 
-            LinkedHashSet<ExerciseLog> exercises = currentWorkout.getExerciseLogs();
+            Set<ExerciseLog> exercises = currentWorkout.getExerciseLogs();
             JSONObject workoutJson = getWorkoutJson(exercises, workoutName, workoutDate);
 
             workouts.put(workoutJson);
@@ -117,7 +538,7 @@ public class WorkoutLogsManager extends ActivityManager {
         return workouts;
     }
 
-    private static JSONObject getWorkoutJson(LinkedHashSet<ExerciseLog> exercises,
+    private static JSONObject getWorkoutJson(Set<ExerciseLog> exercises,
                                              String workoutName, String workoutDate) {
         JSONArray workoutExercises = new JSONArray();
         for (ExerciseLog currentExercise : exercises) {
@@ -1,6 +1,8 @@
 package byteceps.processing;
 
+import byteceps.activities.Activity;
 import byteceps.activities.Exercise;
+import byteceps.activities.NameTable;
 import byteceps.activities.Workout;
 import byteceps.commands.Parser;
 import byteceps.errors.Exceptions;
@@ -9,6 +11,9 @@ import byteceps.ui.strings.ManagerStrings;
 import byteceps.validators.WorkoutValidator;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
  * Manages operations related to workout, such as adding, deleting,
@@ -16,9 +21,12 @@ import java.util.ArrayList;
  */
 public class WorkoutManager extends ActivityManager {
     private final ExerciseManager exerciseManager;
+    private final HashMap<Integer, LinkedHashSet<Workout>> workoutsByExercise;
 
     public WorkoutManager(ExerciseManager exerciseManager) {
+        super(exerciseManager.getNameTable());
         this.exerciseManager = exerciseManager;
+        this.workoutsByExercise = new HashMap<>();
     }
 
     //@@author V4vern
@@ -71,7 +79,7 @@ public class WorkoutManager extends ActivityManager {
     }
 
     private String executeInfoAction(Parser parser) throws Exceptions.ActivityDoesNotExist {
-        String workoutName = parser.getActionParameter().toLowerCase();
+        String workoutName = NameTable.fold(parser.getActionParameter());
         return getFullWorkoutString(workoutName);
     }
 
@@ -82,13 +90,13 @@ public class WorkoutManager extends ActivityManager {
     private String executeUnassignAction(Parser parser) throws Exceptions.ActivityDoesNotExist {
         String workoutName = unassignExerciseFromWorkout(parser);
         return String.format(
-                ManagerStrings.UNASSIGNED_EXERCISE, parser.getActionParameter().toLowerCase(), workoutName
+                ManagerStrings.UNASSIGNED_EXERCISE, NameTable.fold(parser.getActionParameter()), workoutName
         );
     }
 
     private String executeEditAction(Parser parser) throws Exceptions.ActivityDoesNotExist {
-        String oldWorkoutName = parser.getActionParameter().toLowerCase();
-        String newWorkoutName = parser.getAdditionalArguments(CommandStrings.ARG_TO).toLowerCase();
+        String oldWorkoutName = NameTable.fold(parser.getActionParameter());
+        String newWorkoutName = NameTable.fold(parser.getAdditionalArguments(CommandStrings.ARG_TO));
 
         if (oldWorkoutName.equals(newWorkoutName)) {
             return String.format(ManagerStrings.WORKOUT_NAME_SAME, oldWorkoutName);
@@ -104,18 +112,19 @@ public class WorkoutManager extends ActivityManager {
     private String executeAssignAction(Parser parser)
             throws Exceptions.ActivityExistsException, Exceptions.ActivityDoesNotExist {
         String workoutPlan = assignExerciseToWorkout(parser);
-        return String.format(ManagerStrings.ASSIGNED_EXERCISE, parser.getActionParameter().toLowerCase(), workoutPlan);
+        return String.format(ManagerStrings.ASSIGNED_EXERCISE, NameTable.fold(parser.getActionParameter()),
+                workoutPlan);
     }
 
     private String executeDeleteAction(Parser parser) throws Exceptions.ActivityDoesNotExist {
-        String workoutName = parser.getActionParameter().toLowerCase();
+        String workoutName = NameTable.fold(parser.getActionParameter());
         Workout workoutToDelete = (Workout) retrieve(workoutName);
         delete(workoutToDelete);
         return String.format(ManagerStrings.WORKOUT_DELETED, workoutToDelete.getActivityName());
     }
 
     private String executeCreateAction(Parser parser) throws Exceptions.ActivityExistsException {
-        String newWorkoutName = parser.getActionParameter().toLowerCase();
+        String newWorkoutName = NameTable.fold(parser.getActionParameter());
         Workout newWorkout = new Workout(newWorkoutName);
         add(newWorkout);
         return String.format(ManagerStrings.WORKOUT_ADDED, newWorkout.getActivityName());
@@ -124,8 +133,8 @@ public class WorkoutManager extends ActivityManager {
     //@@author V4vern
     private String assignExerciseToWorkout(Parser parser) throws
             Exceptions.ActivityExistsException, Exceptions.ActivityDoesNotExist {
-        String exerciseName = parser.getActionParameter().toLowerCase();
-        String workoutPlanName = parser.getAdditionalArguments(CommandStrings.ARG_TO).toLowerCase();
+        String exerciseName = NameTable.fold(parser.getActionParameter());
+        String workoutPlanName = NameTable.fold(parser.getAdditionalArguments(CommandStrings.ARG_TO));
 
         Exercise exercise = (Exercise) exerciseManager.retrieve(exerciseName);
         assert exercise != null : "Exercise does not exist";
@@ -136,7 +145,7 @@ public class WorkoutManager extends ActivityManager {
             throw new Exceptions.ActivityExistsException(ManagerStrings.EXERCISE_ALREADY_ASSIGNED);
         }
 
-        workoutPlan.addExercise(exercise);
+        addExerciseToWorkout(workoutPlan, exercise);
 
         return workoutPlanName;
     }
@@ -164,21 +173,125 @@ public class WorkoutManager extends ActivityManager {
 
     //@@author V4vern
     private String unassignExerciseFromWorkout(Parser parser) throws Exceptions.ActivityDoesNotExist {
-        String workoutPlanName = parser.getAdditionalArguments(CommandStrings.ARG_FROM).toLowerCase();
+        String workoutPlanName = NameTable.fold(parser.getAdditionalArguments(CommandStrings.ARG_FROM));
         String exerciseName = parser.getActionParameter();
         Workout workoutPlan = (Workout) retrieve(workoutPlanName);
         assert workoutPlan != null : "Workout plan does not exist";
         ArrayList<Exercise> workoutList = workoutPlan.getExerciseList();
 
         boolean exerciseIsInWorkout =
-                workoutList.removeIf(exercise -> exercise.getActivityName().equalsIgnoreCase(exerciseName));
+                workoutList.removeIf(exercise -> exercise.hasName(exerciseName));
         if (!exerciseIsInWorkout) {
             throw new Exceptions.ActivityDoesNotExist(ManagerStrings.EXERCISE_WORKOUT_DOES_NOT_EXIST);
         }
+        unindexExercise(nameTable.find(exerciseName), workoutPlan);
+        markModified();
 
         return workoutPlanName;
     }
 
+    /**
+     * Adds an exercise to a workout, keeping the exercise to workout index in step.
+     * All exercises should be added to managed workouts through this method.
+     *
+     * @param workout  The workout to add the exercise to.
+     * @param exercise The exercise to add.
+     */
+    public void addExerciseToWorkout(Workout workout, Exercise exercise) {
+        workout.addExercise(exercise);
+        indexExercise(nameTable.intern(exercise.getActivityName()), workout);
+        markModified();
+    }
+
+    /**
+     * Gets the workouts that contain an exercise.
+     *
+     * @param exerciseName The name of the exercise.
+     * @return The workouts containing the exercise, in the order the exercise was added to them.
+     */
+    public List<Workout> getWorkoutsContaining(String exerciseName) {
+        LinkedHashSet<Workout> workouts = workoutsByExercise.get(nameTable.find(exerciseName));
+        return workouts == null ? new ArrayList<>() : new ArrayList<>(workouts);
+    }
+
+    /**
+     * Removes an exercise from every workout that contains it.
+     * Only the workouts found through the exercise to workout index are touched.
+     *
+     * @param exerciseName The name of the exercise.
+     */
+    public void removeExerciseFromWorkouts(String exerciseName) {
+        LinkedHashSet<Workout> workouts = workoutsByExercise.remove(nameTable.find(exerciseName));
+        if (workouts == null) {
+            return;
+        }
+        for (Workout workout : workouts) {
+            workout.getExerciseList().removeIf(exercise -> exercise.hasName(exerciseName));
+        }
+        markModified();
+    }
+
+    /**
+     * Moves the index entry of a renamed exercise to its new name.
+     * Workouts keep their exercise objects, which are renamed in place, so only the index needs updating.
+     *
+     * @param oldExerciseName The old name of the exercise.
+     * @param newExerciseName The new name of the exercise.
+     */
+    public void renameExercise(String oldExerciseName, String newExerciseName) {
+        LinkedHashSet<Workout> workouts = workoutsByExercise.remove(nameTable.find(oldExerciseName));
+        if (workouts != null) {
+            workoutsByExercise.computeIfAbsent(nameTable.intern(newExerciseName), key -> new LinkedHashSet<>())
+                    .addAll(workouts);
+            markModified();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        workoutsByExercise.clear();
+    }
+
+    @Override
+    protected boolean addToSet(Activity activity) {
+        boolean isAdded = super.addToSet(activity);
+        if (isAdded) {
+            Workout workout = (Workout) activity;
+            for (Exercise exercise : workout.getExerciseList()) {
+                indexExercise(nameTable.intern(exercise.getActivityName()), workout);
+            }
+        }
+        return isAdded;
+    }
+
+    @Override
+    protected boolean removeFromSet(Activity activity) {
+        boolean isRemoved = super.removeFromSet(activity);
+        if (isRemoved) {
+            Workout workout = (Workout) activity;
+            for (Exercise exercise : workout.getExerciseList()) {
+                unindexExercise(nameTable.find(exercise.getActivityName()), workout);
+            }
+        }
+        return isRemoved;
+    }
+
+    private void indexExercise(int exerciseNameId, Workout workout) {
+        workoutsByExercise.computeIfAbsent(exerciseNameId, key -> new LinkedHashSet<>()).add(workout);
+    }
+
+    private void unindexExercise(int exerciseNameId, Workout workout) {
+        LinkedHashSet<Workout> workouts = workoutsByExercise.get(exerciseNameId);
+        if (workouts == null) {
+            return;
+        }
+        workouts.remove(workout);
+        if (workouts.isEmpty()) {
+            workoutsByExercise.remove(exerciseNameId);
+        }
+    }
+
     @Override
     public String getActivityType(boolean plural) {
         return plural ? ManagerStrings.WORKOUTS : ManagerStrings.WORKOUT;
@@ -0,0 +1,133 @@
+package byteceps.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * One client connection. The selector thread reads bytes into the session and splits them into lines,
+ * and worker threads execute the lines one at a time, in the order they arrived, and queue the replies
+ * for the selector thread to write. An idle session is only its buffers, with no thread of its own.
+ */
+class ClientSession {
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final ByteArrayOutputStream partialLine;
+    private final ArrayDeque<String> pendingLines;
+    private final ArrayDeque<ByteBuffer> pendingReplies;
+    private CommandServer.WorkspaceEntry workspaceEntry;
+    private boolean isExecuting;
+    private boolean isEnding;
+    private boolean isReleased;
+
+    ClientSession(SocketChannel channel) {
+        this.channel = channel;
+        this.partialLine = new ByteArrayOutputStream();
+        this.pendingLines = new ArrayDeque<>();
+        this.pendingReplies = new ArrayDeque<>();
+        this.workspaceEntry = null;
+        this.isExecuting = false;
+        this.isEnding = false;
+        this.isReleased = false;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Splits bytes read from the client into lines, keeping any incomplete last line for the next read.
+     *
+     * @param bytes The bytes read.
+     * @return true if a line is now waiting and no worker is executing this session, so one should be started.
+     * @throws IOException If a line is longer than {@link #MAX_LINE_BYTES}.
+     */
+    synchronized boolean receive(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            byte nextByte = bytes.get();
+            if (nextByte != '\n') {
+                if (partialLine.size() == MAX_LINE_BYTES) {
+                    throw new IOException();
+                }
+                partialLine.write(nextByte);
+                continue;
+            }
+            String line = partialLine.toString(StandardCharsets.UTF_8).strip();
+            partialLine.reset();
+            if (!line.isEmpty() && !isEnding) {
+                pendingLines.add(line);
+            }
+        }
+        return startExecuting();
+    }
+
+    /**
+     * Takes the next line to execute, or marks the session as idle if there is none.
+     *
+     * @return The next line, or null if no line is waiting.
+     */
+    synchronized String nextLine() {
+        String line = pendingLines.poll();
+        if (line == null) {
+            isExecuting = false;
+        }
+        return line;
+    }
+
+    synchronized boolean startExecuting() {
+        if (isExecuting || pendingLines.isEmpty()) {
+            return false;
+        }
+        isExecuting = true;
+        return true;
+    }
+
+    synchronized void addReply(String reply) {
+        pendingReplies.add(StandardCharsets.UTF_8.encode(reply));
+    }
+
+    synchronized ByteBuffer peekReply() {
+        return pendingReplies.peek();
+    }
+
+    synchronized void removeReply() {
+        pendingReplies.poll();
+    }
+
+    /**
+     * Stops the session from taking any more lines, so that it is closed once its replies are written.
+     */
+    synchronized void end() {
+        isEnding = true;
+        pendingLines.clear();
+    }
+
+    synchronized boolean isEnding() {
+        return isEnding;
+    }
+
+    synchronized CommandServer.WorkspaceEntry getWorkspaceEntry() {
+        return workspaceEntry;
+    }
+
+    synchronized void setWorkspaceEntry(CommandServer.WorkspaceEntry workspaceEntry) {
+        this.workspaceEntry = workspaceEntry;
+    }
+
+    /**
+     * Takes the workspace of a session that has ended, so that it is released exactly once.
+     *
+     * @return The workspace entry to release, or null if there is none or it was already taken.
+     */
+    synchronized CommandServer.WorkspaceEntry takeWorkspaceToRelease() {
+        if (isReleased || isExecuting) {
+            return null;
+        }
+        isReleased = true;
+        return workspaceEntry;
+    }
+}
@@ -0,0 +1,477 @@
+package byteceps.server;
+
+import byteceps.Workspace;
+import byteceps.commands.Parser;
+import byteceps.errors.Exceptions;
+import byteceps.ui.MessageBuffer;
+import byteceps.ui.UserInterface;
+import byteceps.ui.strings.CommandStrings;
+import byteceps.ui.strings.ServerStrings;
+import byteceps.ui.strings.UiStrings;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves many users from one process, each in a workspace of their own, over a line-based protocol on a
+ * local socket. A client opens its workspace with "workspace /open NAME", which keeps the workspace in
+ * NAME.json in the data directory, and then sends commands in the usual grammar, one per line. Each reply
+ * is the message the command line would print, ending with the separator line. "bye" or "exit" ends the
+ * session, and a workspace is saved and unloaded once its last session ends. What a workspace would print,
+ * such as the unsaved changes it recovered on loading or a failed background save, is held and sent to the
+ * next of its sessions to get a reply, ahead of the reply.
+ *
+ * <p>A single selector thread does all socket I/O, so an idle session holds no thread. Complete lines are
+ * executed on a small pool of worker threads, one line at a time per session, and sessions sharing a
+ * workspace take turns executing. All workspaces share one autosave thread.
+ */
+public class CommandServer implements AutoCloseable {
+    private static final int READ_BUFFER_BYTES = 8 * 1024;
+    private static final int CONNECTION_BACKLOG = 1024;
+    private static final int WORKER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final Path dataDirectory;
+    private final UserInterface ui;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService autosaveScheduler;
+    private final HashMap<String, WorkspaceEntry> workspaces;
+    private final ConcurrentLinkedQueue<ClientSession> sessionsToWrite;
+    private final CountDownLatch servingStopped;
+    private volatile boolean isClosed;
+    private boolean isServing;
+
+    /**
+     * Starts listening on the loopback interface. Connections are accepted once {@link #serve()} is called.
+     *
+     * @param port          The port to listen on, or 0 for any free port.
+     * @param dataDirectory The directory the workspaces are stored in, which is created if needed.
+     * @param ui            The user interface to report the server stopping and failed saves of unloaded
+     *                      workspaces to.
+     * @throws IOException If the port cannot be bound or the directory cannot be created.
+     */
+    public CommandServer(int port, Path dataDirectory, UserInterface ui) throws IOException {
+        this.dataDirectory = dataDirectory;
+        this.ui = ui;
+        Files.createDirectories(dataDirectory);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECTION_BACKLOG);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.workers = Executors.newFixedThreadPool(WORKER_COUNT, getDaemonThreadFactory(
+                ServerStrings.WORKER_THREAD_NAME));
+        this.autosaveScheduler = Executors.newSingleThreadScheduledExecutor(getDaemonThreadFactory(
+                ServerStrings.AUTOSAVE_THREAD_NAME));
+        this.workspaces = new HashMap<>();
+        this.sessionsToWrite = new ConcurrentLinkedQueue<>();
+        this.servingStopped = new CountDownLatch(1);
+        this.isClosed = false;
+        this.isServing = false;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Accepts connections and serves them until the server is closed.
+     *
+     * @throws IOException If the selector fails.
+     */
+    public void serve() throws IOException {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isServing = true;
+        }
+        ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        try {
+            while (!isClosed) {
+                selector.select();
+                enableWrites();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handleKey(key, readBuffer);
+                }
+                selector.selectedKeys().clear();
+            }
+        } finally {
+            servingStopped.countDown();
+        }
+    }
+
+    /**
+     * Stops serving, lets the commands already running finish, and saves and unloads every workspace.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+        }
+        selector.wakeup();
+        try {
+            if (isServing) {
+                servingStopped.await();
+            }
+            workers.shutdown();
+            workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<WorkspaceEntry> openWorkspaces;
+        synchronized (workspaces) {
+            openWorkspaces = new ArrayList<>(workspaces.values());
+            workspaces.clear();
+        }
+        for (WorkspaceEntry entry : openWorkspaces) {
+            closeWorkspace(entry);
+        }
+        autosaveScheduler.shutdown();
+
+        for (SelectionKey key : selector.keys()) {
+            closeQuietly(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // nothing more can be done while shutting down
+        }
+        ui.printMessage(ServerStrings.SERVER_STOPPED);
+    }
+
+    private void handleKey(SelectionKey key, ByteBuffer readBuffer) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        try {
+            if (key.isReadable()) {
+                read(key, readBuffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(key);
+            }
+        } catch (IOException e) {
+            endSession(key);
+        }
+    }
+
+    /**
+     * Accepts every connection that is waiting, so that a burst of clients does not overflow the backlog.
+     */
+    private void accept() {
+        while (true) {
+            SocketChannel channel = null;
+            try {
+                channel = serverChannel.accept();
+                if (channel == null) {
+                    return;
+                }
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new ClientSession(channel));
+            } catch (IOException e) {
+                // only this connection fails, and the server keeps listening
+                closeQuietly(channel);
+                return;
+            }
+        }
+    }
+
+    private void read(SelectionKey key, ByteBuffer readBuffer) throws IOException {
+        ClientSession session = (ClientSession) key.attachment();
+        readBuffer.clear();
+        int bytesRead = session.getChannel().read(readBuffer);
+        if (bytesRead < 0) {
+            endSession(key);
+            return;
+        }
+        readBuffer.flip();
+        boolean isLineWaiting;
+        try {
+            isLineWaiting = session.receive(readBuffer);
+        } catch (IOException e) {
+            session.addReply(formatReply(String.format(UiStrings.ERROR_STRING,
+                    String.format(ServerStrings.LINE_TOO_LONG, ClientSession.MAX_LINE_BYTES))));
+            session.end();
+            key.interestOps(SelectionKey.OP_WRITE);
+            releaseWorkspaceOfEndedSession(session);
+            return;
+        }
+        if (isLineWaiting) {
+            submit(() -> executeNextLine(session));
+        }
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        ClientSession session = (ClientSession) key.attachment();
+        ByteBuffer reply = session.peekReply();
+        while (reply != null) {
+            session.getChannel().write(reply);
+            if (reply.hasRemaining()) {
+                return;
+            }
+            session.removeReply();
+            reply = session.peekReply();
+        }
+        if (session.isEnding()) {
+            closeQuietly(key);
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Asks the selector to write the replies queued by workers, since only the selector thread changes
+     * which operations a key waits for.
+     */
+    private void enableWrites() {
+        ClientSession session = sessionsToWrite.poll();
+        while (session != null) {
+            SelectionKey key = session.getChannel().keyFor(selector);
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+            session = sessionsToWrite.poll();
+        }
+    }
+
+    private void endSession(SelectionKey key) {
+        ClientSession session = (ClientSession) key.attachment();
+        closeQuietly(key);
+        if (session != null) {
+            session.end();
+            releaseWorkspaceOfEndedSession(session);
+        }
+    }
+
+    /**
+     * Executes one waiting line of a session on a worker thread, then hands the session back to the pool
+     * so that a busy session does not keep a worker from the others.
+     */
+    private void executeNextLine(ClientSession session) {
+        String line = session.nextLine();
+        if (line == null) {
+            releaseWorkspaceOfEndedSession(session);
+            return;
+        }
+
+        String messageToUser;
+        try {
+            messageToUser = executeLine(session, line);
+        } catch (RuntimeException e) {
+            // the session must be handed back even if a command fails unexpectedly, or it would never be
+            // served again and its workspace would stay open until the server stops
+            messageToUser = String.format(UiStrings.ERROR_STRING, e.getMessage());
+        }
+        if (messageToUser == null) {
+            // the goodbye is queued before the session ends, so it is written before the connection closes
+            session.addReply(formatReply(UiStrings.MESSAGE_GOODBYE));
+            session.end();
+        } else {
+            session.addReply(formatReply(messageToUser));
+        }
+        sessionsToWrite.add(session);
+        selector.wakeup();
+        submit(() -> executeNextLine(session));
+    }
+
+    /**
+     * Executes a line of a session.
+     *
+     * @return The message to the client, or null if the line ends the session.
+     */
+    private String executeLine(ClientSession session, String line) {
+        Parser parser = new Parser();
+        try {
+            parser.parseInput(line);
+        } catch (Exceptions.InvalidInput e) {
+            return String.format(UiStrings.ERROR_STRING, e.getMessage());
+        }
+
+        String command = parser.getCommand();
+        WorkspaceEntry entry = session.getWorkspaceEntry();
+        if (command.equals(CommandStrings.COMMAND_WORKSPACE)) {
+            return entry == null
+                    ? openWorkspace(session, parser)
+                    : String.format(ServerStrings.WORKSPACE_ALREADY_OPEN, entry.name);
+        }
+        if (command.equals(CommandStrings.COMMAND_BYE) || command.equals(CommandStrings.COMMAND_EXIT)) {
+            return null;
+        }
+        if (entry == null) {
+            return ServerStrings.OPEN_WORKSPACE_FIRST;
+        }
+        String messageToUser = entry.workspace.execute(line);
+        return entry.messages.takeMessages() + messageToUser;
+    }
+
+    private String openWorkspace(ClientSession session, Parser parser) {
+        String name;
+        try {
+            if (!parser.getAction().equals(CommandStrings.ACTION_OPEN)) {
+                return ServerStrings.OPEN_WORKSPACE_FIRST;
+            }
+            name = parser.getActionParameter();
+        } catch (Exceptions.InvalidInput e) {
+            return ServerStrings.OPEN_WORKSPACE_FIRST;
+        }
+        if (!name.matches(ServerStrings.WORKSPACE_NAME_PATTERN)) {
+            return String.format(UiStrings.ERROR_STRING, ServerStrings.INVALID_WORKSPACE_NAME);
+        }
+
+        try {
+            WorkspaceEntry entry = acquireWorkspace(name);
+            session.setWorkspaceEntry(entry);
+            return entry.messages.takeMessages() + String.format(ServerStrings.WORKSPACE_OPENED, name)
+                    + System.lineSeparator() + entry.workspace.getHelpGuidanceString();
+        } catch (IOException e) {
+            return String.format(UiStrings.ERROR_STRING,
+                    String.format(ServerStrings.WORKSPACE_OPEN_ERROR, name, e.getMessage()));
+        }
+    }
+
+    /**
+     * Gets the workspace with the given name for a new session, loading it if no other session has it open.
+     */
+    private WorkspaceEntry acquireWorkspace(String name) throws IOException {
+        WorkspaceEntry entry;
+        synchronized (workspaces) {
+            entry = workspaces.computeIfAbsent(name, key -> new WorkspaceEntry(key,
+                    dataDirectory.resolve(String.format(ServerStrings.WORKSPACE_FILE_FORMAT, key)).toString(),
+                    autosaveScheduler));
+            entry.sessionCount++;
+        }
+        try {
+            // opening waits for a save of the same workspace that is still running, then loads what it saved
+            entry.workspace.open();
+        } catch (IOException e) {
+            releaseWorkspace(entry);
+            throw e;
+        }
+        return entry;
+    }
+
+    private void releaseWorkspaceOfEndedSession(ClientSession session) {
+        if (!session.isEnding()) {
+            return;
+        }
+        WorkspaceEntry entry = session.takeWorkspaceToRelease();
+        if (entry == null) {
+            return;
+        }
+        // closing the server saves every workspace that is still open, so a release it turns away is not lost
+        submit(() -> releaseWorkspace(entry));
+    }
+
+    private void submit(Runnable task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the server is closing and will not execute anything more
+        }
+    }
+
+    /**
+     * Saves and unloads a workspace once its last session has ended. The workspace stays registered while
+     * it is saved, so a session opening it in the meantime reloads it rather than reading a stale file.
+     */
+    private void releaseWorkspace(WorkspaceEntry entry) {
+        synchronized (workspaces) {
+            entry.sessionCount--;
+            if (entry.sessionCount > 0) {
+                return;
+            }
+        }
+        closeWorkspace(entry);
+        synchronized (workspaces) {
+            if (entry.sessionCount == 0) {
+                workspaces.remove(entry.name, entry);
+            }
+        }
+    }
+
+    private void closeWorkspace(WorkspaceEntry entry) {
+        try {
+            entry.workspace.close();
+        } catch (IOException e) {
+            ui.printMessage(String.format(UiStrings.ERROR_STRING, e.getMessage()));
+        }
+    }
+
+    private static String formatReply(String message) {
+        return String.format(UiStrings.BYTECEP_PROMPT_FORMAT, UiStrings.BYTECEP_PROMPT, message,
+                System.lineSeparator()) + UiStrings.SEPARATOR + System.lineSeparator();
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    private static void closeQuietly(Channel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the connection is being dropped either way
+        }
+    }
+
+    private static ThreadFactory getDaemonThreadFactory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A loaded workspace, the messages it printed that no session has been sent yet, and the number of
+     * sessions that have it open.
+     */
+    static class WorkspaceEntry {
+        private final String name;
+        private final MessageBuffer messages;
+        private final Workspace workspace;
+        private int sessionCount;
+
+        private WorkspaceEntry(String name, String filePath, ScheduledExecutorService autosaveScheduler) {
+            this.name = name;
+            this.messages = new MessageBuffer();
+            this.workspace = new Workspace(filePath, messages, autosaveScheduler);
+            this.sessionCount = 0;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package byteceps.storage;
+
+import byteceps.ui.strings.StorageStrings;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Upgrades JSON archives written with an older schema to the current one by streaming them.
+ * The archive is read one character at a time. A section no migration changes is copied through
+ * exactly as it is, and a section that does change is parsed and rewritten one element at a time,
+ * so migrating never needs more memory than the largest single workout log, whatever the size of
+ * the archive. Archives without a schema version are version 1.
+ */
+public class ArchiveMigrator {
+    public static final int CURRENT_SCHEMA_VERSION = 2;
+    static final int LEGACY_SCHEMA_VERSION = 1;
+    private static final List<SchemaMigration> MIGRATIONS = List.of(new WorkoutExerciseSetMigration());
+    private static final int NO_CHAR = -2;
+    private static final String VALUE_DELIMITERS = ",:]} \t\r\n";
+
+    private final Reader reader;
+    private int lastChar;
+    private int pushedBackChar;
+
+    public ArchiveMigrator(Reader reader) {
+        this.reader = reader;
+        this.lastChar = NO_CHAR;
+        this.pushedBackChar = NO_CHAR;
+    }
+
+    /**
+     * Reads the schema version from the start of an archive, consuming the beginning of the archive.
+     * The schema version is always the first key of an archive that has one.
+     *
+     * @return The schema version of the archive.
+     * @throws IOException If the archive cannot be read.
+     * @throws JSONException If the archive does not start like an archive.
+     */
+    public int readSchemaVersion() throws IOException {
+        expect('{');
+        if (nextClean() == '}') {
+            return LEGACY_SCHEMA_VERSION;
+        }
+        back();
+        if (!readKey().equals(StorageStrings.SCHEMA_VERSION)) {
+            return LEGACY_SCHEMA_VERSION;
+        }
+        return readSchemaVersionValue();
+    }
+
+    /**
+     * Copies the archive to the writer, upgrading it to the current schema on the way.
+     *
+     * @param writer The writer to copy the migrated archive to. It is flushed but not closed.
+     * @return The schema version the archive had.
+     * @throws IOException If the archive cannot be read or the migrated archive cannot be written.
+     * @throws JSONException If the archive is malformed or newer than the current schema.
+     */
+    public int migrate(Writer writer) throws IOException {
+        expect('{');
+        writer.write('{');
+        writeKey(writer, StorageStrings.SCHEMA_VERSION);
+        writer.write(Integer.toString(CURRENT_SCHEMA_VERSION));
+
+        int schemaVersion = LEGACY_SCHEMA_VERSION;
+        int nextChar = nextClean();
+        if (nextChar != '}') {
+            back();
+        }
+        while (nextChar != '}') {
+            String key = readKey();
+            if (key.equals(StorageStrings.SCHEMA_VERSION)) {
+                schemaVersion = readSchemaVersionValue();
+            } else {
+                writer.write(',');
+                writeKey(writer, key);
+                copySection(writer, key, getMigrations(schemaVersion, key));
+            }
+
+            nextChar = nextClean();
+            if (nextChar != ',' && nextChar != '}') {
+                throw new JSONException(StorageStrings.JSON_EXPECTED_SEPARATOR);
+            }
+        }
+        writer.write('}');
+        writer.flush();
+        return schemaVersion;
+    }
+
+    private int readSchemaVersionValue() throws IOException {
+        String value = captureValue(nextClean());
+        int schemaVersion;
+        try {
+            schemaVersion = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new JSONException(StorageStrings.SCHEMA_VERSION_INVALID);
+        }
+        if (schemaVersion < LEGACY_SCHEMA_VERSION || schemaVersion > CURRENT_SCHEMA_VERSION) {
+            throw new JSONException(StorageStrings.SCHEMA_VERSION_INVALID);
+        }
+        return schemaVersion;
+    }
+
+    private static List<SchemaMigration> getMigrations(int schemaVersion, String section) {
+        return MIGRATIONS.stream()
+                .filter(migration -> migration.getFromVersion() >= schemaVersion && migration.changes(section))
+                .toList();
+    }
+
+    private void copySection(Writer writer, String section, List<SchemaMigration> migrations) throws IOException {
+        int firstChar = nextClean();
+        if (migrations.isEmpty()) {
+            copyValue(firstChar, writer);
+            return;
+        }
+        if (firstChar != '[') {
+            writer.write(migrateElement(section, migrations, captureValue(firstChar)));
+            return;
+        }
+
+        writer.write('[');
+        int nextChar = nextClean();
+        if (nextChar != ']') {
+            back();
+        }
+        boolean isFirstElement = true;
+        while (nextChar != ']') {
+            if (!isFirstElement) {
+                writer.write(',');
+            }
+            writer.write(migrateElement(section, migrations, captureValue(nextClean())));
+            isFirstElement = false;
+            nextChar = nextClean();
+            if (nextChar != ',' && nextChar != ']') {
+                throw new JSONException(StorageStrings.JSON_EXPECTED_SEPARATOR);
+            }
+        }
+        writer.write(']');
+    }
+
+    private static String migrateElement(String section, List<SchemaMigration> migrations, String element) {
+        JSONObject jsonElement = new JSONObject(element);
+        for (SchemaMigration migration : migrations) {
+            migration.migrate(section, jsonElement);
+        }
+        return jsonElement.toString();
+    }
+
+    private String readKey() throws IOException {
+        int firstChar = nextClean();
+        if (firstChar != '"') {
+            throw new JSONException(String.format(StorageStrings.JSON_EXPECTED_CHAR, '"'));
+        }
+        String key = new JSONTokener(captureValue(firstChar)).nextValue().toString();
+        expect(':');
+        return key;
+    }
+
+    private static void writeKey(Writer writer, String key) throws IOException {
+        writer.write(JSONObject.quote(key));
+        writer.write(':');
+    }
+
+    private String captureValue(int firstChar) throws IOException {
+        StringBuilder value = new StringBuilder();
+        copyValue(firstChar, value);
+        return value.toString();
+    }
+
+    /**
+     * Copies one JSON value exactly as it appears in the archive, stopping right after its last character.
+     */
+    private void copyValue(int firstChar, Appendable out) throws IOException {
+        if (firstChar == '"') {
+            copyString(out);
+            return;
+        }
+        if (firstChar != '{' && firstChar != '[') {
+            out.append((char) firstChar);
+            int nextChar = next();
+            while (nextChar != -1 && VALUE_DELIMITERS.indexOf(nextChar) < 0) {
+                out.append((char) nextChar);
+                nextChar = next();
+            }
+            back(nextChar);
+            return;
+        }
+
+        out.append((char) firstChar);
+        int depth = 1;
+        while (depth > 0) {
+            int nextChar = next();
+            if (nextChar == -1) {
+                throw new JSONException(StorageStrings.JSON_UNEXPECTED_END);
+            }
+            if (nextChar == '"') {
+                copyString(out);
+                continue;
+            }
+            out.append((char) nextChar);
+            if (nextChar == '{' || nextChar == '[') {
+                depth++;
+            } else if (nextChar == '}' || nextChar == ']') {
+                depth--;
+            }
+        }
+    }
+
+    private void copyString(Appendable out) throws IOException {
+        out.append('"');
+        boolean isEscaped = false;
+        while (true) {
+            int nextChar = next();
+            if (nextChar == -1) {
+                throw new JSONException(StorageStrings.JSON_UNEXPECTED_END);
+            }
+            out.append((char) nextChar);
+            if (isEscaped) {
+                isEscaped = false;
+            } else if (nextChar == '\\') {
+                isEscaped = true;
+            } else if (nextChar == '"') {
+                return;
+            }
+        }
+    }
+
+    private void expect(char expectedChar) throws IOException {
+        if (nextClean() != expectedChar) {
+            throw new JSONException(String.format(StorageStrings.JSON_EXPECTED_CHAR, expectedChar));
+        }
+    }
+
+    private int nextClean() throws IOException {
+        int nextChar = next();
+        while (nextChar == ' ' || nextChar == '\t' || nextChar == '\r' || nextChar == '\n') {
+            nextChar = next();
+        }
+        return nextChar;
+    }
+
+    private int next() throws IOException {
+        if (pushedBackChar != NO_CHAR) {
+            lastChar = pushedBackChar;
+            pushedBackChar = NO_CHAR;
+        } else {
+            lastChar = reader.read();
+        }
+        return lastChar;
+    }
+
+    private void back() {
+        back(lastChar);
+    }
+
+    private void back(int nextChar) {
+        pushedBackChar = nextChar;
+    }
+
+    /**
+     * A change to the archive schema, applied to the elements of the sections it changes.
+     */
+    interface SchemaMigration {
+        /**
+         * Gets the schema version this migration upgrades from, to the next version.
+         */
+        int getFromVersion();
+
+        boolean changes(String section);
+
+        /**
+         * Upgrades one element of an array section, or the whole of an object section, in place.
+         */
+        void migrate(String section, JSONObject element);
+    }
+
+    /**
+     * Version 1 archives exported each workout's exercises twice, as "exerciseList" and "exerciseSet".
+     * Only "exerciseList" was ever read back, so version 2 drops the copy.
+     */
+    private static class WorkoutExerciseSetMigration implements SchemaMigration {
+        @Override
+        public int getFromVersion() {
+            return LEGACY_SCHEMA_VERSION;
+        }
+
+        @Override
+        public boolean changes(String section) {
+            return section.equals(StorageStrings.WORKOUT_MANAGER);
+        }
+
+        @Override
+        public void migrate(String section, JSONObject element) {
+            element.remove(StorageStrings.EXERCISE_SET);
+        }
+    }
+}
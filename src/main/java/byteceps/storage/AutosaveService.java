@@ -0,0 +1,201 @@
+package byteceps.storage;
+
+import byteceps.processing.ActivityManager;
+import byteceps.processing.DomainSnapshot;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.WeeklyProgramManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.processing.WorkoutManager;
+import byteceps.ui.strings.StorageStrings;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Saves a snapshot in the background once the user has stopped making changes for a while.
+ * Changes are debounced, so a burst of commands is saved once after the last of them. Each manager's
+ * modification count is remembered at every save, so a save is skipped when no manager has changed.
+ * A save only holds the read side of the manager lock while it takes a {@link DomainSnapshot}, so the snapshot
+ * never sees a half-applied command, and the snapshot is then written while commands keep running. Services
+ * for many workspaces may share one scheduler, so that a workspace nobody is using costs no thread.
+ */
+public class AutosaveService implements AutoCloseable {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final Storage storage;
+    private final ExerciseManager allExercises;
+    private final WorkoutManager allWorkouts;
+    private final WeeklyProgramManager weeklyProgram;
+    private final WorkoutLogsManager workoutLogsManager;
+    private final long delayMillis;
+    private final ReadWriteLock managerLock;
+    private final ScheduledExecutorService scheduler;
+    private final boolean isSchedulerOwned;
+    private final Object saveLock;
+    private volatile long[] savedModificationCounts;
+    private ScheduledFuture<?> pendingSave;
+    private volatile boolean isClosed;
+
+    /**
+     * Constructs an autosave service for managers that have just been loaded from or saved to storage.
+     *
+     * @param storage     The storage to save snapshots to.
+     * @param delayMillis How long to wait after the last change before saving.
+     */
+    public AutosaveService(Storage storage, ExerciseManager allExercises, WorkoutManager allWorkouts,
+                           WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager,
+                           long delayMillis) {
+        this(storage, allExercises, allWorkouts, weeklyProgram, workoutLogsManager, delayMillis,
+                new ReentrantReadWriteLock(), null);
+    }
+
+    /**
+     * Constructs an autosave service that saves while holding the read side of the given manager lock,
+     * on a scheduler that may be shared with other services. Closing the service does not shut a shared
+     * scheduler down.
+     *
+     * @param storage     The storage to save snapshots to.
+     * @param delayMillis How long to wait after the last change before saving.
+     * @param managerLock The lock that commands hold while they read or change the managers.
+     * @param scheduler   The scheduler to run saves on, or null to give the service its own.
+     */
+    public AutosaveService(Storage storage, ExerciseManager allExercises, WorkoutManager allWorkouts,
+                           WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager,
+                           long delayMillis, ReadWriteLock managerLock, ScheduledExecutorService scheduler) {
+        this.storage = storage;
+        this.allExercises = allExercises;
+        this.allWorkouts = allWorkouts;
+        this.weeklyProgram = weeklyProgram;
+        this.workoutLogsManager = workoutLogsManager;
+        this.delayMillis = delayMillis;
+        this.managerLock = managerLock;
+        this.isSchedulerOwned = scheduler == null;
+        this.scheduler = isSchedulerOwned
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, StorageStrings.AUTOSAVE_THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : scheduler;
+        this.saveLock = new Object();
+        this.savedModificationCounts = getModificationCounts();
+        this.pendingSave = null;
+        this.isClosed = false;
+    }
+
+    /**
+     * Schedules a save after the debounce delay, replacing any save that has not started yet.
+     * Once enough changes have been journaled the save is scheduled right away instead, so that
+     * a long stream of commands still gets saved.
+     */
+    public synchronized void changeRecorded() {
+        if (isClosed || scheduler.isShutdown()) {
+            return;
+        }
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+        }
+        long delay = storage.isCompactionDue() ? 0 : delayMillis;
+        pendingSave = scheduler.schedule(this::saveIfModified, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks if any manager has changed since the last save.
+     *
+     * @return true if a manager has unsaved changes, false otherwise.
+     */
+    public boolean hasUnsavedChanges() {
+        Lock readLock = managerLock.readLock();
+        readLock.lock();
+        try {
+            return isModifiedSinceSave();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the service, letting a save that has already started finish first.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (pendingSave != null) {
+                pendingSave.cancel(false);
+            }
+            isClosed = true;
+            if (isSchedulerOwned) {
+                scheduler.shutdown();
+            }
+        }
+        if (!isSchedulerOwned) {
+            // wait for a save that has already started, as any later one sees the service closed
+            synchronized (saveLock) {
+                assert isClosed : "Saves started from now on should do nothing";
+            }
+            return;
+        }
+        try {
+            scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Saves the managers unless nothing has changed. Commands only wait for the snapshot to be taken,
+     * not for it to be written, and saves of the same managers run one at a time, even on a shared scheduler.
+     * A failed save is reported, as nothing else would see an exception thrown on the scheduler's thread.
+     * The changes are still in the journal, so the next change or exit retries the save.
+     */
+    private void saveIfModified() {
+        synchronized (saveLock) {
+            try {
+                DomainSnapshot snapshot;
+                long[] modificationCounts;
+                Lock readLock = managerLock.readLock();
+                readLock.lock();
+                try {
+                    if (isClosed || !isModifiedSinceSave()) {
+                        return;
+                    }
+                    modificationCounts = getModificationCounts();
+                    snapshot = storage.takeSnapshot(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
+                } finally {
+                    readLock.unlock();
+                }
+
+                storage.compact(snapshot);
+                savedModificationCounts = modificationCounts;
+            } catch (IOException | RuntimeException e) {
+                storage.reportError(String.format(StorageStrings.AUTOSAVE_ERROR, e));
+            }
+        }
+    }
+
+    private boolean isModifiedSinceSave() {
+        long[] modificationCounts = getModificationCounts();
+        long[] savedCounts = savedModificationCounts;
+        for (int manager = 0; manager < modificationCounts.length; manager++) {
+            if (modificationCounts[manager] != savedCounts[manager]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long[] getModificationCounts() {
+        ActivityManager[] managers = {allExercises, allWorkouts, weeklyProgram, workoutLogsManager};
+        long[] modificationCounts = new long[managers.length];
+        for (int manager = 0; manager < managers.length; manager++) {
+            modificationCounts[manager] = managers[manager].getModificationCount();
+        }
+        return modificationCounts;
+    }
+}
@@ -0,0 +1,342 @@
+package byteceps.storage;
+
+import byteceps.activities.Activity;
+import byteceps.activities.Exercise;
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.Workout;
+import byteceps.activities.WorkoutLog;
+import byteceps.errors.Exceptions;
+import byteceps.processing.DomainSnapshot;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.WeeklyProgramManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.processing.WorkoutManager;
+import byteceps.ui.strings.DayStrings;
+import byteceps.ui.strings.StorageStrings;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a snapshot of the four persisted managers into a compact, versioned binary file and back.
+ * Every exercise and workout name is stored once in a string table and referred to by its index,
+ * and counts, sets, reps and weights are stored as unsigned varints.
+ *
+ * <p>Layout (version 3):
+ * <pre>
+ * magic, version
+ * journal:        sequence number of the last journal entry included, as long
+ * string table:   count, (length, UTF-8 bytes)*
+ * exercises:      count, nameId*
+ * workouts:       count, (nameId, exerciseCount, exerciseNameId*)*
+ * weekly program: 7 x (workoutNameId + 1, or 0 for a rest day), Monday first
+ * workout logs:   count, (workoutNameId, exerciseCount, (nameId, sets, (weight, reps)*)*)*
+ * log index:      count x (epochDay as int, log offset as int), earliest date first
+ * footer:         offset of the log index as int
+ * </pre>
+ * The log index and footer are fixed width, so a mapped snapshot can find the log on any date with a
+ * binary search instead of decoding every log before it. Version 2 snapshots have no journal sequence
+ * number and cover no journal entry. Version 1 snapshots, which also store each log's date as a zigzag varint
+ * in front of the log and have no index, are still read, but eagerly.
+ */
+public class BinarySnapshotCodec {
+    public static final int MAGIC = 0x42435053;
+    public static final int VERSION = 3;
+    static final int INDEX_ENTRY_BYTES = 2 * Integer.BYTES;
+    private static final int UNINDEXED_VERSION = 1;
+    private static final int UNJOURNALED_VERSION = 2;
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private final LinkedHashMap<String, Integer> stringIds = new LinkedHashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Writes the given snapshot.
+     * Paged workout logs are decoded one at a time, so writing does not pull the whole history onto the heap.
+     *
+     * @param out A fresh stream to write the snapshot to, as log offsets are taken from its size.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void write(DataOutputStream out, DomainSnapshot snapshot) throws IOException {
+        List<String> exercises = snapshot.getExerciseNames();
+        Map<String, List<String>> workouts = snapshot.getWorkouts();
+        List<String> program = snapshot.getProgram();
+        List<String> workoutLogDates = snapshot.getWorkoutLogDates();
+        buildStringTable(exercises, workouts, program, workoutLogDates, snapshot);
+
+        out.writeInt(MAGIC);
+        writeVarInt(out, VERSION);
+        out.writeLong(snapshot.getJournalSequence());
+        writeVarInt(out, strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        writeVarInt(out, exercises.size());
+        for (String exerciseName : exercises) {
+            writeVarInt(out, stringIds.get(exerciseName));
+        }
+
+        writeVarInt(out, workouts.size());
+        for (Map.Entry<String, List<String>> workout : workouts.entrySet()) {
+            writeVarInt(out, stringIds.get(workout.getKey()));
+            writeVarInt(out, workout.getValue().size());
+            for (String exerciseName : workout.getValue()) {
+                writeVarInt(out, stringIds.get(exerciseName));
+            }
+        }
+
+        for (String workoutName : program) {
+            writeVarInt(out, workoutName == null ? 0 : stringIds.get(workoutName) + 1);
+        }
+
+        int workoutLogCount = workoutLogDates.size();
+        int[] epochDays = new int[workoutLogCount];
+        int[] offsets = new int[workoutLogCount];
+        writeVarInt(out, workoutLogCount);
+        for (int i = 0; i < workoutLogCount; i++) {
+            String workoutLogDate = workoutLogDates.get(i);
+            epochDays[i] = (int) LocalDate.parse(workoutLogDate).toEpochDay();
+            offsets[i] = out.size();
+            writeWorkoutLog(out, getWorkoutLog(snapshot, workoutLogDate));
+        }
+
+        int indexOffset = out.size();
+        for (int i = 0; i < workoutLogCount; i++) {
+            out.writeInt(epochDays[i]);
+            out.writeInt(offsets[i]);
+        }
+        out.writeInt(indexOffset);
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot into the given managers.
+     * The exercises, workouts and weekly program are loaded straight away, while the workout logs of an
+     * indexed snapshot are left in the buffer and attached to the WorkoutLogsManager to be paged in on demand.
+     * The buffer must therefore stay valid for as long as the managers are in use, which a mapped file does.
+     *
+     * @param in The buffer holding the whole snapshot.
+     * @return The sequence number of the last journal entry the snapshot includes, or 0 if it has none.
+     * @throws Exceptions.InvalidInput If the snapshot is not a valid binary snapshot.
+     * @throws Exceptions.ActivityExistsException If the snapshot contains a duplicate activity.
+     * @throws Exceptions.ActivityDoesNotExist If the snapshot refers to an activity it does not contain.
+     */
+    public long read(ByteBuffer in, ExerciseManager allExercises, WorkoutManager allWorkouts,
+                     WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager)
+            throws Exceptions.InvalidInput, Exceptions.ActivityExistsException, Exceptions.ActivityDoesNotExist {
+        try {
+            int version = in.getInt() == MAGIC ? readVarInt(in) : -1;
+            if (version != VERSION && version != UNJOURNALED_VERSION && version != UNINDEXED_VERSION) {
+                throw new Exceptions.InvalidInput(StorageStrings.BINARY_UNKNOWN_FORMAT);
+            }
+            long journalSequence = version == VERSION ? in.getLong() : 0;
+
+            int stringCount = readVarInt(in);
+            strings.clear();
+            for (int i = 0; i < stringCount; i++) {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.get(bytes);
+                strings.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            int exerciseCount = readVarInt(in);
+            for (int i = 0; i < exerciseCount; i++) {
+                allExercises.add(new Exercise(readString(in)));
+            }
+
+            int workoutCount = readVarInt(in);
+            for (int i = 0; i < workoutCount; i++) {
+                Workout workout = new Workout(readString(in));
+                allWorkouts.add(workout);
+                int exercisesInWorkout = readVarInt(in);
+                for (int j = 0; j < exercisesInWorkout; j++) {
+                    allWorkouts.addExerciseToWorkout(workout, (Exercise) allExercises.retrieve(readString(in)));
+                }
+            }
+
+            for (String day : DayStrings.DAYS) {
+                int workoutId = readVarInt(in);
+                if (workoutId != 0) {
+                    Activity workout = allWorkouts.retrieve(getString(workoutId - 1));
+                    weeklyProgram.assignWorkoutToDay(workout, day);
+                }
+            }
+
+            int workoutLogCount = readVarInt(in);
+            if (version == UNINDEXED_VERSION) {
+                for (int i = 0; i < workoutLogCount; i++) {
+                    String workoutDate = toDateString(zigzagDecode(readVarInt(in)));
+                    workoutLogsManager.add(readWorkoutLog(in, strings, workoutDate));
+                }
+                return journalSequence;
+            }
+            workoutLogsManager.attachPagedLogs(openWorkoutLogs(in, workoutLogCount));
+            return journalSequence;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new Exceptions.InvalidInput(StorageStrings.BINARY_UNKNOWN_FORMAT);
+        }
+    }
+
+    private MappedWorkoutLogStore openWorkoutLogs(ByteBuffer in, int workoutLogCount)
+            throws Exceptions.InvalidInput {
+        int footerOffset = in.limit() - Integer.BYTES;
+        int indexOffset = in.getInt(footerOffset);
+        long indexLength = (long) workoutLogCount * INDEX_ENTRY_BYTES;
+        if (indexOffset < in.position() || indexOffset + indexLength != footerOffset) {
+            throw new Exceptions.InvalidInput(StorageStrings.BINARY_UNKNOWN_FORMAT);
+        }
+        return new MappedWorkoutLogStore(in.asReadOnlyBuffer(), List.copyOf(strings), indexOffset, workoutLogCount);
+    }
+
+    private void buildStringTable(List<String> exercises, Map<String, List<String>> workouts, List<String> program,
+                                  List<String> workoutLogDates, DomainSnapshot snapshot) {
+        stringIds.clear();
+        strings.clear();
+        for (String exerciseName : exercises) {
+            internString(exerciseName);
+        }
+        for (Map.Entry<String, List<String>> workout : workouts.entrySet()) {
+            internString(workout.getKey());
+            for (String exerciseName : workout.getValue()) {
+                internString(exerciseName);
+            }
+        }
+        for (String workoutName : program) {
+            if (workoutName != null) {
+                internString(workoutName);
+            }
+        }
+        for (String workoutLogDate : workoutLogDates) {
+            WorkoutLog workoutLog = getWorkoutLog(snapshot, workoutLogDate);
+            internString(workoutLog.getWorkoutName());
+            for (ExerciseLog exerciseLog : workoutLog.getExerciseLogs()) {
+                internString(exerciseLog.getActivityName());
+            }
+        }
+    }
+
+    private void internString(String string) {
+        if (!stringIds.containsKey(string)) {
+            stringIds.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static WorkoutLog getWorkoutLog(DomainSnapshot snapshot, String workoutLogDate) {
+        try {
+            return snapshot.getWorkoutLog(workoutLogDate);
+        } catch (Exceptions.ActivityDoesNotExist e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeWorkoutLog(DataOutputStream out, WorkoutLog workoutLog) throws IOException {
+        writeVarInt(out, stringIds.get(workoutLog.getWorkoutName()));
+        writeVarInt(out, workoutLog.getExerciseLogs().size());
+        for (ExerciseLog exerciseLog : workoutLog.getExerciseLogs()) {
+            int sets = exerciseLog.getSets();
+            assert exerciseLog.getWeightCount() == sets : "Each set should have a weight";
+            assert exerciseLog.getRepetitionCount() == sets : "Each set should have a rep count";
+
+            writeVarInt(out, stringIds.get(exerciseLog.getActivityName()));
+            writeVarInt(out, sets);
+            for (int set = 0; set < sets; set++) {
+                writeVarInt(out, exerciseLog.getWeight(set));
+                writeVarInt(out, exerciseLog.getRepetition(set));
+            }
+        }
+    }
+
+    /**
+     * Decodes the workout log starting at the buffer's position.
+     *
+     * @param in          The buffer to read from.
+     * @param strings     The string table of the snapshot.
+     * @param workoutDate The date of the workout log, which is stored separately from the log itself.
+     * @return The decoded workout log.
+     * @throws Exceptions.InvalidInput If the log is malformed.
+     */
+    static WorkoutLog readWorkoutLog(ByteBuffer in, List<String> strings, String workoutDate)
+            throws Exceptions.InvalidInput {
+        WorkoutLog workoutLog = new WorkoutLog(workoutDate, getString(strings, readVarInt(in)));
+        int exerciseLogCount = readVarInt(in);
+        for (int i = 0; i < exerciseLogCount; i++) {
+            String exerciseName = getString(strings, readVarInt(in));
+            int sets = readVarInt(in);
+            int[] weights = new int[sets];
+            int[] repetitions = new int[sets];
+            for (int set = 0; set < sets; set++) {
+                weights[set] = readVarInt(in);
+                repetitions[set] = readVarInt(in);
+            }
+            workoutLog.addExerciseLog(new ExerciseLog(exerciseName, weights, sets, repetitions));
+        }
+        return workoutLog;
+    }
+
+    static String toDateString(int epochDay) throws Exceptions.InvalidInput {
+        try {
+            return LocalDate.ofEpochDay(epochDay).toString();
+        } catch (DateTimeException e) {
+            throw new Exceptions.InvalidInput(StorageStrings.BINARY_UNKNOWN_FORMAT);
+        }
+    }
+
+    private String readString(ByteBuffer in) throws Exceptions.InvalidInput {
+        return getString(readVarInt(in));
+    }
+
+    private String getString(int stringId) throws Exceptions.InvalidInput {
+        return getString(strings, stringId);
+    }
+
+    private static String getString(List<String> strings, int stringId) throws Exceptions.InvalidInput {
+        if (stringId < 0 || stringId >= strings.size()) {
+            throw new Exceptions.InvalidInput(StorageStrings.BINARY_UNKNOWN_FORMAT);
+        }
+        return strings.get(stringId);
+    }
+
+    /**
+     * Writes a non-negative int using 7 bits per byte, with the high bit set on all but the last byte.
+     */
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        assert value >= 0 : "Varints must not be negative";
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer in) throws Exceptions.InvalidInput {
+        int value = 0;
+        for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+            int currentByte = Byte.toUnsignedInt(in.get());
+            value |= (currentByte & 0x7F) << (7 * i);
+            if ((currentByte & 0x80) == 0) {
+                if (value < 0) {
+                    throw new Exceptions.InvalidInput(StorageStrings.BINARY_UNKNOWN_FORMAT);
+                }
+                return value;
+            }
+        }
+        throw new Exceptions.InvalidInput(StorageStrings.BINARY_UNKNOWN_FORMAT);
+    }
+
+    private static int zigzagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,292 @@
+package byteceps.storage;
+
+import byteceps.activities.Exercise;
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.NameTable;
+import byteceps.activities.WorkoutLog;
+import byteceps.errors.Exceptions;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.ui.UserInterface;
+import byteceps.ui.strings.CommandStrings;
+import byteceps.ui.strings.DayStrings;
+import byteceps.ui.strings.ManagerStrings;
+import byteceps.ui.strings.StorageStrings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/**
+ * Imports workout history exported by other apps from a CSV file with one row per set:
+ * {@code date,workout,exercise,weight,reps}. A header row and blank workout names are allowed.
+ * Rows are streamed and only the sets of the day being read are held, so the file may be far larger than
+ * memory. Rows of a day are expected to be together, as exports are ordered by date, but the sets of a day
+ * that comes back later are added to what was imported for it.
+ * Exercises that do not exist yet are created. The weekly program is not consulted, as past workouts need
+ * not have followed it, and an exercise already logged on an imported day is replaced, as logging it again
+ * would. Each importer reads one file.
+ */
+public class CsvHistoryImporter {
+    private static final int COLUMN_COUNT = 5;
+    private static final int DATE_COLUMN = 0;
+    private static final int WORKOUT_COLUMN = 1;
+    private static final int EXERCISE_COLUMN = 2;
+    private static final int WEIGHT_COLUMN = 3;
+    private static final int REPS_COLUMN = 4;
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final ExerciseManager exerciseManager;
+    private final WorkoutLogsManager workoutLogsManager;
+    private final UserInterface ui;
+    private final String[] columns;
+    private final LinkedHashMap<String, DaySets> daySets;
+    private final HashSet<Integer> importedDays;
+    private final LocalDate today;
+    private String dayDate;
+    private String dayWorkoutName;
+    private String lastExerciseName;
+    private DaySets lastExerciseSets;
+    private int setCount;
+    private int createdExerciseCount;
+    private int skippedLineCount;
+
+    /**
+     * Constructs an importer that adds to the given managers.
+     *
+     * @param exerciseManager    The exercises, to which missing exercises are added.
+     * @param workoutLogsManager The workout logs to import into.
+     * @param ui                 The user interface to report skipped lines and the result to.
+     */
+    public CsvHistoryImporter(ExerciseManager exerciseManager, WorkoutLogsManager workoutLogsManager,
+                              UserInterface ui) {
+        this.exerciseManager = exerciseManager;
+        this.workoutLogsManager = workoutLogsManager;
+        this.ui = ui;
+        this.columns = new String[COLUMN_COUNT];
+        this.daySets = new LinkedHashMap<>();
+        this.importedDays = new HashSet<>();
+        this.today = LocalDate.now();
+    }
+
+    /**
+     * Imports every row of the file, skipping and reporting rows that are not valid, and reports how many
+     * sets were imported and how fast.
+     *
+     * @param csv The CSV file.
+     * @return The number of sets imported.
+     * @throws IOException If the file cannot be read.
+     */
+    public int importFrom(BufferedReader csv) throws IOException {
+        long startNanos = System.nanoTime();
+        int lineNumber = 0;
+        String line;
+        while ((line = csv.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                splitColumns(line);
+                if (lineNumber == 1 && columns[DATE_COLUMN].equalsIgnoreCase(StorageStrings.CSV_DATE_COLUMN)) {
+                    continue;
+                }
+                importRow();
+            } catch (Exceptions.InvalidInput e) {
+                skippedLineCount++;
+                ui.printMessage(String.format(StorageStrings.CSV_LINE_SKIPPED, lineNumber, e.getMessage()));
+            }
+        }
+        importDay();
+
+        double seconds = (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+        ui.printMessage(String.format(StorageStrings.CSV_IMPORTED, setCount, importedDays.size(), seconds,
+                setCount / seconds, createdExerciseCount, skippedLineCount));
+        return setCount;
+    }
+
+    private void importRow() throws Exceptions.InvalidInput {
+        String date = columns[DATE_COLUMN];
+        if (!date.equals(dayDate)) {
+            validateDate(date);
+            importDay();
+            dayDate = date;
+            dayWorkoutName = columns[WORKOUT_COLUMN].isEmpty()
+                    ? StorageStrings.CSV_DEFAULT_WORKOUT
+                    : columns[WORKOUT_COLUMN];
+        }
+
+        int weight;
+        int repetitions;
+        try {
+            weight = Integer.parseInt(columns[WEIGHT_COLUMN]);
+            repetitions = Integer.parseInt(columns[REPS_COLUMN]);
+        } catch (NumberFormatException e) {
+            throw new Exceptions.InvalidInput(ManagerStrings.INVALID_REPS_SETS);
+        }
+        if (weight < 0 || repetitions < 0) {
+            throw new Exceptions.InvalidInput(ManagerStrings.INVALID_REPS_SETS);
+        }
+
+        // the sets of an exercise usually follow each other, so its buffer is looked up once per run of sets
+        String exerciseName = columns[EXERCISE_COLUMN];
+        if (!exerciseName.equals(lastExerciseName)) {
+            Exercise exercise = getOrCreateExercise(exerciseName);
+            lastExerciseSets = daySets.computeIfAbsent(exercise.getFoldedName(),
+                    foldedName -> new DaySets(exercise.getActivityName()));
+            lastExerciseName = exerciseName;
+        }
+        lastExerciseSets.add(weight, repetitions);
+        setCount++;
+    }
+
+    /**
+     * Adds the sets held for the day being read to the workout logs, and starts a new day.
+     */
+    private void importDay() {
+        if (daySets.isEmpty()) {
+            return;
+        }
+        workoutLogsManager.addWorkoutLog(dayDate, dayWorkoutName);
+        boolean isDayRevisited = !importedDays.add(Math.toIntExact(LocalDate.parse(dayDate).toEpochDay()));
+        try {
+            WorkoutLog workoutLog = (WorkoutLog) workoutLogsManager.retrieve(dayDate);
+            for (DaySets exerciseSets : daySets.values()) {
+                ExerciseLog earlierLog = isDayRevisited ? findExerciseLog(workoutLog, exerciseSets) : null;
+                workoutLogsManager.replaceExerciseLog(dayDate, exerciseSets.toExerciseLog(earlierLog));
+            }
+        } catch (Exceptions.ActivityDoesNotExist ignored) {
+            // should not get an exception as the workout log was just added
+        }
+        daySets.clear();
+        lastExerciseName = null;
+        lastExerciseSets = null;
+    }
+
+    private Exercise getOrCreateExercise(String exerciseName) throws Exceptions.InvalidInput {
+        if (exerciseName.isEmpty()) {
+            throw new Exceptions.InvalidInput(ManagerStrings.EMPTY_EXCERCISE_NAME);
+        }
+        try {
+            return (Exercise) exerciseManager.retrieve(exerciseName);
+        } catch (Exceptions.ActivityDoesNotExist e) {
+            if (exerciseName.matches(ManagerStrings.SPECIAL_CHARS_PATTERN)) {
+                throw new Exceptions.InvalidInput(
+                        String.format(ManagerStrings.SPEC_CHAR_EXCEPTION, CommandStrings.COMMAND_EXERCISE));
+            }
+        }
+
+        Exercise exercise = new Exercise(exerciseName);
+        try {
+            exerciseManager.add(exercise);
+        } catch (Exceptions.ActivityExistsException ignored) {
+            // should not get an exception as the exercise was just looked up
+        }
+        createdExerciseCount++;
+        return exercise;
+    }
+
+    private void validateDate(String date) throws Exceptions.InvalidInput {
+        LocalDate parsedDate;
+        try {
+            parsedDate = LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new Exceptions.InvalidInput(ManagerStrings.INVALID_DATE_ENTERED);
+        }
+        if (parsedDate.isAfter(today)) {
+            throw new Exceptions.InvalidInput(DayStrings.FUTURE_DATE);
+        }
+    }
+
+    /**
+     * Splits a row into its trimmed columns, dropping the quotes around a quoted column.
+     * Names may not contain commas, so a quoted column never holds a delimiter.
+     */
+    private void splitColumns(String line) throws Exceptions.InvalidInput {
+        int columnCount = 0;
+        int columnStart = 0;
+        while (columnStart <= line.length()) {
+            int columnEnd = line.indexOf(DELIMITER, columnStart);
+            if (columnEnd < 0) {
+                columnEnd = line.length();
+            }
+            if (columnCount == COLUMN_COUNT) {
+                throw new Exceptions.InvalidInput(String.format(StorageStrings.CSV_COLUMN_COUNT, COLUMN_COUNT));
+            }
+            columns[columnCount++] = unquote(line.substring(columnStart, columnEnd).trim());
+            columnStart = columnEnd + 1;
+        }
+        if (columnCount != COLUMN_COUNT) {
+            throw new Exceptions.InvalidInput(String.format(StorageStrings.CSV_COLUMN_COUNT, COLUMN_COUNT));
+        }
+    }
+
+    private static String unquote(String column) {
+        if (column.length() >= 2 && column.charAt(0) == QUOTE && column.charAt(column.length() - 1) == QUOTE) {
+            return column.substring(1, column.length() - 1).trim();
+        }
+        return column;
+    }
+
+    private static ExerciseLog findExerciseLog(WorkoutLog workoutLog, DaySets exerciseSets) {
+        for (ExerciseLog exerciseLog : workoutLog.getExerciseLogs()) {
+            if (exerciseLog.getFoldedName().equals(exerciseSets.foldedName)) {
+                return exerciseLog;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The sets of one exercise on the day being read, in primitive arrays that grow as sets are added.
+     */
+    private static class DaySets {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final String exerciseName;
+        private final String foldedName;
+        private int[] weights;
+        private int[] repetitions;
+        private int count;
+
+        private DaySets(String exerciseName) {
+            this.exerciseName = exerciseName;
+            this.foldedName = NameTable.fold(exerciseName);
+            this.weights = new int[INITIAL_CAPACITY];
+            this.repetitions = new int[INITIAL_CAPACITY];
+            this.count = 0;
+        }
+
+        private void add(int weight, int repetition) {
+            if (count == weights.length) {
+                weights = Arrays.copyOf(weights, count * 2);
+                repetitions = Arrays.copyOf(repetitions, count * 2);
+            }
+            weights[count] = weight;
+            repetitions[count] = repetition;
+            count++;
+        }
+
+        /**
+         * Makes an exercise log of the sets, after the sets of an earlier log of the exercise if there is one.
+         */
+        private ExerciseLog toExerciseLog(ExerciseLog earlierLog) {
+            int earlierCount = earlierLog == null ? 0 : earlierLog.getSets();
+            int[] logWeights = new int[earlierCount + count];
+            int[] logRepetitions = new int[earlierCount + count];
+            for (int set = 0; set < earlierCount; set++) {
+                logWeights[set] = earlierLog.getWeight(set);
+                logRepetitions[set] = earlierLog.getRepetition(set);
+            }
+            System.arraycopy(weights, 0, logWeights, earlierCount, count);
+            System.arraycopy(repetitions, 0, logRepetitions, earlierCount, count);
+            return new ExerciseLog(exerciseName, logWeights, earlierCount + count, logRepetitions);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package byteceps.storage;
+
+import byteceps.ui.strings.StorageStrings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only write-ahead journal of the commands applied since the last snapshot.
+ * Each entry is a single command line, synced to disk before the next command runs, behind a sequence
+ * number that keeps growing across snapshots. A snapshot records the sequence number of the last entry it
+ * includes, so entries it already covers are recognised even if the journal could not be trimmed after it
+ * was written. Entries written before journals were numbered have no sequence number.
+ * A snapshot may be written while commands keep being journaled, so the journal is safe to use from
+ * several threads.
+ */
+public class Journal {
+    private static final char SEQUENCE_SEPARATOR = '\t';
+    private static final long UNNUMBERED = -1;
+    private final Path journalPath;
+    private int entryCount;
+    private long lastSequence;
+
+    /**
+     * Constructs a journal that sits next to the given snapshot file.
+     *
+     * @param snapshotPath The path of the snapshot the journal belongs to.
+     */
+    public Journal(Path snapshotPath) {
+        this.journalPath = Path.of(snapshotPath + StorageStrings.JOURNAL_SUFFIX);
+        this.entryCount = 0;
+        this.lastSequence = 0;
+    }
+
+    /**
+     * Appends an entry to the end of the journal.
+     *
+     * @param entry The command line to append.
+     * @throws IOException If the journal cannot be written.
+     */
+    public synchronized void append(String entry) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(journalPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                        StandardOpenOption.WRITE, StandardOpenOption.DSYNC),
+                StandardCharsets.UTF_8))) {
+            writer.write(Long.toString(lastSequence + 1));
+            writer.write(SEQUENCE_SEPARATOR);
+            writer.write(entry);
+            writer.newLine();
+        }
+        lastSequence++;
+        entryCount++;
+    }
+
+    /**
+     * Reads the entries a snapshot does not already cover, in the order they were appended, and continues
+     * numbering entries after both the snapshot and the journal.
+     *
+     * @param snapshotSequence The sequence number of the last entry the loaded snapshot includes.
+     * @return The command lines of the entries after the snapshot, or an empty list if there is no journal.
+     * @throws IOException If the journal cannot be read.
+     */
+    public synchronized List<String> readEntriesAfter(long snapshotSequence) throws IOException {
+        lastSequence = Math.max(lastSequence, snapshotSequence);
+        List<String> lines = readLines();
+        List<String> entries = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            long sequence = getSequence(line);
+            lastSequence = Math.max(lastSequence, sequence);
+            if (sequence == UNNUMBERED || sequence > snapshotSequence) {
+                entries.add(getCommand(line));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Discards the journal once its entries have been folded into a snapshot.
+     * Entries keep being numbered from where the discarded ones stopped.
+     *
+     * @throws IOException If the journal cannot be deleted.
+     */
+    public synchronized void clear() throws IOException {
+        Files.deleteIfExists(journalPath);
+        entryCount = 0;
+    }
+
+    /**
+     * Discards the entries a snapshot covers, keeping the entries appended since the snapshot was taken.
+     * The kept entries replace the journal in one step, so a crash part way through leaves the whole
+     * journal in place, which the snapshot's sequence number makes safe to replay.
+     *
+     * @param snapshotSequence The sequence number of the last entry the snapshot includes.
+     * @throws IOException If the journal cannot be rewritten.
+     */
+    public synchronized void discardThrough(long snapshotSequence) throws IOException {
+        if (snapshotSequence >= lastSequence) {
+            clear();
+            return;
+        }
+        List<String> keptLines = new ArrayList<>();
+        for (String line : readLines()) {
+            if (getSequence(line) > snapshotSequence) {
+                keptLines.add(line);
+            }
+        }
+        Path tempPath = Path.of(journalPath + StorageStrings.TEMP_SUFFIX);
+        Files.write(tempPath, keptLines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+        Storage.moveAtomically(tempPath, journalPath);
+        entryCount = keptLines.size();
+    }
+
+    /**
+     * Moves the journal out of the way, keeping it for manual recovery.
+     *
+     * @param suffix The suffix appended to the archived journal's name.
+     * @throws IOException If the journal cannot be moved.
+     */
+    public synchronized void archive(String suffix) throws IOException {
+        if (Files.exists(journalPath)) {
+            Files.move(journalPath, Path.of(journalPath + suffix));
+        }
+        entryCount = 0;
+    }
+
+    public synchronized int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Gets the sequence number of the last entry appended, which a snapshot taken now would include.
+     *
+     * @return The last sequence number, or the one the loaded snapshot ended at if nothing was appended since.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    private List<String> readLines() throws IOException {
+        if (!Files.exists(journalPath)) {
+            entryCount = 0;
+            return new ArrayList<>();
+        }
+        List<String> lines = Files.readAllLines(journalPath, StandardCharsets.UTF_8);
+        lines.removeIf(String::isBlank);
+        entryCount = lines.size();
+        return lines;
+    }
+
+    /**
+     * Gets the sequence number of an entry, or {@link #UNNUMBERED} for an entry written before entries were
+     * numbered or one torn by a crash. A command line never starts with a digit.
+     */
+    private static long getSequence(String line) {
+        int separator = line.indexOf(SEQUENCE_SEPARATOR);
+        if (separator <= 0) {
+            return UNNUMBERED;
+        }
+        try {
+            return Long.parseLong(line.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return UNNUMBERED;
+        }
+    }
+
+    private static String getCommand(String line) {
+        return getSequence(line) == UNNUMBERED ? line : line.substring(line.indexOf(SEQUENCE_SEPARATOR) + 1);
+    }
+}
@@ -0,0 +1,176 @@
+package byteceps.storage;
+
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.WorkoutLog;
+import byteceps.errors.Exceptions;
+import byteceps.processing.DomainSnapshot;
+import byteceps.ui.strings.DayStrings;
+import byteceps.ui.strings.StorageStrings;
+
+import org.json.JSONWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a JSON archive token by token instead of building the whole document as one string first.
+ * The output is the same single-line archive that {@link JsonStreamLoader} reads. The sections can
+ * also be written on their own, one archive each, as the segments of a segmented snapshot.
+ * Every archive starts with the schema version it was written with. A whole archive then records the
+ * sequence number of the last journal entry it includes.
+ */
+public class JsonSnapshotWriter {
+    private final Writer writer;
+    private final JSONWriter jsonWriter;
+
+    public JsonSnapshotWriter(Writer writer) {
+        this.writer = writer;
+        this.jsonWriter = new JSONWriter(writer);
+    }
+
+    /**
+     * Writes an archive of the given snapshot and flushes the underlying writer.
+     *
+     * @throws IOException If the archive cannot be written.
+     */
+    public void write(DomainSnapshot snapshot) throws IOException {
+        beginArchive();
+        jsonWriter.key(StorageStrings.JOURNAL_SEQUENCE).value(snapshot.getJournalSequence());
+        writeExerciseSection(snapshot);
+        writeWorkoutSection(snapshot);
+        writeWeeklyProgramSection(snapshot);
+        writeWorkoutLogSection(snapshot, snapshot.getWorkoutLogDates());
+        jsonWriter.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Writes an archive holding only the exercises, for a segmented snapshot.
+     *
+     * @throws IOException If the archive cannot be written.
+     */
+    public void writeExercises(DomainSnapshot snapshot) throws IOException {
+        beginArchive();
+        writeExerciseSection(snapshot);
+        jsonWriter.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Writes an archive holding only the workouts, for a segmented snapshot.
+     *
+     * @throws IOException If the archive cannot be written.
+     */
+    public void writeWorkouts(DomainSnapshot snapshot) throws IOException {
+        beginArchive();
+        writeWorkoutSection(snapshot);
+        jsonWriter.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Writes an archive holding only the weekly program, for a segmented snapshot.
+     *
+     * @throws IOException If the archive cannot be written.
+     */
+    public void writeWeeklyProgram(DomainSnapshot snapshot) throws IOException {
+        beginArchive();
+        writeWeeklyProgramSection(snapshot);
+        jsonWriter.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Writes an archive holding only the workout logs on the given dates, for a segmented snapshot.
+     *
+     * @param workoutLogDates The dates of the logs to write, in the order to write them.
+     * @throws IOException If the archive cannot be written.
+     */
+    public void writeWorkoutLogs(DomainSnapshot snapshot, List<String> workoutLogDates) throws IOException {
+        beginArchive();
+        writeWorkoutLogSection(snapshot, workoutLogDates);
+        jsonWriter.endObject();
+        writer.flush();
+    }
+
+    private void beginArchive() {
+        jsonWriter.object().key(StorageStrings.SCHEMA_VERSION).value(ArchiveMigrator.CURRENT_SCHEMA_VERSION);
+    }
+
+    private void writeExerciseSection(DomainSnapshot snapshot) {
+        jsonWriter.key(StorageStrings.EXERCISE_MANAGER).array();
+        for (String exerciseName : snapshot.getExerciseNames()) {
+            jsonWriter.object().key(StorageStrings.ACTIVITY_NAME).value(exerciseName).endObject();
+        }
+        jsonWriter.endArray();
+    }
+
+    private void writeWorkoutSection(DomainSnapshot snapshot) {
+        jsonWriter.key(StorageStrings.WORKOUT_MANAGER).array();
+        for (Map.Entry<String, List<String>> workout : snapshot.getWorkouts().entrySet()) {
+            writeWorkout(workout.getKey(), workout.getValue());
+        }
+        jsonWriter.endArray();
+    }
+
+    private void writeWeeklyProgramSection(DomainSnapshot snapshot) {
+        jsonWriter.key(StorageStrings.WEEKLY_PROGRAM).object();
+        List<String> program = snapshot.getProgram();
+        for (int i = 0; i < DayStrings.DAYS.length; i++) {
+            String assignedWorkout = program.get(i);
+            jsonWriter.key(DayStrings.DAYS[i]).value(assignedWorkout == null ? "" : assignedWorkout);
+        }
+        jsonWriter.endObject();
+    }
+
+    private void writeWorkoutLogSection(DomainSnapshot snapshot, List<String> workoutLogDates) {
+        jsonWriter.key(StorageStrings.WORKOUT_LOG_MANAGER).array();
+        for (String workoutLogDate : workoutLogDates) {
+            try {
+                writeWorkoutLog(snapshot.getWorkoutLog(workoutLogDate));
+            } catch (Exceptions.ActivityDoesNotExist e) {
+                // should not get an exception as the dates come from the snapshot
+            }
+        }
+        jsonWriter.endArray();
+    }
+
+    private void writeWorkout(String workoutName, List<String> exerciseNames) {
+        jsonWriter.object();
+        jsonWriter.key(StorageStrings.ACTIVITY_NAME).value(workoutName);
+        jsonWriter.key(StorageStrings.EXERCISE_LIST).array();
+        for (String exerciseName : exerciseNames) {
+            jsonWriter.object().key(StorageStrings.ACTIVITY_NAME).value(exerciseName).endObject();
+        }
+        jsonWriter.endArray();
+        jsonWriter.endObject();
+    }
+
+    private void writeWorkoutLog(WorkoutLog workoutLog) {
+        jsonWriter.object();
+        jsonWriter.key(StorageStrings.WORKOUT_DATE).value(workoutLog.getWorkoutDate());
+        jsonWriter.key(StorageStrings.WORKOUT_NAME).value(workoutLog.getWorkoutName());
+        jsonWriter.key(StorageStrings.EXERCISES).array();
+        for (ExerciseLog exerciseLog : workoutLog.getExerciseLogs()) {
+            int sets = exerciseLog.getSets();
+            jsonWriter.object();
+            jsonWriter.key(StorageStrings.EXERCISE_NAME).value(exerciseLog.getActivityName());
+            jsonWriter.key(StorageStrings.WEIGHT).array();
+            for (int set = 0; set < sets; set++) {
+                jsonWriter.value(exerciseLog.getWeight(set));
+            }
+            jsonWriter.endArray();
+            jsonWriter.key(StorageStrings.SETS).value(sets);
+            jsonWriter.key(StorageStrings.REPS).array();
+            for (int set = 0; set < sets; set++) {
+                jsonWriter.value(exerciseLog.getRepetition(set));
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+        }
+        jsonWriter.endArray();
+        jsonWriter.endObject();
+    }
+}
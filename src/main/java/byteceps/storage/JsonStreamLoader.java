@@ -0,0 +1,362 @@
+package byteceps.storage;
+
+import byteceps.activities.Exercise;
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.Workout;
+import byteceps.activities.WorkoutLog;
+import byteceps.errors.Exceptions;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.WeeklyProgramManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.processing.WorkoutManager;
+import byteceps.ui.strings.DayStrings;
+import byteceps.ui.strings.ManagerStrings;
+import byteceps.ui.strings.StorageStrings;
+import byteceps.validators.WorkoutLogsValidator;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Loads a JSON archive token by token instead of building the whole document in memory first.
+ * The workout logs, which make up most of an archive, are added to the WorkoutLogsManager one
+ * log at a time as they are read. The exercises, workouts and weekly program depend on each other,
+ * so they are held until the end of the archive and then loaded in dependency order.
+ * Any amount of whitespace between tokens is accepted, so pretty-printed archives load as well.
+ * Archives written with an older schema should be passed through {@link ArchiveMigrator} first;
+ * archives written with a newer schema are rejected.
+ */
+public class JsonStreamLoader {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DayStrings.YEAR_FORMAT);
+    private final JSONTokener tokener;
+
+    public JsonStreamLoader(Reader reader) {
+        this.tokener = new JSONTokener(reader);
+    }
+
+    /**
+     * Reads the archive into the given managers.
+     *
+     * @param allExercises       The manager to load exercises into.
+     * @param allWorkouts        The manager to load workouts into.
+     * @param weeklyProgram      The manager to load the weekly program into.
+     * @param workoutLogsManager The manager to load workout logs into.
+     * @return The sequence number of the last journal entry the archive includes, or 0 if it has none.
+     * @throws JSONException If the archive is malformed or a section is missing.
+     * @throws Exceptions.ActivityExistsException If the archive contains a duplicate activity.
+     * @throws Exceptions.ActivityDoesNotExist If the archive refers to an activity it does not contain.
+     * @throws Exceptions.InvalidInput If the archive contains an invalid log entry.
+     * @throws Exceptions.ErrorAddingActivity If an activity cannot be added.
+     */
+    public long load(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                     WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager)
+            throws Exceptions.ActivityExistsException, Exceptions.ActivityDoesNotExist,
+            Exceptions.InvalidInput, Exceptions.ErrorAddingActivity {
+        DecodedSegment sections = new DecodedSegment();
+        readSections(sections, jsonWorkoutLog -> loadWorkoutLog(workoutLogsManager, jsonWorkoutLog));
+        if (sections.isMissingSection()) {
+            throw new JSONException(StorageStrings.JSON_MISSING_SECTION);
+        }
+        sections.linkInto(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
+        return sections.journalSequence;
+    }
+
+    /**
+     * Reads one segment of a segmented snapshot, which holds only some of the sections of an archive,
+     * without touching any manager, so that segments can be decoded concurrently. Workout logs are
+     * decoded and validated straight away. The other sections refer to each other by name, so they are
+     * only loaded when the segment is linked into the managers.
+     *
+     * @return The decoded segment.
+     * @throws JSONException If the segment is malformed.
+     * @throws Exceptions.InvalidInput If the segment contains an invalid log entry.
+     */
+    public DecodedSegment decodeSegment() throws Exceptions.InvalidInput {
+        DecodedSegment segment = new DecodedSegment();
+        try {
+            readSections(segment, jsonWorkoutLog -> segment.workoutLogs.add(decodeWorkoutLog(jsonWorkoutLog)));
+        } catch (Exceptions.ActivityDoesNotExist e) {
+            // should not get an exception as decoding a workout log does not look up any activity
+            throw new Exceptions.InvalidInput(e.getMessage());
+        }
+        return segment;
+    }
+
+    private void readSections(DecodedSegment sections, WorkoutLogSink workoutLogSink)
+            throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
+        expect('{');
+        char nextChar = tokener.nextClean();
+        if (nextChar != '}') {
+            tokener.back();
+        }
+        while (nextChar != '}') {
+            String key = tokener.nextValue().toString();
+            expect(':');
+            switch (key) {
+            case StorageStrings.SCHEMA_VERSION:
+                checkSchemaVersion(tokener.nextValue());
+                break;
+            case StorageStrings.JOURNAL_SEQUENCE:
+                sections.journalSequence = readJournalSequence(tokener.nextValue());
+                break;
+            case StorageStrings.EXERCISE_MANAGER:
+                sections.jsonExercises = nextArray();
+                break;
+            case StorageStrings.WORKOUT_MANAGER:
+                sections.jsonWorkouts = nextArray();
+                break;
+            case StorageStrings.WEEKLY_PROGRAM:
+                sections.jsonWeeklyProgram = nextObject();
+                break;
+            case StorageStrings.WORKOUT_LOG_MANAGER:
+                streamWorkoutLogs(workoutLogSink);
+                sections.hasWorkoutLogs = true;
+                break;
+            default:
+                tokener.nextValue();
+            }
+
+            nextChar = tokener.nextClean();
+            if (nextChar != ',' && nextChar != '}') {
+                throw tokener.syntaxError(StorageStrings.JSON_EXPECTED_SEPARATOR);
+            }
+        }
+    }
+
+    private static void checkSchemaVersion(Object schemaVersion) throws Exceptions.InvalidInput {
+        if (!(schemaVersion instanceof Integer) || (Integer) schemaVersion > ArchiveMigrator.CURRENT_SCHEMA_VERSION) {
+            throw new Exceptions.InvalidInput(StorageStrings.SCHEMA_VERSION_INVALID);
+        }
+    }
+
+    private static long readJournalSequence(Object journalSequence) throws Exceptions.InvalidInput {
+        if (!(journalSequence instanceof Integer || journalSequence instanceof Long)
+                || ((Number) journalSequence).longValue() < 0) {
+            throw new Exceptions.InvalidInput(StorageStrings.JOURNAL_SEQUENCE_INVALID);
+        }
+        return ((Number) journalSequence).longValue();
+    }
+
+    private void expect(char expectedChar) {
+        if (tokener.nextClean() != expectedChar) {
+            throw tokener.syntaxError(String.format(StorageStrings.JSON_EXPECTED_CHAR, expectedChar));
+        }
+    }
+
+    private JSONArray nextArray() {
+        Object value = tokener.nextValue();
+        if (!(value instanceof JSONArray)) {
+            throw tokener.syntaxError(String.format(StorageStrings.JSON_EXPECTED_CHAR, '['));
+        }
+        return (JSONArray) value;
+    }
+
+    private JSONObject nextObject() {
+        Object value = tokener.nextValue();
+        if (!(value instanceof JSONObject)) {
+            throw tokener.syntaxError(String.format(StorageStrings.JSON_EXPECTED_CHAR, '{'));
+        }
+        return (JSONObject) value;
+    }
+
+    private void streamWorkoutLogs(WorkoutLogSink workoutLogSink)
+            throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
+        expect('[');
+        char nextChar = tokener.nextClean();
+        if (nextChar != ']') {
+            tokener.back();
+        }
+        while (nextChar != ']') {
+            workoutLogSink.accept(nextObject());
+            nextChar = tokener.nextClean();
+            if (nextChar != ',' && nextChar != ']') {
+                throw tokener.syntaxError(StorageStrings.JSON_EXPECTED_SEPARATOR);
+            }
+        }
+    }
+
+    private static void loadWeeklyProgram(WorkoutManager allWorkouts, WeeklyProgramManager weeklyProgram,
+                                          JSONObject jsonWeeklyProgram)
+            throws Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput, Exceptions.ActivityExistsException {
+        assert jsonWeeklyProgram.length() == 7 : "Weekly program array must be length 7";
+        for (Iterator<String> it = jsonWeeklyProgram.keys(); it.hasNext(); ) {
+            String day = it.next();
+            String workout = (String) jsonWeeklyProgram.get(day);
+            if (!workout.isBlank()) {
+                Workout dayWorkout = (Workout) allWorkouts.retrieve(workout);
+                weeklyProgram.assignWorkoutToDay(dayWorkout, day);
+            }
+        }
+    }
+
+    private static void loadWorkouts(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                                     JSONArray jsonWorkoutArray)
+            throws Exceptions.ActivityExistsException, Exceptions.ErrorAddingActivity,
+            Exceptions.ActivityDoesNotExist {
+        for (int i = 0; i < jsonWorkoutArray.length(); i++) {
+            JSONObject jsonWorkout = jsonWorkoutArray.getJSONObject(i);
+            String workoutName = jsonWorkout.getString(StorageStrings.ACTIVITY_NAME);
+            Workout workout = new Workout(workoutName);
+            allWorkouts.add(workout);
+            JSONArray jsonExercisesInWorkout = jsonWorkout.getJSONArray(
+                    StorageStrings.EXERCISE_LIST);
+            for (int j = 0; j < jsonExercisesInWorkout.length(); j++) {
+                String exerciseInWorkout = jsonExercisesInWorkout.getJSONObject(j)
+                        .getString(StorageStrings.ACTIVITY_NAME);
+                allWorkouts.addExerciseToWorkout(workout, (Exercise) allExercises.retrieve(exerciseInWorkout));
+            }
+        }
+    }
+
+    private static void loadExercises(ExerciseManager allExercises, JSONArray jsonExerciseArray)
+            throws Exceptions.ActivityExistsException, Exceptions.ErrorAddingActivity {
+        for (int i = 0; i < jsonExerciseArray.length(); i++) {
+            String exerciseName = jsonExerciseArray.getJSONObject(i).getString(StorageStrings.ACTIVITY_NAME);
+            allExercises.add(new Exercise(exerciseName));
+        }
+    }
+
+    private static void loadWorkoutLog(WorkoutLogsManager workoutLogsManager, JSONObject currentWorkout)
+            throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
+        JSONArray exercisesArray = currentWorkout.getJSONArray(StorageStrings.EXERCISES);
+        String workoutDate = currentWorkout.getString(StorageStrings.WORKOUT_DATE);
+        String workoutName = currentWorkout.getString(StorageStrings.WORKOUT_NAME);
+
+        validateDateString(workoutDate);
+        workoutLogsManager.addWorkoutLog(workoutDate, workoutName);
+
+        for (int j = 0; j < exercisesArray.length(); j++) {
+            loadExerciseLog(workoutLogsManager, exercisesArray, j, workoutDate);
+        }
+    }
+
+    private static void loadExerciseLog(WorkoutLogsManager workoutLogsManager,
+                                        JSONArray exercisesArray, int index, String workoutDate)
+            throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
+        JSONObject currentExercise = exercisesArray.getJSONObject(index);
+        String exerciseName = currentExercise.getString(StorageStrings.EXERCISE_NAME);
+        JSONArray weightArray = currentExercise.getJSONArray(StorageStrings.WEIGHT);
+        String setsString  = String.valueOf(currentExercise.getInt((StorageStrings.SETS)));
+        JSONArray repsArray = currentExercise.getJSONArray(StorageStrings.REPS);
+
+        String weights = weightArray.join(" ").replaceAll("\"", "");
+        String reps = repsArray.join(" ").replaceAll("\"", "");
+
+        int sets = Integer.parseInt(setsString);
+        validateLogCounts(weightArray.length(), repsArray.length(), sets);
+
+        workoutLogsManager.addExerciseLog(workoutDate, exerciseName,
+                weights, setsString , reps);
+    }
+
+    /**
+     * Decodes a workout log without touching any manager or printing, as segments are decoded on pool threads.
+     * A later log of the same exercise on the same day replaces the earlier one, as loading it would.
+     */
+    private static WorkoutLog decodeWorkoutLog(JSONObject jsonWorkoutLog) throws Exceptions.InvalidInput {
+        JSONArray exercisesArray = jsonWorkoutLog.getJSONArray(StorageStrings.EXERCISES);
+        String workoutDate = jsonWorkoutLog.getString(StorageStrings.WORKOUT_DATE);
+        validateDateString(workoutDate);
+        WorkoutLog workoutLog = new WorkoutLog(workoutDate, jsonWorkoutLog.getString(StorageStrings.WORKOUT_NAME));
+
+        for (int i = 0; i < exercisesArray.length(); i++) {
+            JSONObject currentExercise = exercisesArray.getJSONObject(i);
+            String exerciseName = currentExercise.getString(StorageStrings.EXERCISE_NAME);
+            JSONArray weightArray = currentExercise.getJSONArray(StorageStrings.WEIGHT);
+            JSONArray repsArray = currentExercise.getJSONArray(StorageStrings.REPS);
+            int sets = currentExercise.getInt(StorageStrings.SETS);
+            validateLogCounts(weightArray.length(), repsArray.length(), sets);
+            try {
+                int[] weights = WorkoutLogsManager.parseLogValues(weightArray.join(" ").replaceAll("\"", ""));
+                int[] reps = WorkoutLogsManager.parseLogValues(repsArray.join(" ").replaceAll("\"", ""));
+                WorkoutLogsValidator.hasNegativeInput(weights, reps, sets);
+                workoutLog.addExerciseLog(new ExerciseLog(exerciseName, weights, sets, reps));
+            } catch (NumberFormatException e) {
+                throw new Exceptions.InvalidInput(ManagerStrings.INVALID_REPS_SETS);
+            }
+        }
+        return workoutLog;
+    }
+
+    private static void validateLogCounts(int weightCount, int repCount, int sets)
+            throws Exceptions.InvalidInput {
+        if (weightCount != sets || repCount != sets) {
+            throw new Exceptions.InvalidInput("");
+        }
+    }
+
+    private static void validateDateString(String workoutDate) throws Exceptions.InvalidInput {
+        try {
+            LocalDate parsedDate = LocalDate.parse(workoutDate, DATE_FORMATTER);
+            if (!parsedDate.toString().equals(workoutDate)) {
+                throw new Exceptions.InvalidInput("");
+            }
+        } catch (DateTimeParseException e) {
+            throw new Exceptions.InvalidInput(""); //no need for error message, LOAD_ERROR will be printed
+        }
+    }
+
+    /**
+     * Receives each workout log as it is read from the archive.
+     */
+    private interface WorkoutLogSink {
+        void accept(JSONObject jsonWorkoutLog) throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist;
+    }
+
+    /**
+     * Sections read from an archive or segment that have not been loaded into the managers yet.
+     */
+    public static class DecodedSegment {
+        private final List<WorkoutLog> workoutLogs;
+        private JSONArray jsonExercises;
+        private JSONArray jsonWorkouts;
+        private JSONObject jsonWeeklyProgram;
+        private boolean hasWorkoutLogs;
+        private long journalSequence;
+
+        private DecodedSegment() {
+            this.workoutLogs = new ArrayList<>();
+        }
+
+        /**
+         * Loads the sections into the managers, resolving the exercises a workout refers to and the
+         * workouts the weekly program refers to by name. Segments must be linked in dependency order.
+         *
+         * @throws Exceptions.ActivityExistsException If a section contains a duplicate activity.
+         * @throws Exceptions.ActivityDoesNotExist If a section refers to an activity that is not loaded.
+         * @throws Exceptions.InvalidInput If the weekly program names an invalid day.
+         * @throws Exceptions.ErrorAddingActivity If an activity cannot be added.
+         */
+        public void linkInto(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                             WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager)
+                throws Exceptions.ActivityExistsException, Exceptions.ActivityDoesNotExist,
+                Exceptions.InvalidInput, Exceptions.ErrorAddingActivity {
+            if (jsonExercises != null) {
+                loadExercises(allExercises, jsonExercises);
+            }
+            if (jsonWorkouts != null) {
+                loadWorkouts(allExercises, allWorkouts, jsonWorkouts);
+            }
+            if (jsonWeeklyProgram != null) {
+                loadWeeklyProgram(allWorkouts, weeklyProgram, jsonWeeklyProgram);
+            }
+            for (WorkoutLog workoutLog : workoutLogs) {
+                workoutLogsManager.add(workoutLog);
+            }
+        }
+
+        private boolean isMissingSection() {
+            return jsonExercises == null || jsonWorkouts == null || jsonWeeklyProgram == null || !hasWorkoutLogs;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package byteceps.storage;
+
+import byteceps.activities.WorkoutLog;
+import byteceps.errors.Exceptions;
+import byteceps.processing.WorkoutLogSource;
+import byteceps.ui.strings.StorageStrings;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Workout logs left in a memory-mapped binary snapshot and decoded only when asked for.
+ * The log index at the end of the snapshot is searched in place, so the heap only holds the
+ * snapshot's string table no matter how many logs the snapshot contains.
+ */
+public class MappedWorkoutLogStore implements WorkoutLogSource {
+    private final ByteBuffer snapshot;
+    private final List<String> strings;
+    private final int indexOffset;
+    private final int workoutLogCount;
+
+    /**
+     * Constructs a store over the workout logs of a version 2 binary snapshot.
+     *
+     * @param snapshot        The buffer holding the whole snapshot.
+     * @param strings         The string table of the snapshot.
+     * @param indexOffset     The offset of the log index in the buffer.
+     * @param workoutLogCount The number of entries in the log index.
+     */
+    public MappedWorkoutLogStore(ByteBuffer snapshot, List<String> strings, int indexOffset,
+                                 int workoutLogCount) {
+        this.snapshot = snapshot;
+        this.strings = strings;
+        this.indexOffset = indexOffset;
+        this.workoutLogCount = workoutLogCount;
+    }
+
+    @Override
+    public boolean contains(int epochDay) {
+        return findIndexEntry(epochDay) >= 0;
+    }
+
+    @Override
+    public WorkoutLog load(int epochDay) {
+        int entry = findIndexEntry(epochDay);
+        if (entry < 0) {
+            return null;
+        }
+
+        String workoutDate = LocalDate.ofEpochDay(epochDay).toString();
+        // duplicate so that concurrent loads do not share a position
+        ByteBuffer record = snapshot.duplicate();
+        record.position(getLogOffset(entry));
+        try {
+            return BinarySnapshotCodec.readWorkoutLog(record, strings, workoutDate);
+        } catch (Exceptions.InvalidInput | BufferUnderflowException | IllegalArgumentException e) {
+            throw new IllegalStateException(String.format(StorageStrings.BINARY_CORRUPT_LOG, workoutDate), e);
+        }
+    }
+
+    @Override
+    public int[] getEpochDays(int startEpochDay, int endEpochDay) {
+        int startEntry = lowerBound(startEpochDay);
+        int endEntry = startEntry;
+        while (endEntry < workoutLogCount && getEpochDay(endEntry) <= endEpochDay) {
+            endEntry++;
+        }
+
+        int[] epochDays = new int[endEntry - startEntry];
+        for (int entry = startEntry; entry < endEntry; entry++) {
+            epochDays[entry - startEntry] = getEpochDay(entry);
+        }
+        return epochDays;
+    }
+
+    private int findIndexEntry(int epochDay) {
+        int entry = lowerBound(epochDay);
+        if (entry == workoutLogCount || getEpochDay(entry) != epochDay) {
+            return -1;
+        }
+        return entry;
+    }
+
+    private int lowerBound(int epochDay) {
+        int low = 0;
+        int high = workoutLogCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getEpochDay(middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int getEpochDay(int entry) {
+        return snapshot.getInt(indexOffset + entry * BinarySnapshotCodec.INDEX_ENTRY_BYTES);
+    }
+
+    private int getLogOffset(int entry) {
+        return snapshot.getInt(indexOffset + entry * BinarySnapshotCodec.INDEX_ENTRY_BYTES + Integer.BYTES);
+    }
+}
@@ -0,0 +1,106 @@
+package byteceps.storage;
+
+import byteceps.errors.Exceptions;
+import byteceps.ui.strings.StorageStrings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression a segment of a segmented snapshot is stored with. Every codec streams, so a segment is
+ * compressed while it is written and decompressed while it is parsed, without a second copy in memory.
+ */
+public enum SegmentCodec {
+    NONE(StorageStrings.SEGMENT_EXTENSION),
+    GZIP(StorageStrings.SEGMENT_EXTENSION + StorageStrings.GZIP_EXTENSION),
+    DEFLATE(StorageStrings.SEGMENT_EXTENSION + StorageStrings.DEFLATE_EXTENSION);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String fileExtension;
+
+    SegmentCodec(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Finds the codec with the given name, as written in a manifest.
+     *
+     * @param name The name of the codec.
+     * @return The codec.
+     * @throws Exceptions.InvalidInput If there is no codec with that name.
+     */
+    public static SegmentCodec fromName(String name) throws Exceptions.InvalidInput {
+        for (SegmentCodec codec : values()) {
+            if (codec.getName().equals(name)) {
+                return codec;
+            }
+        }
+        throw new Exceptions.InvalidInput(StorageStrings.MANIFEST_INVALID);
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Wraps a stream so that whatever is written to it is compressed.
+     * The returned stream must be finished with {@link #finish(OutputStream)} rather than closed.
+     *
+     * @param out The stream to write the compressed segment to.
+     * @return The stream to write the segment to.
+     * @throws IOException If the compressed stream cannot be started.
+     */
+    public OutputStream compress(OutputStream out) throws IOException {
+        switch (this) {
+        case GZIP:
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        case DEFLATE:
+            return new DeflaterOutputStream(out);
+        default:
+            return out;
+        }
+    }
+
+    /**
+     * Writes out the end of a compressed stream without closing the stream underneath it.
+     *
+     * @param compressed A stream returned by {@link #compress(OutputStream)}.
+     * @throws IOException If the end of the stream cannot be written.
+     */
+    public void finish(OutputStream compressed) throws IOException {
+        if (compressed instanceof DeflaterOutputStream) {
+            ((DeflaterOutputStream) compressed).finish();
+        }
+        compressed.flush();
+    }
+
+    /**
+     * Wraps a stream so that the segment read from it is decompressed.
+     * Decompression stops at the end of the compressed data, before the checksum trailer.
+     *
+     * @param in The stream holding the compressed segment.
+     * @return The stream to read the segment from.
+     * @throws IOException If the compressed stream is not valid.
+     */
+    public InputStream decompress(InputStream in) throws IOException {
+        switch (this) {
+        case GZIP:
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        case DEFLATE:
+            return new InflaterInputStream(in);
+        default:
+            return in;
+        }
+    }
+}
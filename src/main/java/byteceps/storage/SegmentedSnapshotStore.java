@@ -0,0 +1,357 @@
+package byteceps.storage;
+
+import byteceps.errors.Exceptions;
+import byteceps.processing.DomainSnapshot;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.WeeklyProgramManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.processing.WorkoutManager;
+import byteceps.ui.strings.StorageStrings;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Snapshot kept as a directory of segments that are saved independently: one each for the exercises,
+ * workouts and weekly program, and one for every month of workout logs. A manifest lists the current
+ * generation of every segment. A save rewrites only the segments whose data changed since they were
+ * last loaded or saved, each under a new generation, then replaces the manifest, which commits the save.
+ * Segments the manifest no longer lists are deleted afterwards, so a crash at any point leaves either
+ * the old or the new snapshot intact. The manifest also records the codec each segment is stored with.
+ * Months of workout logs that are over rarely change again, so they are compressed, while the segments
+ * that change every day are kept uncompressed. The manifest records the sequence number of the last journal
+ * entry the snapshot includes, which commits along with the save.
+ */
+public class SegmentedSnapshotStore {
+    private final Path directory;
+    private final Path manifestPath;
+    private final SegmentCodec archivedLogCodec;
+    private TreeMap<String, ManifestEntry> manifestEntries;
+    private long manifestJournalSequence;
+    private HashMap<String, Long> savedModificationCounts;
+
+    public SegmentedSnapshotStore(Path directory) {
+        this(directory, SegmentCodec.GZIP);
+    }
+
+    /**
+     * Constructs a store over the given snapshot directory, which is created on the first save.
+     *
+     * @param directory        The snapshot directory.
+     * @param archivedLogCodec The codec to store the workout logs of past months with.
+     */
+    public SegmentedSnapshotStore(Path directory, SegmentCodec archivedLogCodec) {
+        this.directory = directory;
+        this.manifestPath = directory.resolve(StorageStrings.MANIFEST_FILE);
+        this.archivedLogCodec = archivedLogCodec;
+        this.manifestEntries = new TreeMap<>();
+        this.savedModificationCounts = new HashMap<>();
+    }
+
+    /**
+     * Checks if there is no snapshot to load.
+     *
+     * @return true if the snapshot has never been saved, false otherwise.
+     */
+    public boolean isEmpty() {
+        return !Files.exists(manifestPath);
+    }
+
+    /**
+     * Saves the segments of the snapshot that changed since they were last loaded or saved, along with
+     * any segment whose codec no longer matches its data, such as the logs of a month that has just ended.
+     *
+     * @throws IOException If a segment or the manifest cannot be written.
+     */
+    public void save(DomainSnapshot snapshot) throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<String, ManifestEntry> newEntries = new TreeMap<>();
+        HashMap<String, Long> newModificationCounts = new HashMap<>();
+
+        saveSegment(StorageStrings.SEGMENT_EXERCISES, SegmentCodec.NONE, snapshot.getExerciseModificationCount(),
+                writer -> writer.writeExercises(snapshot), newEntries, newModificationCounts);
+        saveSegment(StorageStrings.SEGMENT_WORKOUTS, SegmentCodec.NONE, snapshot.getWorkoutModificationCount(),
+                writer -> writer.writeWorkouts(snapshot), newEntries, newModificationCounts);
+        saveSegment(StorageStrings.SEGMENT_WEEKLY_PROGRAM, SegmentCodec.NONE,
+                snapshot.getWeeklyProgramModificationCount(),
+                writer -> writer.writeWeeklyProgram(snapshot), newEntries, newModificationCounts);
+        YearMonth currentMonth = YearMonth.now();
+        for (Map.Entry<String, List<String>> month : groupLogDatesByMonth(snapshot.getWorkoutLogDates()).entrySet()) {
+            YearMonth logMonth = YearMonth.parse(month.getKey());
+            SegmentCodec codec = logMonth.isBefore(currentMonth) ? archivedLogCodec : SegmentCodec.NONE;
+            saveSegment(StorageStrings.SEGMENT_LOGS_PREFIX + month.getKey(), codec,
+                    snapshot.getMonthModificationCount(logMonth),
+                    writer -> writer.writeWorkoutLogs(snapshot, month.getValue()),
+                    newEntries, newModificationCounts);
+        }
+
+        writeManifest(newEntries, snapshot.getJournalSequence());
+        manifestEntries = newEntries;
+        savedModificationCounts = newModificationCounts;
+        deleteUnlistedSegments();
+    }
+
+    /**
+     * Loads every segment listed in the manifest. The segments are read, checked and decoded concurrently
+     * on the common fork-join pool, since none of them depends on another until it is linked. They are
+     * then linked into the managers one by one in dependency order, which only resolves names.
+     *
+     * @return The sequence number of the last journal entry the snapshot includes, or 0 if it has none.
+     * @throws IOException If a segment or the manifest cannot be read.
+     * @throws Exceptions.InvalidInput If the manifest is malformed or a segment is missing or damaged.
+     */
+    public long load(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                     WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager)
+            throws IOException, Exceptions.ActivityExistsException, Exceptions.ErrorAddingActivity,
+            Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput {
+        TreeMap<String, ManifestEntry> manifest = readManifest();
+        List<String> segments = new ArrayList<>();
+        segments.add(StorageStrings.SEGMENT_EXERCISES);
+        segments.add(StorageStrings.SEGMENT_WORKOUTS);
+        segments.add(StorageStrings.SEGMENT_WEEKLY_PROGRAM);
+        for (String segment : manifest.keySet()) {
+            if (segment.startsWith(StorageStrings.SEGMENT_LOGS_PREFIX)) {
+                segments.add(segment);
+            }
+        }
+
+        List<Callable<JsonStreamLoader.DecodedSegment>> decoders = new ArrayList<>();
+        for (String segment : segments) {
+            ManifestEntry entry = manifest.get(segment);
+            if (entry == null) {
+                throw new Exceptions.InvalidInput(String.format(StorageStrings.SEGMENT_MISSING, segment));
+            }
+            Path segmentPath = getSegmentPath(segment, entry);
+            decoders.add(() -> decodeSegment(segmentPath, entry.codec));
+        }
+        for (Future<JsonStreamLoader.DecodedSegment> decodedSegment : ForkJoinPool.commonPool().invokeAll(decoders)) {
+            getDecodedSegment(decodedSegment).linkInto(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
+        }
+
+        HashMap<String, Long> loadedModificationCounts = new HashMap<>();
+        loadedModificationCounts.put(StorageStrings.SEGMENT_EXERCISES, allExercises.getModificationCount());
+        loadedModificationCounts.put(StorageStrings.SEGMENT_WORKOUTS, allWorkouts.getModificationCount());
+        loadedModificationCounts.put(StorageStrings.SEGMENT_WEEKLY_PROGRAM,
+                getWeeklyProgramModificationCount(allWorkouts, weeklyProgram));
+        for (String month : groupLogDatesByMonth(workoutLogsManager.getWorkoutLogDates()).keySet()) {
+            loadedModificationCounts.put(StorageStrings.SEGMENT_LOGS_PREFIX + month,
+                    workoutLogsManager.getMonthModificationCount(YearMonth.parse(month)));
+        }
+        manifestEntries = manifest;
+        savedModificationCounts = loadedModificationCounts;
+        return manifestJournalSequence;
+    }
+
+    private void saveSegment(String segment, SegmentCodec codec, long modificationCount,
+                             SegmentWriter segmentWriter, TreeMap<String, ManifestEntry> newEntries,
+                             HashMap<String, Long> newModificationCounts)
+            throws IOException {
+        ManifestEntry entry = manifestEntries.get(segment);
+        Long savedModificationCount = savedModificationCounts.get(segment);
+        boolean isUpToDate = entry != null && entry.codec == codec && savedModificationCount != null
+                && savedModificationCount == modificationCount;
+        if (!isUpToDate) {
+            entry = new ManifestEntry(entry == null ? 1 : entry.generation + 1, codec);
+            Storage.writeAtomically(getSegmentPath(segment, entry), out -> {
+                OutputStream compressed = codec.compress(out);
+                segmentWriter.write(new JsonSnapshotWriter(
+                        new BufferedWriter(new OutputStreamWriter(compressed, StandardCharsets.UTF_8))));
+                codec.finish(compressed);
+            });
+        }
+        newEntries.put(segment, entry);
+        newModificationCounts.put(segment, modificationCount);
+    }
+
+    private void writeManifest(TreeMap<String, ManifestEntry> newEntries, long journalSequence)
+            throws IOException {
+        StringBuilder manifest = new StringBuilder(StorageStrings.MANIFEST_HEADER);
+        manifest.append('\n').append(String.format(StorageStrings.MANIFEST_JOURNAL_SEQUENCE, journalSequence));
+        for (Map.Entry<String, ManifestEntry> entry : newEntries.entrySet()) {
+            manifest.append('\n').append(String.format(StorageStrings.MANIFEST_ENTRY, entry.getKey(),
+                    entry.getValue().generation, entry.getValue().codec.getName()));
+        }
+        Storage.writeAtomically(manifestPath, out -> {
+            out.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        });
+    }
+
+    /**
+     * Reads the manifest. Entries without a codec were written before segments could be compressed
+     * and are stored uncompressed, and a manifest without a journal sequence number covers no journal entry.
+     */
+    private TreeMap<String, ManifestEntry> readManifest() throws IOException, Exceptions.InvalidInput {
+        String manifest;
+        try (FileChannel channel = FileChannel.open(manifestPath, StandardOpenOption.READ)) {
+            long bodyLength = SnapshotChecksum.verify(channel);
+            ByteBuffer body = ByteBuffer.allocate(Math.toIntExact(bodyLength));
+            while (body.hasRemaining()) {
+                if (channel.read(body, body.position()) < 0) {
+                    break;
+                }
+            }
+            manifest = new String(body.array(), 0, body.position(), StandardCharsets.UTF_8);
+        }
+
+        String[] lines = manifest.split("\n");
+        if (!lines[0].equals(StorageStrings.MANIFEST_HEADER)) {
+            throw new Exceptions.InvalidInput(StorageStrings.MANIFEST_INVALID);
+        }
+        TreeMap<String, ManifestEntry> entries = new TreeMap<>();
+        manifestJournalSequence = 0;
+        for (int line = 1; line < lines.length; line++) {
+            String[] fields = lines[line].split(" ");
+            if (fields.length != 2 && fields.length != 3) {
+                throw new Exceptions.InvalidInput(StorageStrings.MANIFEST_INVALID);
+            }
+            if (fields[0].equals(StorageStrings.JOURNAL_SEQUENCE)) {
+                manifestJournalSequence = parseJournalSequence(fields);
+                continue;
+            }
+            SegmentCodec codec = fields.length == 3 ? SegmentCodec.fromName(fields[2]) : SegmentCodec.NONE;
+            try {
+                if (entries.put(fields[0], new ManifestEntry(Long.parseLong(fields[1]), codec)) != null) {
+                    throw new Exceptions.InvalidInput(StorageStrings.MANIFEST_INVALID);
+                }
+            } catch (NumberFormatException e) {
+                throw new Exceptions.InvalidInput(StorageStrings.MANIFEST_INVALID);
+            }
+        }
+        return entries;
+    }
+
+    private static long parseJournalSequence(String[] fields) throws Exceptions.InvalidInput {
+        try {
+            long journalSequence = Long.parseLong(fields[1]);
+            if (fields.length == 2 && journalSequence >= 0) {
+                return journalSequence;
+            }
+        } catch (NumberFormatException e) {
+            // reported below along with the other malformed lines
+        }
+        throw new Exceptions.InvalidInput(StorageStrings.MANIFEST_INVALID);
+    }
+
+    private static JsonStreamLoader.DecodedSegment decodeSegment(Path segmentPath, SegmentCodec codec)
+            throws IOException, Exceptions.InvalidInput {
+        if (!Files.exists(segmentPath)) {
+            throw new Exceptions.InvalidInput(String.format(StorageStrings.SEGMENT_MISSING,
+                    segmentPath.getFileName()));
+        }
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            SnapshotChecksum.verify(channel);
+            // the loader stops at the end of the archive, before the trailer
+            try (BufferedReader segmentReader = new BufferedReader(new InputStreamReader(
+                    codec.decompress(Channels.newInputStream(channel.position(0))), StandardCharsets.UTF_8))) {
+                return new JsonStreamLoader(segmentReader).decodeSegment();
+            }
+        }
+    }
+
+    private static JsonStreamLoader.DecodedSegment getDecodedSegment(Future<JsonStreamLoader.DecodedSegment> future)
+            throws IOException, Exceptions.InvalidInput {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof Exceptions.InvalidInput) {
+                throw (Exceptions.InvalidInput) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void deleteUnlistedSegments() throws IOException {
+        HashSet<Path> listedSegments = new HashSet<>();
+        for (Map.Entry<String, ManifestEntry> entry : manifestEntries.entrySet()) {
+            listedSegments.add(getSegmentPath(entry.getKey(), entry.getValue()));
+        }
+        List<Path> unlistedSegments = new ArrayList<>();
+        try (DirectoryStream<Path> segmentFiles = Files.newDirectoryStream(directory)) {
+            for (Path segmentFile : segmentFiles) {
+                if (!segmentFile.equals(manifestPath) && !listedSegments.contains(segmentFile)) {
+                    unlistedSegments.add(segmentFile);
+                }
+            }
+        }
+        for (Path unlistedSegment : unlistedSegments) {
+            Files.deleteIfExists(unlistedSegment);
+        }
+    }
+
+    private Path getSegmentPath(String segment, ManifestEntry entry) {
+        return directory.resolve(String.format(StorageStrings.SEGMENT_FILE, segment, entry.generation,
+                entry.codec.getFileExtension()));
+    }
+
+    /**
+     * Counts the changes that affect the saved weekly program, which names its workouts and so also
+     * goes out of date when a workout is renamed.
+     */
+    private static long getWeeklyProgramModificationCount(WorkoutManager allWorkouts,
+                                                          WeeklyProgramManager weeklyProgram) {
+        return allWorkouts.getModificationCount() + weeklyProgram.getModificationCount();
+    }
+
+    private static TreeMap<String, List<String>> groupLogDatesByMonth(List<String> workoutLogDates) {
+        TreeMap<String, List<String>> logDatesByMonth = new TreeMap<>();
+        for (String workoutLogDate : workoutLogDates) {
+            String month = YearMonth.from(LocalDate.parse(workoutLogDate)).toString();
+            logDatesByMonth.computeIfAbsent(month, key -> new ArrayList<>()).add(workoutLogDate);
+        }
+        return logDatesByMonth;
+    }
+
+    /**
+     * Writes the archive of one segment.
+     */
+    private interface SegmentWriter {
+        void write(JsonSnapshotWriter writer) throws IOException;
+    }
+
+    /**
+     * The generation and codec of a segment, as listed in the manifest.
+     */
+    private static class ManifestEntry {
+        private final long generation;
+        private final SegmentCodec codec;
+
+        ManifestEntry(long generation, SegmentCodec codec) {
+            this.generation = generation;
+            this.codec = codec;
+        }
+    }
+}
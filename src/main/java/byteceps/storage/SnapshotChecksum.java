@@ -0,0 +1,88 @@
+package byteceps.storage;
+
+import byteceps.errors.Exceptions;
+import byteceps.ui.strings.StorageStrings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Checksum trailer appended to every snapshot, so that a damaged snapshot is caught before it is parsed.
+ * The trailer is a single text line holding the CRC-32 of every byte before it, which leaves the
+ * first line of a JSON archive untouched. Snapshots written before the trailer existed have none
+ * and are accepted as they are.
+ */
+public class SnapshotChecksum {
+    static final int TRAILER_LENGTH = String.format(StorageStrings.CHECKSUM_TRAILER, 0L).length();
+    private static final int TRAILER_PREFIX_LENGTH = TRAILER_LENGTH - 9;
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Builds the trailer for a snapshot body.
+     *
+     * @param checksum The CRC-32 of the snapshot body.
+     * @return The trailer bytes.
+     */
+    public static byte[] getTrailer(CRC32 checksum) {
+        return String.format(StorageStrings.CHECKSUM_TRAILER, checksum.getValue())
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Checks the trailer of a snapshot against the rest of the file.
+     *
+     * @param channel The open snapshot file.
+     * @return The length of the snapshot body, without the trailer.
+     * @throws IOException If the snapshot cannot be read.
+     * @throws Exceptions.InvalidInput If the snapshot has a trailer that does not match its body.
+     */
+    public static long verify(FileChannel channel) throws IOException, Exceptions.InvalidInput {
+        long fileLength = channel.size();
+        if (fileLength < TRAILER_LENGTH) {
+            return fileLength;
+        }
+
+        long bodyLength = fileLength - TRAILER_LENGTH;
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+        while (trailer.hasRemaining()) {
+            if (channel.read(trailer, bodyLength + trailer.position()) < 0) {
+                return fileLength;
+            }
+        }
+        String trailerString = new String(trailer.array(), StandardCharsets.US_ASCII);
+        String expectedPrefix = StorageStrings.CHECKSUM_TRAILER.substring(0, TRAILER_PREFIX_LENGTH);
+        if (!trailerString.startsWith(expectedPrefix) || !trailerString.endsWith("\n")) {
+            return fileLength;
+        }
+
+        long expectedChecksum;
+        try {
+            expectedChecksum = Long.parseLong(trailerString.substring(TRAILER_PREFIX_LENGTH, TRAILER_LENGTH - 1), 16);
+        } catch (NumberFormatException e) {
+            return fileLength;
+        }
+
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE);
+        long position = 0;
+        while (position < bodyLength) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), bodyLength - position));
+            int bytesRead = channel.read(buffer, position);
+            if (bytesRead < 0) {
+                break;
+            }
+            buffer.flip();
+            checksum.update(buffer);
+            position += bytesRead;
+        }
+
+        if (position != bodyLength || checksum.getValue() != expectedChecksum) {
+            throw new Exceptions.InvalidInput(StorageStrings.CHECKSUM_MISMATCH);
+        }
+        return bodyLength;
+    }
+}
@@ -0,0 +1,31 @@
+package byteceps.storage;
+
+import byteceps.ui.strings.StorageStrings;
+
+import java.nio.file.Path;
+
+/**
+ * On-disk formats a snapshot can be stored in.
+ */
+public enum SnapshotFormat {
+    JSON,
+    BINARY,
+    SEGMENTED;
+
+    /**
+     * Picks the snapshot format from the extension of the snapshot file.
+     *
+     * @param filePath The path of the snapshot file.
+     * @return BINARY for files ending in .bin, SEGMENTED for directories ending in .segments, JSON otherwise.
+     */
+    public static SnapshotFormat fromPath(Path filePath) {
+        String fileName = filePath.getFileName().toString();
+        if (fileName.endsWith(StorageStrings.BINARY_EXTENSION)) {
+            return BINARY;
+        }
+        if (fileName.endsWith(StorageStrings.SEGMENTED_EXTENSION)) {
+            return SEGMENTED;
+        }
+        return JSON;
+    }
+}
@@ -1,88 +1,293 @@
 package byteceps.storage;
 
 import byteceps.activities.Day;
-import byteceps.activities.Exercise;
-import byteceps.activities.Workout;
+import byteceps.commands.Parser;
 import byteceps.errors.Exceptions;
+import byteceps.processing.CommandProcessor;
+import byteceps.processing.DomainSnapshot;
 import byteceps.processing.ExerciseManager;
+import byteceps.processing.HelpMenuManager;
 import byteceps.processing.WorkoutLogsManager;
 import byteceps.processing.WeeklyProgramManager;
 import byteceps.processing.WorkoutManager;
-import byteceps.ui.strings.DayStrings;
+import byteceps.ui.strings.CommandStrings;
 import byteceps.ui.strings.StorageStrings;
 import byteceps.ui.UserInterface;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Date;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 public class Storage {
+    private static final int JOURNAL_COMPACTION_THRESHOLD = 100;
     private final Path filePath;
+    private final SnapshotFormat format;
     private final UserInterface ui;
+    private final Journal journal;
+    private final SegmentedSnapshotStore segmentedStore;
+    private DomainSnapshot latestSnapshot;
+
     public Storage(String filePath, UserInterface ui) {
         this.filePath = Path.of(filePath);
+        this.format = SnapshotFormat.fromPath(this.filePath);
         this.ui = ui;
+        this.journal = new Journal(this.filePath);
+        this.segmentedStore = new SegmentedSnapshotStore(this.filePath);
+    }
+
+    /**
+     * Writes the body of a file that is saved with {@link #writeAtomically(Path, BodyWriter)}.
+     */
+    interface BodyWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Converts a snapshot from one format to another, picking each format from its file extension.
+     * Any journal belonging to the source snapshot is replayed before it is converted.
+     *
+     * @param sourcePath The snapshot to convert.
+     * @param targetPath The path to write the converted snapshot to.
+     * @param ui         The user interface to report progress to.
+     * @throws IOException If either snapshot cannot be accessed.
+     */
+    public static void convert(String sourcePath, String targetPath, UserInterface ui) throws IOException {
+        ExerciseManager allExercises = new ExerciseManager();
+        WorkoutManager allWorkouts = new WorkoutManager(allExercises);
+        WorkoutLogsManager workoutLogsManager = new WorkoutLogsManager();
+        WeeklyProgramManager weeklyProgram = new WeeklyProgramManager(allExercises, allWorkouts, workoutLogsManager);
+
+        new Storage(sourcePath, ui).load(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
+        new Storage(targetPath, ui).writeFullSnapshot(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
+        ui.printMessage(String.format(StorageStrings.CONVERT_SUCCESS, sourcePath, targetPath));
+    }
+
+    /**
+     * Upgrades a JSON archive to the current schema in place, without loading it into managers.
+     * The archive is streamed through {@link ArchiveMigrator}, so this needs little memory however
+     * long the history in the archive is.
+     *
+     * @param archivePath The archive to migrate.
+     * @param ui          The user interface to report progress to.
+     * @throws IOException If the archive cannot be read or written.
+     * @throws Exceptions.InvalidInput If the archive does not match its checksum.
+     * @throws JSONException If the archive is malformed or has an unsupported schema version.
+     */
+    public static void migrate(String archivePath, UserInterface ui) throws IOException, Exceptions.InvalidInput {
+        Path sourcePath = Path.of(archivePath);
+        Path migratedPath = Path.of(archivePath + StorageStrings.MIGRATED_SUFFIX);
+        int schemaVersion;
+        try (FileChannel channel = FileChannel.open(sourcePath, StandardOpenOption.READ)) {
+            SnapshotChecksum.verify(channel);
+            schemaVersion = new ArchiveMigrator(newJsonReader(channel)).readSchemaVersion();
+            if (schemaVersion == ArchiveMigrator.CURRENT_SCHEMA_VERSION) {
+                ui.printMessage(String.format(StorageStrings.MIGRATE_UP_TO_DATE, archivePath, schemaVersion));
+                return;
+            }
+            writeAtomically(migratedPath, out -> migrateArchive(newJsonReader(channel), out));
+        }
+        moveAtomically(migratedPath, sourcePath);
+        ui.printMessage(String.format(StorageStrings.MIGRATE_SUCCESS, archivePath, schemaVersion,
+                ArchiveMigrator.CURRENT_SCHEMA_VERSION));
     }
 
     public void save(ExerciseManager allExercises, WorkoutManager allWorkouts,
                      WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager)
             throws IOException {
-        JSONObject jsonArchive = new JSONObject().put(
-                StorageStrings.EXERCISE_MANAGER, allExercises.getActivityList().toArray());
-        jsonArchive.put(StorageStrings.WORKOUT_MANAGER, allWorkouts.getActivityList().toArray());
-        jsonArchive.put(StorageStrings.WEEKLY_PROGRAM, weeklyProgram.exportToJSON());
-        jsonArchive.put(StorageStrings.WORKOUT_LOG_MANAGER, workoutLogsManager.exportToJSON());
+        writeFullSnapshot(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
+        ui.printMessage(StorageStrings.WORKOUTS_SAVED);
+    }
 
-        FileWriter fileWriter = new FileWriter(filePath.toFile());
-        fileWriter.write(jsonArchive.toString());
-        fileWriter.close();
+    /**
+     * Takes a snapshot of the managers to write later, sharing whatever has not changed with the last
+     * snapshot taken. Must be called while no command can change the managers.
+     *
+     * @return The snapshot.
+     */
+    public synchronized DomainSnapshot takeSnapshot(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                                                    WeeklyProgramManager weeklyProgram,
+                                                    WorkoutLogsManager workoutLogsManager) {
+        latestSnapshot = DomainSnapshot.take(allExercises, allWorkouts, weeklyProgram, workoutLogsManager,
+                journal.getLastSequence(), latestSnapshot);
+        return latestSnapshot;
+    }
 
-        ui.printMessage(StorageStrings.WORKOUTS_SAVED);
+    /**
+     * Appends a successfully executed command to the journal if it changes any persisted data.
+     * Logs without a date are journaled with the date they were logged on, so that replaying them
+     * on a later day gives the same result.
+     *
+     * @param parser    Parser containing the executed command.
+     * @param userInput The command line as entered by the user.
+     * @throws IOException If the journal cannot be written.
+     */
+    public void appendToJournal(Parser parser, String userInput) throws IOException {
+        if (!CommandProcessor.isMutatingCommand(parser)) {
+            return;
+        }
+
+        String entry = userInput;
+        if (isUndatedLog(parser)) {
+            entry = String.format(StorageStrings.JOURNAL_DATE_FORMAT, userInput,
+                    CommandStrings.ARG_DATE, LocalDate.now());
+        }
+        journal.append(entry);
+    }
+
+    private static boolean isUndatedLog(Parser parser) {
+        try {
+            return parser.getCommand().equals(CommandStrings.COMMAND_PROGRAM)
+                    && parser.getAction().equals(CommandStrings.ACTION_LOG)
+                    && parser.getAdditionalArguments(CommandStrings.ARG_DATE).isEmpty();
+        } catch (Exceptions.InvalidInput e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reports an error that happened away from any command, such as in a background save.
+     *
+     * @param message The message describing the error.
+     */
+    void reportError(String message) {
+        ui.printMessage(message);
+    }
+
+    public boolean isCompactionDue() {
+        return journal.getEntryCount() >= JOURNAL_COMPACTION_THRESHOLD;
+    }
+
+    /**
+     * Folds the journal back into a fresh snapshot without notifying the user. Commands may keep running
+     * while the snapshot is written, so only the journal entries it already holds are discarded.
+     *
+     * @param snapshot The snapshot to write.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void compact(DomainSnapshot snapshot) throws IOException {
+        writeSnapshot(snapshot);
+        journal.discardThrough(snapshot.getJournalSequence());
+    }
+
+    private void writeFullSnapshot(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                                   WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager)
+            throws IOException {
+        DomainSnapshot snapshot = takeSnapshot(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
+        writeSnapshot(snapshot);
+        journal.discardThrough(snapshot.getJournalSequence());
+    }
+
+    private void writeSnapshot(DomainSnapshot snapshot) throws IOException {
+        switch (format) {
+        case SEGMENTED:
+            segmentedStore.save(snapshot);
+            break;
+        case BINARY:
+            writeAtomically(filePath, out -> new BinarySnapshotCodec().write(new DataOutputStream(out), snapshot));
+            break;
+        default:
+            writeAtomically(filePath, out -> {
+                BufferedWriter jsonWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                new JsonSnapshotWriter(jsonWriter).write(snapshot);
+            });
+        }
+    }
+
+    /**
+     * Writes a file crash-safely. The body is streamed into a temp file with a checksum trailer,
+     * synced to disk and then moved over the old file in one step, so a crash or full disk part way
+     * through leaves the old file untouched. This also keeps a mapped binary snapshot valid while
+     * its paged logs are being written out.
+     *
+     * @param target     The file to write.
+     * @param bodyWriter Writes the body of the file, which must be flushed before returning.
+     * @throws IOException If the file cannot be written.
+     */
+    static void writeAtomically(Path target, BodyWriter bodyWriter) throws IOException {
+        Path tempPath = Path.of(target + StorageStrings.TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BufferedOutputStream bufferedStream = new BufferedOutputStream(Channels.newOutputStream(channel));
+            CRC32 checksum = new CRC32();
+            bodyWriter.write(new CheckedOutputStream(bufferedStream, checksum));
+            bufferedStream.write(SnapshotChecksum.getTrailer(checksum));
+            bufferedStream.flush();
+            channel.force(true);
+        }
+
+        moveAtomically(tempPath, target);
+    }
+
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncParentDirectory(target);
+    }
+
+    private static void syncParentDirectory(Path target) {
+        Path parent = target.toAbsolutePath().getParent();
+        try (FileChannel directory = FileChannel.open(parent, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // not every platform can sync a directory, the move itself is still atomic
+        }
     }
 
     public void load(ExerciseManager allExercises, WorkoutManager allWorkouts,
                      WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager)
             throws IOException {
-        boolean exerciseManagerIsEmpty = allExercises.getActivityList().isEmpty();
-        boolean workoutManagerIsEmpty =  allWorkouts.getActivityList().isEmpty();
-        boolean weeklyProgramIsEmpty = weeklyProgram.getActivityList().stream().
+        boolean exerciseManagerIsEmpty = allExercises.getActivities().isEmpty();
+        boolean workoutManagerIsEmpty =  allWorkouts.getActivities().isEmpty();
+        boolean weeklyProgramIsEmpty = weeklyProgram.getActivities().stream().
                 allMatch(day-> ((Day) day).getAssignedWorkout() == null);
         assert exerciseManagerIsEmpty && workoutManagerIsEmpty && weeklyProgramIsEmpty
             : "Must load from a clean state";
         File jsonFile = filePath.toFile();
 
-        if (jsonFile.createNewFile()) {
+        if (hasNoSaveData(jsonFile)) {
             ui.printMessage(StorageStrings.NO_SAVE_DATA);
+            replayJournal(allExercises, allWorkouts, weeklyProgram, workoutLogsManager, 0);
             return;
         }
 
         ui.printMessage(StorageStrings.LOADING);
 
-        try (Scanner jsonScanner = new Scanner(jsonFile)) {
-            JSONObject jsonArchive = new JSONObject(jsonScanner.nextLine());
-            loadExercises(allExercises, jsonArchive);
-            loadWorkouts(allExercises, allWorkouts, jsonArchive);
-            loadWeeklyProgram(allWorkouts, weeklyProgram, jsonArchive);
-            loadWorkoutLogs(allExercises, allWorkouts, jsonArchive, workoutLogsManager);
+        long snapshotSequence;
+        try {
+            snapshotSequence = readSnapshot(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
             ui.printMessage(StorageStrings.LOAD_SUCCESS);
         } catch (Exceptions.ActivityExistsException | Exceptions.ErrorAddingActivity |
-                 Exceptions.ActivityDoesNotExist | Exceptions.InvalidInput | JSONException | NoSuchElementException e) {
+                 Exceptions.ActivityDoesNotExist | Exceptions.InvalidInput | JSONException e) {
             ui.printMessage(StorageStrings.LOAD_ERROR);
             try {
                 renameCorruptedFile(jsonFile);
+                journal.archive(getBackupSuffix());
             } catch (IOException ex) {
                 ui.printMessage(StorageStrings.NEW_JSON_ERROR);
             }
@@ -90,125 +295,126 @@ public class Storage {
             allWorkouts.reset();
             weeklyProgram.reset();
             workoutLogsManager.reset();
+            return;
         }
 
+        replayJournal(allExercises, allWorkouts, weeklyProgram, workoutLogsManager, snapshotSequence);
     }
 
-    private static void renameCorruptedFile(File jsonFile) throws IOException {
-        String timestamp = new SimpleDateFormat(StorageStrings.BACKUP_DATE_FORMAT)
-                .format(new Date());
-        File oldFile = new File(jsonFile.getParent(),
-                jsonFile.getName() + StorageStrings.OLD_SUFFIX + timestamp);
-        jsonFile.renameTo(oldFile);
-        jsonFile.createNewFile();
-    }
+    /**
+     * Reads the snapshot into the managers.
+     *
+     * @return The sequence number of the last journal entry the snapshot includes.
+     */
+    private long readSnapshot(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                              WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager)
+            throws IOException, Exceptions.ActivityExistsException, Exceptions.ErrorAddingActivity,
+            Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput {
+        if (format == SnapshotFormat.SEGMENTED) {
+            return segmentedStore.load(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
+        }
 
-    private static void loadWeeklyProgram(WorkoutManager allWorkouts, WeeklyProgramManager weeklyProgram,
-        JSONObject jsonArchive)
-            throws Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput, Exceptions.ActivityExistsException {
-        JSONObject jsonWeeklyProgram = jsonArchive.getJSONObject(StorageStrings.WEEKLY_PROGRAM);
+        Path migratedPath = Path.of(filePath + StorageStrings.MIGRATED_SUFFIX);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long bodyLength = SnapshotChecksum.verify(channel);
+            if (format == SnapshotFormat.BINARY) {
+                // the mapping outlives the channel, letting workout logs be paged in after loading
+                MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, bodyLength);
+                return new BinarySnapshotCodec().read(snapshot, allExercises, allWorkouts, weeklyProgram,
+                        workoutLogsManager);
+            }
 
-        assert jsonWeeklyProgram.length() == 7 : "Weekly program array must be length 7";
-        for (Iterator<String> it = jsonWeeklyProgram.keys(); it.hasNext(); ) {
-            String day = it.next();
-            String workout = (String) jsonWeeklyProgram.get(day);
-            if (!workout.isBlank()) {
-                Workout dayWorkout = (Workout) allWorkouts.retrieve(workout);
-                weeklyProgram.assignWorkoutToDay(dayWorkout, day);
+            // the loader and migrator stop at the end of the archive, before the trailer
+            int schemaVersion = new ArchiveMigrator(newJsonReader(channel)).readSchemaVersion();
+            if (schemaVersion == ArchiveMigrator.CURRENT_SCHEMA_VERSION) {
+                return new JsonStreamLoader(newJsonReader(channel)).load(allExercises, allWorkouts, weeklyProgram,
+                        workoutLogsManager);
             }
+            writeAtomically(migratedPath, out -> migrateArchive(newJsonReader(channel), out));
         }
-    }
 
-    private static void loadWorkouts(ExerciseManager allExercises, WorkoutManager allWorkouts, JSONObject jsonArchive)
-            throws Exceptions.ActivityExistsException, Exceptions.ErrorAddingActivity,
-            Exceptions.ActivityDoesNotExist {
-        JSONArray jsonWorkoutArray = jsonArchive.getJSONArray(StorageStrings.WORKOUT_MANAGER);
-        for (int i = 0; i < jsonWorkoutArray.length(); i++) {
-            JSONObject jsonWorkout = jsonWorkoutArray.getJSONObject(i);
-            String workoutName = jsonWorkout.getString(StorageStrings.ACTIVITY_NAME);
-            Workout workout = new Workout(workoutName);
-            allWorkouts.add(workout);
-            JSONArray jsonExercisesInWorkout = jsonWorkout.getJSONArray(
-                    StorageStrings.EXERCISE_LIST);
-            for (int j = 0; j < jsonExercisesInWorkout.length(); j++) {
-                String exerciseInWorkout = jsonExercisesInWorkout.getJSONObject(j)
-                        .getString(StorageStrings.ACTIVITY_NAME);
-                workout.addExercise((Exercise) allExercises.retrieve(exerciseInWorkout));
+        // the migrated archive only replaces the old one once it has loaded, so a bad archive is kept as it was
+        boolean isLoaded = false;
+        long snapshotSequence;
+        try (BufferedReader migratedReader = Files.newBufferedReader(migratedPath, StandardCharsets.UTF_8)) {
+            snapshotSequence = new JsonStreamLoader(migratedReader).load(allExercises, allWorkouts, weeklyProgram,
+                    workoutLogsManager);
+            isLoaded = true;
+        } finally {
+            if (!isLoaded) {
+                Files.deleteIfExists(migratedPath);
             }
         }
+        moveAtomically(migratedPath, filePath);
+        return snapshotSequence;
     }
 
-    private static void loadExercises(ExerciseManager allExercises, JSONObject jsonArchive)
-            throws Exceptions.ActivityExistsException, Exceptions.ErrorAddingActivity {
-        JSONArray jsonExerciseArray = jsonArchive.getJSONArray(StorageStrings.EXERCISE_MANAGER);
-        for (int i = 0; i < jsonExerciseArray.length(); i++) {
-            String exerciseName = jsonExerciseArray.getJSONObject(i).getString(StorageStrings.ACTIVITY_NAME);
-            allExercises.add(new Exercise(exerciseName));
-        }
+    private static BufferedReader newJsonReader(FileChannel channel) throws IOException {
+        return new BufferedReader(Channels.newReader(channel.position(0), StandardCharsets.UTF_8));
     }
 
-    private void loadWorkoutLogs(ExerciseManager allExercises, WorkoutManager allWorkouts,
-                                 JSONObject jsonArchive, WorkoutLogsManager workoutLogsManager)
-            throws Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput {
-        JSONArray jsonWorkoutLogs = jsonArchive.getJSONArray(StorageStrings.WORKOUT_LOG_MANAGER);
-        for (int i = 0; i < jsonWorkoutLogs.length(); i++) {
-            loadWorkoutLog(workoutLogsManager, jsonWorkoutLogs, i);
-        }
+    private static void migrateArchive(BufferedReader archiveReader, OutputStream out) throws IOException {
+        BufferedWriter migratedWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        new ArchiveMigrator(archiveReader).migrate(migratedWriter);
     }
 
-    private static void loadWorkoutLog(WorkoutLogsManager workoutLogsManager, JSONArray jsonWorkoutLogs, int index)
-            throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
-        JSONObject currentWorkout = jsonWorkoutLogs.getJSONObject(index);
-        JSONArray exercisesArray = currentWorkout.getJSONArray(StorageStrings.EXERCISES);
-        String workoutDate = currentWorkout.getString(StorageStrings.WORKOUT_DATE);
-        String workoutName = currentWorkout.getString(StorageStrings.WORKOUT_NAME);
-
-        validateDateString(workoutDate);
-        workoutLogsManager.addWorkoutLog(workoutDate, workoutName);
-
-        for (int j = 0; j < exercisesArray.length(); j++) {
-            loadExerciseLog(workoutLogsManager, exercisesArray, j, workoutDate);
+    /**
+     * Re-applies the commands journaled since the last snapshot, then folds them into a new snapshot.
+     * Entries the snapshot already includes are skipped by their sequence number, as the journal is only
+     * trimmed after the snapshot is written and a crash in between leaves them in place. Entries that fail,
+     * such as a line torn by a crash, are skipped as well.
+     *
+     * @param snapshotSequence The sequence number of the last journal entry the loaded snapshot includes.
+     * @throws IOException If the journal cannot be read or the new snapshot cannot be written.
+     */
+    private void replayJournal(ExerciseManager allExercises, WorkoutManager allWorkouts,
+                               WeeklyProgramManager weeklyProgram, WorkoutLogsManager workoutLogsManager,
+                               long snapshotSequence)
+            throws IOException {
+        List<String> entries = journal.readEntriesAfter(snapshotSequence);
+        if (entries.isEmpty()) {
+            journal.discardThrough(snapshotSequence);
+            return;
         }
-    }
-
-    private static void loadExerciseLog(WorkoutLogsManager workoutLogsManager,
-                                        JSONArray exercisesArray, int index, String workoutDate)
-            throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
-        JSONObject currentExercise = exercisesArray.getJSONObject(index);
-        String exerciseName = currentExercise.getString(StorageStrings.EXERCISE_NAME);
-        JSONArray weightArray = currentExercise.getJSONArray(StorageStrings.WEIGHT);
-        String setsString  = String.valueOf(currentExercise.getInt((StorageStrings.SETS)));
-        JSONArray repsArray = currentExercise.getJSONArray(StorageStrings.REPS);
 
-        String weights = weightArray.join(" ").replaceAll("\"", "");
-        String reps = repsArray.join(" ").replaceAll("\"", "");
-
-        int sets = Integer.parseInt(setsString);
-        validateLogCounts(weightArray.length(), repsArray.length(), sets);
+        CommandProcessor commandProcessor = new CommandProcessor(allExercises, allWorkouts,
+                weeklyProgram, new HelpMenuManager());
+        Parser parser = new Parser();
+        int replayedCount = 0;
+        for (String entry : entries) {
+            try {
+                parser.parseInput(entry);
+                commandProcessor.execute(parser);
+                replayedCount++;
+            } catch (Exceptions.ActivityExistsException | Exceptions.ErrorAddingActivity |
+                     Exceptions.InvalidInput | Exceptions.ActivityDoesNotExist | IllegalStateException |
+                     DateTimeParseException e) {
+                // entry no longer applies, skip it
+            }
+        }
 
-        workoutLogsManager.addExerciseLog(workoutDate, exerciseName,
-                weights, setsString , reps);
+        ui.printMessage(String.format(StorageStrings.JOURNAL_REPLAYED, replayedCount));
+        writeFullSnapshot(allExercises, allWorkouts, weeklyProgram, workoutLogsManager);
     }
 
-    private static void validateLogCounts(int weightCount, int repCount, int sets)
-            throws Exceptions.InvalidInput {
-        if (weightCount != sets || repCount != sets) {
-            throw new Exceptions.InvalidInput("");
+    private boolean hasNoSaveData(File jsonFile) throws IOException {
+        if (format == SnapshotFormat.SEGMENTED) {
+            return segmentedStore.isEmpty();
         }
+        return jsonFile.createNewFile() || jsonFile.length() == 0;
     }
 
-    private static void validateDateString(String workoutDate) throws Exceptions.InvalidInput {
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DayStrings.YEAR_FORMAT);
-            formatter = formatter.withLocale(formatter.getLocale());
-            LocalDate parsedDate = LocalDate.parse(workoutDate, formatter); //ignore result, just catch exception
-            if (!parsedDate.toString().equals(workoutDate)) {
-                throw new Exceptions.InvalidInput("");
-            }
-        } catch (DateTimeParseException e) {
-            throw new Exceptions.InvalidInput(""); //no need for error message, LOAD_ERROR will be printed
+    private void renameCorruptedFile(File jsonFile) throws IOException {
+        File oldFile = new File(jsonFile.getParent(), jsonFile.getName() + getBackupSuffix());
+        jsonFile.renameTo(oldFile);
+        if (format != SnapshotFormat.SEGMENTED) {
+            jsonFile.createNewFile();
         }
     }
 
-
+    private static String getBackupSuffix() {
+        String timestamp = new SimpleDateFormat(StorageStrings.BACKUP_DATE_FORMAT)
+                .format(new Date());
+        return StorageStrings.OLD_SUFFIX + timestamp;
+    }
 }
@@ -0,0 +1,40 @@
+package byteceps.ui;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * User interface that holds the messages printed to it instead of showing them, for a workspace served to
+ * remote users. The messages are taken out and sent along with the next reply. Messages may be printed from
+ * background threads, such as a failing autosave.
+ */
+public class MessageBuffer extends UserInterface {
+    private final StringBuilder messages;
+
+    public MessageBuffer() {
+        super(InputStream.nullInputStream(), new PrintStream(OutputStream.nullOutputStream()));
+        this.messages = new StringBuilder();
+    }
+
+    @Override
+    public synchronized void printMessage(String message) {
+        messages.append(message).append(System.lineSeparator());
+    }
+
+    @Override
+    public synchronized void printMessageNoSeparator(String message) {
+        printMessage(message);
+    }
+
+    /**
+     * Takes every message printed since the messages were last taken.
+     *
+     * @return The messages, one per line, or an empty string if nothing was printed.
+     */
+    public synchronized String takeMessages() {
+        String takenMessages = messages.toString();
+        messages.setLength(0);
+        return takenMessages;
+    }
+}
@@ -8,6 +8,7 @@ public class CommandStrings {
     public static final String COMMAND_HELP = "help";
     public static final String COMMAND_BYE = "bye";
     public static final String COMMAND_EXIT = "exit";
+    public static final String COMMAND_WORKSPACE = "workspace";
     public static final String UNKNOWN_COMMAND = "Unknown Command!";
 
     // Common Actions
@@ -25,6 +26,9 @@ public class CommandStrings {
     public static final String ACTION_UNASSIGN = "unassign";
     public static final String ACTION_INFO = "info";
 
+    // Workspace
+    public static final String ACTION_OPEN = "open";
+
     // WeeklyProgram
     public static final String ACTION_CLEAR = "clear";
     public static final String ACTION_TODAY = "today";
@@ -36,4 +40,14 @@ public class CommandStrings {
     public static final String ARG_REPS = "reps";
     public static final String ARG_WEIGHT = "weight";
     public static final String ARG_DATE = "date";
+    public static final String ARG_EXERCISE = "exercise";
+
+    // Launch options
+    public static final String OPTION_DATA = "--data";
+    public static final String OPTION_CONVERT = "--convert";
+    public static final String OPTION_MIGRATE = "--migrate";
+    public static final String OPTION_SERVE = "--serve";
+    public static final String OPTION_SCRIPT = "--script";
+    public static final String OPTION_BATCH = "--batch";
+    public static final String OPTION_IMPORT_CSV = "--import-csv";
 }
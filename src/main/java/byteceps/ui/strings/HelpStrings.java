@@ -72,7 +72,8 @@ public class HelpStrings {
                 + "/reps <NUMBER_OF_REPS [integer]>",
         "program /log <EXERCISE_NAME [string]> /weight <WEIGHT [integer]> /sets <NUMBER_OF_SETS [integer]> "
                 + "/reps <NUMBER_OF_REPS [integer]> /date <DATE [yyyy-mm-dd]>", "program /history",
-        "program /history <DATE [yyyy-mm-dd]>"
+        "program /history <DATE [yyyy-mm-dd]>",
+        "program /history /exercise <EXERCISE_NAME [string]>"
     };
 
     public static final String EXERCISE_MESSAGE = "Please enter 'help /exercise LIST_NUMBER'. " +
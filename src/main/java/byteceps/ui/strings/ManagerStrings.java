@@ -94,6 +94,10 @@ public class ManagerStrings {
     public static final String LOG_ENTRY_EXERCISE_DOES_NOT_EXIST = "The exercise does not exist and " +
             "cannot be removed from log. Actually, you should not be seeing this message hmm...";
     public static final String LOG_LIST = "Listing Exercises on %s:%n";
+    public static final String EXERCISE_HISTORY = "Listing the days you logged %s:%s";
+    public static final String EXERCISE_HISTORY_EMPTY = "You have not logged %s yet";
+    public static final String INVALID_PROGRAM_HISTORY = "Please give either a date or an exercise name, " +
+            "but not both: program /history <DATE [yyyy-mm-dd]> or program /history /exercise <EXERCISE_NAME [string]>";
     public static final String LOG_LIST_ITEM = "\t\t\t\tSet %d: %d kg, %d reps"
             + System.lineSeparator();
     public static final String TOO_MANY_ARGS = "Extra arguments detected. Make sure you are not using" +
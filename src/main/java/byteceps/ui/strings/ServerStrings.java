@@ -0,0 +1,17 @@
+package byteceps.ui.strings;
+
+public class ServerStrings {
+    public static final String SERVER_LISTENING = "Serving workspaces on port %d, stored in %s";
+    public static final String SERVER_STOPPED = "Server stopped, all workspaces have been saved.";
+    public static final String WORKER_THREAD_NAME = "byteceps-worker";
+    public static final String AUTOSAVE_THREAD_NAME = "byteceps-server-autosave";
+    public static final String WORKSPACE_FILE_FORMAT = "%s.json";
+    public static final String WORKSPACE_NAME_PATTERN = "[A-Za-z0-9_-]{1,64}";
+    public static final String OPEN_WORKSPACE_FIRST = "Please open a workspace first: workspace /open <NAME>";
+    public static final String INVALID_WORKSPACE_NAME = "Workspace names may only contain letters, digits, "
+            + "'-' and '_', and must be at most 64 characters long";
+    public static final String WORKSPACE_OPENED = "Opened workspace %s";
+    public static final String WORKSPACE_ALREADY_OPEN = "This session already has workspace %s open";
+    public static final String WORKSPACE_OPEN_ERROR = "Could not open workspace %s: %s";
+    public static final String LINE_TOO_LONG = "Input lines may be at most %d bytes long";
+}
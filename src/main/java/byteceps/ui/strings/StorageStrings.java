@@ -13,8 +13,57 @@ public class StorageStrings {
     public static final String BACKUP_DATE_FORMAT = "yyyyMMdd_HHmmss";
     public static final String OLD_SUFFIX = ".old_";
     public static final String NEW_JSON_ERROR = "Error: Unable to create a new JSON file.";
+    public static final String JSON_EXPECTED_CHAR = "Expected '%c'";
+    public static final String JSON_EXPECTED_SEPARATOR = "Expected ',' or a closing bracket";
+    public static final String JSON_UNEXPECTED_END = "Archive ended unexpectedly";
+    public static final String JSON_MISSING_SECTION = "Archive is missing a section";
+    public static final String BINARY_EXTENSION = ".bin";
+    public static final String BINARY_UNKNOWN_FORMAT = "Not a BYTE-CEPS binary snapshot";
+    public static final String BINARY_CORRUPT_LOG = "Error: The saved workout log on %s is corrupted.";
+    public static final String TEMP_SUFFIX = ".tmp";
+    public static final String AUTOSAVE_THREAD_NAME = "byteceps-autosave";
+    public static final String CHECKSUM_TRAILER = "\n#crc32 %08x\n";
+    public static final String CHECKSUM_MISMATCH = "Snapshot does not match its checksum";
+    public static final String SEGMENTED_EXTENSION = ".segments";
+    public static final String MANIFEST_FILE = "manifest";
+    public static final String MANIFEST_HEADER = "byteceps-segments 1";
+    public static final String MANIFEST_ENTRY = "%s %d %s";
+    public static final String MANIFEST_JOURNAL_SEQUENCE = "journalSequence %d";
+    public static final String MANIFEST_INVALID = "Not a BYTE-CEPS segment manifest";
+    public static final String SEGMENT_FILE = "%s.%d%s";
+    public static final String SEGMENT_EXTENSION = ".json";
+    public static final String GZIP_EXTENSION = ".gz";
+    public static final String DEFLATE_EXTENSION = ".deflate";
+    public static final String SEGMENT_EXERCISES = "exercises";
+    public static final String SEGMENT_WORKOUTS = "workouts";
+    public static final String SEGMENT_WEEKLY_PROGRAM = "program";
+    public static final String SEGMENT_LOGS_PREFIX = "logs-";
+    public static final String SEGMENT_MISSING = "Snapshot is missing segment %s";
+    public static final String SCHEMA_VERSION = "schemaVersion";
+    public static final String JOURNAL_SEQUENCE = "journalSequence";
+    public static final String JOURNAL_SEQUENCE_INVALID = "Archive has an invalid journal sequence number";
+    public static final String SCHEMA_VERSION_INVALID = "Archive has an unsupported schema version";
+    public static final String MIGRATED_SUFFIX = ".migrated";
+    public static final String MIGRATE_SUCCESS = "Migrated %s from schema version %d to %d.";
+    public static final String MIGRATE_UP_TO_DATE = "%s is already at schema version %d.";
+    public static final String CONVERT_SUCCESS = "Converted %s to %s.";
+    public static final String CSV_DATE_COLUMN = "date";
+    public static final String CSV_HEADER = "date,workout,exercise,weight,reps";
+    public static final String CSV_DEFAULT_WORKOUT = "imported";
+    public static final String CSV_COLUMN_COUNT = "Expected %d columns: " + CSV_HEADER;
+    public static final String CSV_LINE_SKIPPED = "Skipped line %d: %s";
+    public static final String CSV_IMPORTED = "Imported %d sets on %d days in %.2f s (%.0f sets per second), "
+            + "created %d exercises and skipped %d lines.";
+    public static final String JOURNAL_SUFFIX = ".journal";
+    public static final String JOURNAL_DATE_FORMAT = "%s /%s %s";
+    public static final String JOURNAL_REPLAYED = "Recovered %d unsaved change(s) from your last session.";
+    public static final String JOURNAL_ERROR = "Error: Unable to record your change. "
+            + "It will only be saved when you exit.";
+    public static final String AUTOSAVE_ERROR = "Error: Unable to save your changes in the background (%s). "
+            + "They will be saved again after your next change or when you exit.";
     public static final String ACTIVITY_NAME = "activityName";
     public static final String EXERCISE_LIST = "exerciseList";
+    public static final String EXERCISE_SET = "exerciseSet";
     public static final String EXERCISE_NAME = "exerciseName";
     public static final String WEIGHT = "weight";
     public static final String SETS = "sets";
@@ -10,5 +10,13 @@ public class UiStrings {
     public static final String SEPARATOR = "-------------------------------------------------";
     public static final String ERROR_STRING = "Error: %s";
     public static final String MORE_SLASHES_THAN_ARGS = "More slashes than arguments";
+    public static final String SCRIPT_LINE_ERROR = "Line %d: %s";
+    public static final String SCRIPT_FINISHED = "Ran %d commands, %d failed";
+    public static final String SCRIPT_WORKSPACE_OPEN = "A script or import cannot run while the workspace is open";
+    public static final String USAGE = "Usage: byteceps [--data FILE] [--script SCRIPT | --batch | --import-csv CSV]"
+            + System.lineSeparator() + "       byteceps --convert SOURCE TARGET"
+            + System.lineSeparator() + "       byteceps --migrate FILE"
+            + System.lineSeparator() + "       byteceps --serve PORT DIRECTORY";
+    public static final int EXIT_USAGE = 2;
 
 }
@@ -117,6 +117,13 @@ public class WeeklyProgramValidator extends Validator {
     }
 
     private static void validateHistoryAction(Parser parser) throws Exceptions.InvalidInput {
-        validateNumAdditionalArgs(0, 0, parser);
+        validateNumAdditionalArgs(0, 1, parser);
+        if (!parser.hasAdditionalArguments()) {
+            return;
+        }
+        String exerciseName = parser.getAdditionalArguments(CommandStrings.ARG_EXERCISE);
+        if (hasNoInput(exerciseName) || !hasNoInput(parser.getActionParameter())) {
+            throw new Exceptions.InvalidInput(ManagerStrings.INVALID_PROGRAM_HISTORY);
+        }
     }
 }
@@ -3,7 +3,6 @@ package byteceps.validators;
 import byteceps.activities.WorkoutLog;
 import byteceps.errors.Exceptions;
 import byteceps.processing.ExerciseManager;
-import byteceps.ui.UserInterface;
 import byteceps.ui.strings.CommandStrings;
 import byteceps.ui.strings.ManagerStrings;
 
@@ -29,15 +28,35 @@ public class WorkoutLogsValidator extends  Validator {
         }
     }
 
-    public static void removeExerciseIfLogExists(WorkoutLog workoutLog, String exerciseName)
+    public static void hasNegativeInput(int[] weights, int[] reps, int sets) {
+        if (sets < 0) {
+            throw new NumberFormatException();
+        }
+        for (int weight : weights) {
+            if (weight < 0) {
+                throw new NumberFormatException();
+            }
+        }
+        for (int rep : reps) {
+            if (rep < 0) {
+                throw new NumberFormatException();
+            }
+        }
+    }
+
+    /**
+     * Removes the log of an exercise from a workout log if there is one, so that it can be logged again.
+     * Nothing is printed, as the caller may be serving another user; the caller tells the user instead.
+     *
+     * @return true if an earlier log of the exercise was removed, false otherwise.
+     */
+    public static boolean removeExerciseIfLogExists(WorkoutLog workoutLog, String exerciseName)
             throws Exceptions.ActivityDoesNotExist {
         if (!workoutLog.hasExerciseName(exerciseName)) {
-            return; // does not exist and should not do anything
+            return false; // does not exist and should not do anything
         }
 
-        // technically should not print here, but it would be too many layers back to return a message
-        UserInterface ui = UserInterface.getInstance();
-        ui.printMessageNoSeparator(String.format(ManagerStrings.OVERWRITE_EXERCISE_LOG, exerciseName));
         workoutLog.removeExistingLogEntry(exerciseName);
+        return true;
     }
 }
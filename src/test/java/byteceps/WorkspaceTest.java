@@ -0,0 +1,143 @@
+package byteceps;
+
+import byteceps.ui.UserInterface;
+import byteceps.ui.strings.ManagerStrings;
+import byteceps.ui.strings.StorageStrings;
+import byteceps.ui.strings.UiStrings;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceTest {
+    private static final int EXERCISE_COUNT = 300;
+    private static final int READER_COUNT = 4;
+    private static final String ERROR_PREFIX = String.format(UiStrings.ERROR_STRING, "");
+
+    @Test
+    public void execute_readersAlongsideWriter_readersSeeWholeCommands() throws Exception {
+        Path dataDirectory = Files.createTempDirectory("byteceps");
+        Workspace workspace = new Workspace(dataDirectory.resolve("data.json").toString(),
+                UserInterface.getInstance());
+        workspace.open();
+
+        ExecutorService readers = Executors.newFixedThreadPool(READER_COUNT);
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+        List<Future<?>> readerResults = new ArrayList<>();
+        for (int reader = 0; reader < READER_COUNT; reader++) {
+            readerResults.add(readers.submit(() -> {
+                while (isWriting.get()) {
+                    // a reader that saw a half-added exercise would fail with a concurrent modification
+                    assertFalse(workspace.execute("exercise /list").startsWith(ERROR_PREFIX));
+                    assertFalse(workspace.execute("exercise /search squat").startsWith(ERROR_PREFIX));
+                }
+            }));
+        }
+
+        try {
+            for (int exercise = 0; exercise < EXERCISE_COUNT; exercise++) {
+                String reply = workspace.execute("exercise /add squat " + exercise);
+                assertEquals(String.format(ManagerStrings.EXERCISE_ADDED, "squat " + exercise), reply);
+            }
+        } finally {
+            isWriting.set(false);
+            readers.shutdown();
+        }
+        for (Future<?> readerResult : readerResults) {
+            readerResult.get();
+        }
+
+        String listReply = workspace.execute("exercise /list");
+        assertTrue(listReply.contains(String.format(ManagerStrings.ACTIVITY_LIST_ITEM, EXERCISE_COUNT,
+                "squat " + (EXERCISE_COUNT - 1))));
+        workspace.close();
+        assertTrue(Files.readString(dataDirectory.resolve("data.json")).contains("squat " + (EXERCISE_COUNT - 1)));
+    }
+
+    @Test
+    public void runScript_failedLinesAndBye_restAppliedAndSavedOnce() throws Exception {
+        Path dataDirectory = Files.createTempDirectory("byteceps");
+        Path dataPath = dataDirectory.resolve("data.json");
+        Workspace workspace = new Workspace(dataPath.toString(), UserInterface.getInstance());
+        String script = String.join(System.lineSeparator(),
+                "exercise /add squat",
+                "",
+                "exercise /add squat",
+                "workout /create legs",
+                "workout /assign squat /to legs",
+                "bye",
+                "exercise /add lunge");
+
+        int failedCount = workspace.runScript(new BufferedReader(new StringReader(script)));
+
+        assertEquals(1, failedCount);
+        assertTrue(Files.notExists(Path.of(dataPath + StorageStrings.JOURNAL_SUFFIX))
+                || Files.readAllLines(Path.of(dataPath + StorageStrings.JOURNAL_SUFFIX)).isEmpty());
+        workspace.open();
+        String workoutInfo = workspace.execute("workout /info legs");
+        String exerciseList = workspace.execute("exercise /list");
+        workspace.close();
+        assertTrue(workoutInfo.contains("squat"));
+        assertFalse(exerciseList.contains("lunge"));
+    }
+
+    @Test
+    public void runScript_unparsableLogDateAndRepeatedLog_lineFailsAndNothingElsePrinted() throws Exception {
+        Path dataDirectory = Files.createTempDirectory("byteceps");
+        Path dataPath = dataDirectory.resolve("data.json");
+        Workspace workspace = new Workspace(dataPath.toString(), new UserInterface());
+        String script = String.join(System.lineSeparator(),
+                "exercise /add squat",
+                "workout /create legs",
+                "program /assign legs /to monday",
+                "program /log squat /weight 100 /sets 1 /reps 5 /date -0001-01-15",
+                "program /log squat /weight 100 /sets 1 /reps 5 /date 2024-01-15",
+                "program /log squat /weight 110 /sets 1 /reps 5 /date 2024-01-15");
+
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        int failedCount;
+        try {
+            failedCount = workspace.runScript(new BufferedReader(new StringReader(script)));
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        assertEquals(1, failedCount);
+        assertTrue(printed.toString().contains(String.format(UiStrings.SCRIPT_LINE_ERROR, 4, "")));
+        assertFalse(printed.toString().contains(String.format(ManagerStrings.OVERWRITE_EXERCISE_LOG, "squat")));
+        assertTrue(printed.toString().contains(String.format(UiStrings.SCRIPT_FINISHED, 6, 1)));
+    }
+
+    @Test
+    public void execute_unparsableLogDate_errorReturnedAndWorkspaceUsable() throws Exception {
+        Path dataDirectory = Files.createTempDirectory("byteceps");
+        Workspace workspace = new Workspace(dataDirectory.resolve("data.json").toString(), new UserInterface());
+        workspace.open();
+        workspace.execute("exercise /add squat");
+        workspace.execute("workout /create legs");
+        workspace.execute("program /assign legs /to monday");
+
+        String reply = workspace.execute("program /log squat /weight 100 /sets 1 /reps 5 /date -0001-01-15");
+
+        assertTrue(reply.startsWith(ERROR_PREFIX));
+        assertFalse(workspace.execute("program /log squat /weight 100 /sets 1 /reps 5 /date 2024-01-15")
+                .startsWith(ERROR_PREFIX));
+        workspace.close();
+    }
+}
@@ -3,6 +3,7 @@ package byteceps.activities;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -56,6 +57,16 @@ class ActivityTest {
         assertEquals(activity1.hashCode(), activity2.hashCode());
     }
 
+    @Test
+    public void hashCode_nameInDifferentCase_sameHashCodeAndEqual() {
+        Activity activity1 = new Activity("Running");
+        Activity activity2 = new Activity("rUNNING");
+        assertEquals(activity1.hashCode(), activity2.hashCode());
+        assertTrue(activity1.equals(activity2));
+        assertTrue(activity1.hasName("RUNNING"));
+        assertFalse(activity1.hasName("never interned"));
+    }
+
     @Test
     public void equals_sameName_true() {
         Activity activity1 = new Activity("Running");
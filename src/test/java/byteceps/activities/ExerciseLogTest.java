@@ -34,6 +34,15 @@ class ExerciseLogTest {
         assertEquals(weights, exerciseLog.getWeights());
     }
 
+    @Test
+    public void getWeightAndRepetition_primitiveConstructor_returnsPerSetValues() {
+        ExerciseLog primitiveLog = new ExerciseLog(exerciseName, new int[]{100, 105, 110}, sets, new int[]{10, 8, 6});
+        assertEquals(105, primitiveLog.getWeight(1));
+        assertEquals(6, primitiveLog.getRepetition(2));
+        assertEquals(weights, primitiveLog.getWeights());
+        assertEquals(repetitions, primitiveLog.getRepetitions());
+    }
+
     @Test
     public void getRepetitions_whenCalled_returnsCorrectRepetitionsList() {
         assertEquals(repetitions, exerciseLog.getRepetitions());
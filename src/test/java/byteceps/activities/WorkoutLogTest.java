@@ -1,12 +1,16 @@
 package byteceps.activities;
 
+import byteceps.errors.Exceptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class WorkoutLogTest {
@@ -36,6 +40,23 @@ class WorkoutLogTest {
         assertEquals(1, workoutLog.getExerciseLogs().size());
     }
 
+    @Test
+    void removeExistingLogEntry_nameInDifferentCase_logReplacedAtEnd() throws Exceptions.ActivityDoesNotExist {
+        ExerciseLog squatLog = new ExerciseLog("Squat", List.of(100), 1, List.of(10));
+        ExerciseLog deadliftLog = new ExerciseLog("Deadlift", List.of(120), 1, List.of(5));
+        workoutLog.addExerciseLog(squatLog);
+        workoutLog.addExerciseLog(deadliftLog);
+
+        assertTrue(workoutLog.hasExerciseName("SQUAT"));
+        workoutLog.removeExistingLogEntry("squat");
+        ExerciseLog newSquatLog = new ExerciseLog("squat", List.of(110), 1, List.of(8));
+        workoutLog.addExerciseLog(newSquatLog);
+
+        assertEquals(List.of(deadliftLog, newSquatLog), new ArrayList<>(workoutLog.getExerciseLogs()));
+        assertFalse(workoutLog.getExerciseLogs().contains(squatLog));
+        assertThrows(Exceptions.ActivityDoesNotExist.class, () -> workoutLog.removeExistingLogEntry("bench press"));
+    }
+
     @Test
     void getWorkoutName_workoutName_workoutNameReturned() {
         assertEquals("Leg Day", workoutLog.getWorkoutName());
@@ -0,0 +1,63 @@
+package byteceps.benchmarks;
+
+import byteceps.errors.Exceptions;
+import byteceps.processing.WorkoutLogsManager;
+
+import java.time.LocalDate;
+
+/**
+ * Measures the heap retained by logged workouts: every day gets a workout log with six exercise logs of
+ * four sets each, and the heap in use is compared before and after, each time after forcing garbage
+ * collection. Run it on two checkouts to compare how exercise logs are stored.
+ *
+ * <p>Not part of the test suite. After {@code ./gradlew testClasses}, run
+ * {@code java -cp build/classes/java/main:build/classes/java/test:<org.json jar>
+ * byteceps.benchmarks.ExerciseLogMemoryBenchmark DAYS [WEIGHTS]}, where WEIGHTS defaults to "60 70 80 90".
+ * Weights above 127 are not covered by the Integer cache, so "100 120 150 180" shows the cost of boxing.
+ */
+public class ExerciseLogMemoryBenchmark {
+    private static final int EXERCISE_COUNT = 50;
+    private static final int EXERCISES_PER_DAY = 6;
+    private static final int GC_ROUNDS = 5;
+    private static final int BYTES_PER_KB = 1024;
+    private static final String DEFAULT_WEIGHTS = "60 70 80 90";
+    private static final String SETS = "4";
+    private static final String REPETITIONS = "10 8 6 4";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2000, 1, 1);
+
+    public static void main(String[] args) throws Exceptions.InvalidInput, Exceptions.ActivityDoesNotExist {
+        int days = Integer.parseInt(args[0]);
+        String weights = args.length > 1 ? args[1] : DEFAULT_WEIGHTS;
+        String[] exerciseNames = new String[EXERCISE_COUNT];
+        for (int i = 0; i < EXERCISE_COUNT; i++) {
+            exerciseNames[i] = "exercise number " + i;
+        }
+
+        long heapBefore = usedHeap();
+        WorkoutLogsManager workoutLogsManager = new WorkoutLogsManager();
+        for (int day = 0; day < days; day++) {
+            String date = FIRST_DAY.plusDays(day).toString();
+            workoutLogsManager.addWorkoutLog(date, "full body");
+            for (int exercise = 0; exercise < EXERCISES_PER_DAY; exercise++) {
+                workoutLogsManager.addExerciseLog(date, exerciseNames[(day + exercise) % EXERCISE_COUNT],
+                        weights, SETS, REPETITIONS);
+            }
+        }
+        long heapAfter = usedHeap();
+
+        long retainedBytes = heapAfter - heapBefore;
+        System.out.printf("%d days, %d exercise logs: %d KB retained, %.1f bytes per exercise log%n", days,
+                days * EXERCISES_PER_DAY, retainedBytes / BYTES_PER_KB,
+                (double) retainedBytes / (days * EXERCISES_PER_DAY));
+        // keeps the logs reachable until the heap has been measured
+        System.out.println(workoutLogsManager.getActivityList().size() + " workout logs");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
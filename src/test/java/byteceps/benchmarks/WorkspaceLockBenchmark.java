@@ -0,0 +1,126 @@
+package byteceps.benchmarks;
+
+import byteceps.Workspace;
+import byteceps.ui.MessageBuffer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures contention on a workspace shared by concurrent commands. The workspace holds 2000 exercises and
+ * 200 workouts; READERS threads cycle through exercise search, workout info and workout list, while one
+ * writer thread adds or deletes an exercise every millisecond. Prints the throughput and average latency
+ * of reads and writes.
+ *
+ * <p>Not part of the test suite. After {@code ./gradlew testClasses}, run
+ * {@code java -cp build/classes/java/main:build/classes/java/test:<org.json jar>
+ * byteceps.benchmarks.WorkspaceLockBenchmark READERS MILLISECONDS [--no-writer]}.
+ */
+public class WorkspaceLockBenchmark {
+    private static final int EXERCISE_COUNT = 2000;
+    private static final int WORKOUT_COUNT = 200;
+    private static final int EXERCISES_PER_WORKOUT = 5;
+    private static final long WRITER_PAUSE_MILLIS = 1;
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private static final double MILLIS_PER_SECOND = 1000.0;
+    private static final String NO_WRITER = "--no-writer";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int readerCount = Integer.parseInt(args[0]);
+        long durationMillis = Long.parseLong(args[1]);
+        boolean hasWriter = !(args.length > 2 && args[2].equals(NO_WRITER));
+
+        Path dataDirectory = Files.createTempDirectory("byteceps-benchmark");
+        Workspace workspace = new Workspace(dataDirectory.resolve("data.json").toString(), new MessageBuffer());
+        workspace.open();
+        populate(workspace);
+
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        LongAdder readNanos = new LongAdder();
+        LongAdder writes = new LongAdder();
+        LongAdder writeNanos = new LongAdder();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readerCount; i++) {
+            threads.add(new Thread(() -> runReader(workspace, isRunning, reads, readNanos)));
+        }
+        if (hasWriter) {
+            threads.add(new Thread(() -> runWriter(workspace, isRunning, writes, writeNanos)));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(durationMillis);
+        isRunning.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        workspace.close();
+
+        System.out.printf("readers=%d reads/s=%.0f avgRead=%.1fus writes/s=%.0f avgWrite=%.1fus%n", readerCount,
+                reads.sum() * MILLIS_PER_SECOND / durationMillis, average(readNanos, reads),
+                writes.sum() * MILLIS_PER_SECOND / durationMillis, average(writeNanos, writes));
+    }
+
+    private static void populate(Workspace workspace) {
+        for (int i = 0; i < EXERCISE_COUNT; i++) {
+            workspace.execute("exercise /add ex" + i);
+        }
+        for (int i = 0; i < WORKOUT_COUNT; i++) {
+            workspace.execute("workout /create w" + i);
+            for (int j = 0; j < EXERCISES_PER_WORKOUT; j++) {
+                workspace.execute("workout /assign ex" + (i * EXERCISES_PER_WORKOUT + j) + " /to w" + i);
+            }
+        }
+        // builds the lazily created search index before timing starts
+        workspace.execute("exercise /search ex1");
+    }
+
+    private static void runReader(Workspace workspace, AtomicBoolean isRunning, LongAdder reads,
+                                  LongAdder readNanos) {
+        for (int i = 0; isRunning.get(); i++) {
+            String command;
+            switch (i % 3) {
+            case 0:
+                command = "exercise /search ex1";
+                break;
+            case 1:
+                command = "workout /info w" + (i % WORKOUT_COUNT);
+                break;
+            default:
+                command = "workout /list";
+                break;
+            }
+            long start = System.nanoTime();
+            workspace.execute(command);
+            readNanos.add(System.nanoTime() - start);
+            reads.increment();
+        }
+    }
+
+    private static void runWriter(Workspace workspace, AtomicBoolean isRunning, LongAdder writes,
+                                  LongAdder writeNanos) {
+        for (int i = 0; isRunning.get(); i++) {
+            String command = i % 2 == 0 ? "exercise /add tmp" + (i / 2) : "exercise /delete tmp" + (i / 2);
+            long start = System.nanoTime();
+            workspace.execute(command);
+            writeNanos.add(System.nanoTime() - start);
+            writes.increment();
+            try {
+                Thread.sleep(WRITER_PAUSE_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static double average(LongAdder totalNanos, LongAdder count) {
+        return count.sum() == 0 ? 0 : totalNanos.sum() / NANOS_PER_MICRO / count.sum();
+    }
+}
@@ -0,0 +1,79 @@
+package byteceps.processing;
+
+import byteceps.activities.Exercise;
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.Workout;
+import byteceps.errors.Exceptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DomainSnapshotTest {
+    private ExerciseManager exerciseManager;
+    private WorkoutManager workoutManager;
+    private WorkoutLogsManager workoutLogsManager;
+    private WeeklyProgramManager weeklyProgramManager;
+
+    @BeforeEach
+    void setUp() throws Exceptions.ActivityExistsException, Exceptions.ActivityDoesNotExist,
+            Exceptions.InvalidInput {
+        exerciseManager = new ExerciseManager();
+        workoutManager = new WorkoutManager(exerciseManager);
+        workoutLogsManager = new WorkoutLogsManager();
+        weeklyProgramManager = new WeeklyProgramManager(exerciseManager, workoutManager, workoutLogsManager);
+
+        Exercise squat = new Exercise("squat");
+        exerciseManager.add(squat);
+        Workout legs = new Workout("legs");
+        workoutManager.add(legs);
+        workoutManager.addExerciseToWorkout(legs, squat);
+        weeklyProgramManager.assignWorkoutToDay(legs, "MONDAY");
+        workoutLogsManager.addWorkoutLog("2024-01-15", "legs");
+        workoutLogsManager.replaceExerciseLog("2024-01-15", new ExerciseLog("squat", new int[]{100}, 1, new int[]{5}));
+    }
+
+    @Test
+    public void take_managersChangedAfterwards_snapshotUnchanged() throws Exceptions.ActivityDoesNotExist,
+            Exceptions.ActivityExistsException {
+        DomainSnapshot snapshot = DomainSnapshot.take(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager, 0, null);
+
+        exerciseManager.add(new Exercise("deadlift"));
+        workoutManager.delete(workoutManager.retrieve("legs"));
+        workoutLogsManager.replaceExerciseLog("2024-01-15", new ExerciseLog("squat", new int[]{120}, 1, new int[]{3}));
+
+        assertEquals(List.of("squat"), snapshot.getExerciseNames());
+        assertEquals(List.of("squat"), snapshot.getWorkouts().get("legs"));
+        assertEquals("legs", snapshot.getProgram().get(0));
+        assertNull(snapshot.getProgram().get(1));
+        assertEquals(List.of("2024-01-15"), snapshot.getWorkoutLogDates());
+        ExerciseLog squatLog = snapshot.getWorkoutLog("2024-01-15").getExerciseLogs().iterator().next();
+        assertEquals(100, squatLog.getWeight(0));
+    }
+
+    @Test
+    public void take_onlyNewMonthLogged_sharesUnchangedParts() throws Exceptions.ActivityDoesNotExist {
+        DomainSnapshot first = DomainSnapshot.take(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager, 0, null);
+        workoutLogsManager.addWorkoutLog("2024-02-05", "legs");
+        workoutLogsManager.replaceExerciseLog("2024-02-05", new ExerciseLog("squat", new int[]{105}, 1, new int[]{5}));
+        DomainSnapshot second = DomainSnapshot.take(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager, 0, first);
+
+        assertSame(first.getExerciseNames(), second.getExerciseNames());
+        assertSame(first.getWorkouts(), second.getWorkouts());
+        assertSame(first.getProgram(), second.getProgram());
+        assertEquals(first.getMonthModificationCount(YearMonth.of(2024, 1)),
+                second.getMonthModificationCount(YearMonth.of(2024, 1)));
+        assertEquals(-1, first.getMonthModificationCount(YearMonth.of(2024, 2)));
+        assertEquals(List.of("2024-01-15", "2024-02-05"), second.getWorkoutLogDates());
+        assertNotSame(second.getWorkoutLog("2024-01-15"), second.getWorkoutLog("2024-01-15"));
+    }
+}
@@ -8,10 +8,13 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ExerciseManagerTest {
     private Parser parser;
@@ -52,6 +55,29 @@ class ExerciseManagerTest {
         assertDoesNotThrow(() -> exerciseManager.execute(parser));
     }
 
+    @Test
+    public void execute_unknownNamesTyped_nameTableNotGrown() {
+        assertDoesNotThrow(() -> parser.parseInput("exercise /add Pushups"));
+        assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        int nameCount = exerciseManager.getNameTable().size();
+
+        for (String input : List.of("exercise /delete pushup", "exercise /edit PUSHUPZ /to squats",
+                "exercise /search Pushupss")) {
+            assertDoesNotThrow(() -> parser.parseInput(input));
+            assertDoesNotThrow(() -> {
+                try {
+                    exerciseManager.execute(parser);
+                } catch (Exceptions.ActivityDoesNotExist ignored) {
+                    // misspelt names are expected not to be found
+                }
+            });
+        }
+        assertTrue(exerciseManager.doesNotHaveActivity("PUSHUPZ"));
+
+        assertEquals(nameCount, exerciseManager.getNameTable().size());
+        assertEquals(0, new ExerciseManager().getNameTable().size());
+    }
+
     @Test
     public void execute_addEmptyNameExercise_throwsInvalidInput() {
         String emptyInput = "exercise /add";
@@ -275,6 +301,74 @@ class ExerciseManagerTest {
         restoreStreams();
     }
 
+    @Test
+    public void execute_searchWordPrefix_findsRenamedAndSkipsDeleted() {
+        String[] inputs = {"exercise /add Incline Bench", "exercise /add Bench Press", "exercise /add Squat",
+            "exercise /add Bent Over Row", "exercise /edit squat /to Back Squat", "exercise /delete bent over row"};
+        for (String input : inputs) {
+            assertDoesNotThrow(() -> parser.parseInput(input));
+            assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        }
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /search BEN"));
+        String searchResults = assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        assertTrue(searchResults.contains("1. incline bench"));
+        assertTrue(searchResults.contains("2. bench press"));
+        assertFalse(searchResults.contains("bent over row"));
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /search squ"));
+        assertTrue(assertDoesNotThrow(() -> exerciseManager.execute(parser)).contains("1. back squat"));
+        assertEquals(List.of("back squat", "bench press"), exerciseManager.getNameCompletions("B", 2));
+        assertEquals(List.of(), exerciseManager.getNameCompletions("squat", 5));
+    }
+
+    @Test
+    public void execute_searchMisspeltName_ranksSimilarNames() {
+        String[] inputs = {"exercise /add Deadlift", "exercise /add Romanian Deadlift", "exercise /add Bench Press",
+            "exercise /add Leg Press", "exercise /delete leg press"};
+        for (String input : inputs) {
+            assertDoesNotThrow(() -> parser.parseInput(input));
+            assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        }
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /search deadlfit"));
+        String searchResults = assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        assertTrue(searchResults.contains("1. deadlift"));
+        assertTrue(searchResults.contains("2. romanian deadlift"));
+        assertFalse(searchResults.contains("bench press"));
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /search bench pres"));
+        searchResults = assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        assertTrue(searchResults.contains("1. bench press"));
+        assertFalse(searchResults.contains("leg press"));
+    }
+
+    @Test
+    public void execute_searchInsideWord_findsNamesContainingTerm() {
+        String[] inputs = {"exercise /add benchpress", "exercise /add pushup", "exercise /add incline pushup",
+            "exercise /add squat", "exercise /delete squat"};
+        for (String input : inputs) {
+            assertDoesNotThrow(() -> parser.parseInput(input));
+            assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        }
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /search ush"));
+        String searchResults = assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        assertTrue(searchResults.contains("1. incline pushup"));
+        assertTrue(searchResults.contains("2. pushup"));
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /search UP"));
+        searchResults = assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        assertTrue(searchResults.contains("incline pushup"));
+        assertTrue(searchResults.contains("pushup"));
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /search ench"));
+        assertTrue(assertDoesNotThrow(() -> exerciseManager.execute(parser)).contains("1. benchpress"));
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /search quat"));
+        assertFalse(assertDoesNotThrow(() -> exerciseManager.execute(parser)).contains("squat"));
+    }
+
     @Test
     public void execute_searchNonexistentExercise_emptyResult() {
         setUpStreams();
@@ -311,5 +405,40 @@ class ExerciseManagerTest {
         assertDoesNotThrow(() -> parser.parseInput(invalidInput));
         assertThrows(Exceptions.InvalidInput.class, () -> exerciseManager.execute(parser));
     }
-}
 
+    @Test
+    public void retrieve_afterEdit_indexUpdated() {
+        String addInput = "exercise /add Pushups";
+        assertDoesNotThrow(() -> parser.parseInput(addInput));
+        assertDoesNotThrow(() -> exerciseManager.execute(parser));
+
+        String editInput = "exercise /edit Pushups /to Pullups";
+        assertDoesNotThrow(() -> parser.parseInput(editInput));
+        assertDoesNotThrow(() -> exerciseManager.execute(parser));
+
+        assertTrue(exerciseManager.doesNotHaveActivity("pushups"));
+        assertFalse(exerciseManager.doesNotHaveActivity("pullups"));
+        assertThrows(Exceptions.ActivityDoesNotExist.class, () -> exerciseManager.retrieve("pushups"));
+        assertEquals("pullups",
+                assertDoesNotThrow(() -> exerciseManager.retrieve("pullups")).getActivityName());
+    }
+
+    @Test
+    public void retrieve_afterDeleteAndReset_indexUpdated() {
+        String[] addInputs = {"exercise /add Pushups", "exercise /add Squats"};
+        for (String addInput : addInputs) {
+            assertDoesNotThrow(() -> parser.parseInput(addInput));
+            assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        }
+
+        String deleteInput = "exercise /delete Pushups";
+        assertDoesNotThrow(() -> parser.parseInput(deleteInput));
+        assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        assertTrue(exerciseManager.doesNotHaveActivity("pushups"));
+        assertFalse(exerciseManager.doesNotHaveActivity("squats"));
+
+        exerciseManager.reset();
+        assertTrue(exerciseManager.doesNotHaveActivity("squats"));
+        assertThrows(Exceptions.ActivityDoesNotExist.class, () -> exerciseManager.retrieve("squats"));
+    }
+}
@@ -403,6 +403,32 @@ class WeeklyProgramManagerTest {
         restoreStreams();
     }
 
+    @Test
+    void log_historyOfExercise_listsEachDayOnceInDateOrder() throws Exceptions.InvalidInput {
+        String[] inputs = {"program /assign full day /to monday", "program /assign leg day /to wednesday",
+            "program /log benchpress /weight 50 /sets 1 /reps 5 /date 2024-03-25",
+            "program /log deadlift /weight 90 /sets 1 /reps 5 /date 2024-03-20",
+            "program /log benchpress /weight 45 /sets 1 /reps 5 /date 2024-03-18",
+            "program /log benchpress /weight 55 /sets 1 /reps 5 /date 2024-03-25"};
+        for (String input : inputs) {
+            parser.parseInput(input);
+            assertDoesNotThrow(() -> weeklyProgramManager.execute(parser));
+        }
+
+        parser.parseInput("program /history /exercise BenchPress");
+        String expectedHistory = "Listing the days you logged BenchPress:" + System.lineSeparator()
+                + "\t\t\t1. 2024-03-18" + System.lineSeparator()
+                + "\t\t\t2. 2024-03-25" + System.lineSeparator();
+        assertEquals(expectedHistory, assertDoesNotThrow(() -> weeklyProgramManager.execute(parser)));
+
+        parser.parseInput("program /history /exercise barbell squat");
+        assertEquals("You have not logged barbell squat yet",
+                assertDoesNotThrow(() -> weeklyProgramManager.execute(parser)));
+
+        parser.parseInput("program /history 2024-03-25 /exercise benchpress");
+        assertThrows(Exceptions.InvalidInput.class, () -> weeklyProgramManager.execute(parser));
+    }
+
     @Test
     void log_historyInvalidDate_throwsInvalidInput() {
         String assignWorkoutInput = "program /assign full day /to monday";
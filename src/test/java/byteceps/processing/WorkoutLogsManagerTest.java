@@ -9,11 +9,15 @@ import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
 import java.util.LinkedHashSet;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -142,4 +146,89 @@ class WorkoutLogsManagerTest {
         assertEquals(1, exercises.length());
     }
 
+    @Test
+    public void getWorkoutLogDates_addedOutOfOrder_returnsDateOrder() {
+        workoutLogsManager.addWorkoutLog("2023-04-03", "Leg Day");
+        workoutLogsManager.addWorkoutLog("2022-12-31", "Leg Day");
+        workoutLogsManager.addWorkoutLog("2023-04-01", "Leg Day");
+
+        assertEquals(List.of("2022-12-31", "2023-04-01", "2023-04-03"), workoutLogsManager.getWorkoutLogDates());
+        String history = workoutLogsManager.getListString();
+        assertTrue(history.indexOf("2022-12-31") < history.indexOf("2023-04-01"));
+        assertTrue(history.indexOf("2023-04-01") < history.indexOf("2023-04-03"));
+    }
+
+    @Test
+    public void getWorkoutLogsBetween_validRange_returnsLogsInRange() {
+        for (String date : new String[]{"2023-04-05", "2023-03-31", "2023-04-01", "2023-04-03"}) {
+            workoutLogsManager.addWorkoutLog(date, "Leg Day");
+        }
+
+        List<WorkoutLog> logs = workoutLogsManager.getWorkoutLogsBetween(LocalDate.of(2023, 4, 1),
+                LocalDate.of(2023, 4, 4));
+        assertEquals(2, logs.size());
+        assertEquals("2023-04-01", logs.get(0).getWorkoutDate());
+        assertEquals("2023-04-03", logs.get(1).getWorkoutDate());
+        assertTrue(workoutLogsManager.getWorkoutLogsBetween(LocalDate.of(2023, 4, 6),
+                LocalDate.of(2023, 5, 1)).isEmpty());
+    }
+
+    @Test
+    public void parseLogValues_spaceSeparated_returnsValues() {
+        assertArrayEquals(new int[]{60, 70, 80}, WorkoutLogsManager.parseLogValues("60 70 80"));
+        assertArrayEquals(new int[]{60}, WorkoutLogsManager.parseLogValues("60  "));
+        assertThrows(NumberFormatException.class, () -> WorkoutLogsManager.parseLogValues("60  70"));
+        assertThrows(NumberFormatException.class, () -> WorkoutLogsManager.parseLogValues(""));
+        assertThrows(NumberFormatException.class, () -> WorkoutLogsManager.parseLogValues("60 kg"));
+    }
+
+    @Test
+    public void getExerciseLogColumns_logsAddedAndOverwritten_aggregatesUpdated() {
+        workoutLogsManager.addWorkoutLog("2023-04-01", "Leg Day");
+        assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2023-04-01", "Squats", "100 120",
+                "2", "10 5"));
+        ExerciseLogColumns columns = workoutLogsManager.getExerciseLogColumns();
+        assertEquals(1600, columns.getTotalVolume("squats"));
+
+        workoutLogsManager.addWorkoutLog("2023-04-03", "Leg Day");
+        assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2023-04-03", "Squats", "120",
+                "1", "8"));
+        assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2023-04-01", "Squats", "100",
+                "1", "10"));
+
+        assertEquals(2, columns.size());
+        assertEquals(1000 + 960, columns.getTotalVolume("Squats"));
+        assertArrayEquals(new int[]{120, 8}, columns.getBestSet("Squats"));
+        assertEquals(2, columns.getFrequency("Squats"));
+        assertEquals(0, columns.getFrequency("Deadlift"));
+        assertNull(columns.getBestSet("Deadlift"));
+    }
+
+    @Test
+    public void getExerciseLogColumns_logsRepeatedlyOverwrittenAndDeleted_deletedRowsNotCounted() {
+        workoutLogsManager.addWorkoutLog("2023-04-01", "Leg Day");
+        workoutLogsManager.addWorkoutLog("2023-04-02", "Leg Day");
+        assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2023-04-02", "Lunges", "20 20",
+                "2", "12 12"));
+        ExerciseLogColumns columns = workoutLogsManager.getExerciseLogColumns();
+        for (int weight = 100; weight <= 110; weight++) {
+            String weights = weight + " " + weight;
+            assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2023-04-01", "Squats", weights,
+                    "2", "5 5"));
+            assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2023-04-01", "Deadlift", "150",
+                    "1", "3"));
+        }
+
+        assertEquals(5, columns.size());
+        assertEquals(1100, columns.getTotalVolume("Squats"));
+        assertEquals(480, columns.getTotalVolume("lunges"));
+        assertEquals(1, columns.getFrequency("Deadlift"));
+
+        assertDoesNotThrow(() -> workoutLogsManager.delete(
+                workoutLogsManager.retrieve("2023-04-01")));
+        assertEquals(2, columns.size());
+        assertEquals(0, columns.getTotalVolume("Squats"));
+        assertNull(columns.getBestSet("Deadlift"));
+        assertArrayEquals(new int[]{20, 12}, columns.getBestSet("Lunges"));
+    }
 }
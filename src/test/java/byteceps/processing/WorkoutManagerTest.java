@@ -1,5 +1,6 @@
 package byteceps.processing;
 
+import byteceps.activities.Workout;
 import byteceps.commands.Parser;
 import byteceps.errors.Exceptions;
 
@@ -10,10 +11,12 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class WorkoutManagerTest {
 
@@ -458,4 +461,28 @@ class WorkoutManagerTest {
         parser.parseInput(searchInput);
         assertThrows(Exceptions.InvalidInput.class, () -> workoutManager.execute(parser));
     }
+
+    @Test
+    public void getWorkoutsContaining_assignRenameUnassign_indexUpdated() {
+        WorkoutLogsManager workoutLogsManager = new WorkoutLogsManager();
+        CommandProcessor commandProcessor = new CommandProcessor(exerciseManager, workoutManager,
+                new WeeklyProgramManager(exerciseManager, workoutManager, workoutLogsManager), new HelpMenuManager());
+        String[] inputs = {"exercise /add squat", "workout /create leg day", "workout /create full body",
+            "workout /assign squat /to leg day", "workout /assign squat /to full body",
+            "exercise /edit squat /to back squat", "workout /unassign back squat /from leg day"};
+        for (String input : inputs) {
+            assertDoesNotThrow(() -> parser.parseInput(input));
+            assertDoesNotThrow(() -> commandProcessor.execute(parser));
+        }
+
+        assertTrue(workoutManager.getWorkoutsContaining("squat").isEmpty());
+        List<Workout> workouts = workoutManager.getWorkoutsContaining("Back Squat");
+        assertEquals(1, workouts.size());
+        assertEquals("full body", workouts.get(0).getActivityName());
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /delete back squat"));
+        assertDoesNotThrow(() -> commandProcessor.execute(parser));
+        assertTrue(workoutManager.getWorkoutsContaining("back squat").isEmpty());
+        assertTrue(workouts.get(0).getExerciseList().isEmpty());
+    }
 }
@@ -0,0 +1,160 @@
+package byteceps.server;
+
+import byteceps.ui.UserInterface;
+import byteceps.ui.strings.ManagerStrings;
+import byteceps.ui.strings.ServerStrings;
+import byteceps.ui.strings.StorageStrings;
+import byteceps.ui.strings.UiStrings;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandServerTest {
+    private static final int REPLY_TIMEOUT_MILLIS = 10000;
+
+    @Test
+    public void serve_twoWorkspaces_keptApartAndSavedOnClose() throws IOException, InterruptedException {
+        Path dataDirectory = Files.createTempDirectory("byteceps");
+        CommandServer server = new CommandServer(0, dataDirectory, UserInterface.getInstance());
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.start();
+
+        try (Client alice = new Client(server.getPort()); Client bob = new Client(server.getPort())) {
+            assertTrue(bob.send("exercise /list").contains(ServerStrings.OPEN_WORKSPACE_FIRST));
+            assertTrue(bob.send("workspace /open ../bob").contains(ServerStrings.INVALID_WORKSPACE_NAME));
+
+            assertTrue(alice.send("workspace /open alice").contains(String.format(
+                    ServerStrings.WORKSPACE_OPENED, "alice")));
+            assertTrue(bob.send("workspace /open bob").contains(String.format(
+                    ServerStrings.WORKSPACE_OPENED, "bob")));
+            assertTrue(alice.send("exercise /add squat").contains("squat"));
+            assertFalse(bob.send("exercise /list").contains("squat"));
+            assertTrue(alice.send("exercise /list").contains("squat"));
+            assertTrue(alice.send("bye").contains(UiStrings.MESSAGE_GOODBYE));
+        } finally {
+            server.close();
+            serverThread.join();
+        }
+
+        assertTrue(Files.readString(dataDirectory.resolve("alice.json")).contains("squat"));
+        Path bobPath = dataDirectory.resolve("bob.json");
+        assertTrue(Files.notExists(bobPath) || !Files.readString(bobPath).contains("squat"));
+    }
+
+    @Test
+    public void serve_workspaceMessages_sentInReplyNotPrinted() throws IOException, InterruptedException {
+        Path dataDirectory = Files.createTempDirectory("byteceps");
+        Files.write(dataDirectory.resolve("alice.json" + StorageStrings.JOURNAL_SUFFIX), List.of(
+                "1\texercise /add squat", "2\tworkout /create legs", "3\tprogram /assign legs /to monday"));
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream serverOut = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(serverOut));
+        CommandServer server = new CommandServer(0, dataDirectory, new UserInterface());
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.start();
+
+        String logInput = "program /log squat /weight 100 /sets 1 /reps 5 /date 2024-01-15";
+        try (Client alice = new Client(server.getPort())) {
+            assertTrue(alice.send("workspace /open alice").contains(String.format(
+                    StorageStrings.JOURNAL_REPLAYED, 3)));
+            assertFalse(alice.send(logInput).contains(String.format(ManagerStrings.OVERWRITE_EXERCISE_LOG, "squat")));
+            assertTrue(alice.send(logInput).contains(String.format(ManagerStrings.OVERWRITE_EXERCISE_LOG, "squat")));
+            alice.send("bye");
+        } finally {
+            server.close();
+            serverThread.join();
+            System.setOut(originalOut);
+        }
+
+        String printed = serverOut.toString();
+        assertFalse(printed.contains(String.format(StorageStrings.JOURNAL_REPLAYED, 3)));
+        assertFalse(printed.contains(String.format(ManagerStrings.OVERWRITE_EXERCISE_LOG, "squat")));
+        assertFalse(printed.contains(StorageStrings.LOADING));
+    }
+
+    @Test
+    public void serve_unparsableLogDate_errorRepliedAndSessionKeepsServing() throws IOException,
+            InterruptedException {
+        Path dataDirectory = Files.createTempDirectory("byteceps");
+        Files.write(dataDirectory.resolve("alice.json" + StorageStrings.JOURNAL_SUFFIX), List.of(
+                "1\texercise /add squat", "2\tworkout /create legs", "3\tprogram /assign legs /to monday"));
+        CommandServer server = new CommandServer(0, dataDirectory, new UserInterface());
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.start();
+
+        try (Client alice = new Client(server.getPort())) {
+            alice.send("workspace /open alice");
+            String reply = alice.send("program /log squat /weight 100 /sets 1 /reps 5 /date -0001-01-15");
+            assertTrue(reply.contains(String.format(UiStrings.ERROR_STRING, "Text '-0001-01-15'")));
+            assertTrue(alice.send("exercise /list").contains("squat"));
+            assertTrue(alice.send("bye").contains(UiStrings.MESSAGE_GOODBYE));
+        } finally {
+            server.close();
+            serverThread.join();
+        }
+    }
+
+    /**
+     * A client that sends one line at a time and reads the reply up to its separator line.
+     */
+    private static class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(REPLY_TIMEOUT_MILLIS);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        String send(String line) throws IOException {
+            out.println(line);
+            StringBuilder reply = new StringBuilder();
+            String replyLine = in.readLine();
+            while (replyLine != null && !replyLine.equals(UiStrings.SEPARATOR)) {
+                reply.append(replyLine).append(System.lineSeparator());
+                replyLine = in.readLine();
+            }
+            return reply.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package byteceps.storage;
+
+import byteceps.activities.Exercise;
+import byteceps.errors.Exceptions;
+import byteceps.processing.DomainSnapshot;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.WeeklyProgramManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.processing.WorkoutManager;
+import byteceps.ui.MessageBuffer;
+import byteceps.ui.UserInterface;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AutosaveServiceTest {
+
+    @Test
+    public void changeRecorded_managerChanged_savesInBackground()
+            throws IOException, InterruptedException, Exceptions.ActivityExistsException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path jsonPath = tempFolder.resolve("data.json");
+        ExerciseManager exerciseManager = new ExerciseManager();
+        WorkoutManager workoutManager = new WorkoutManager(exerciseManager);
+        WorkoutLogsManager workoutLogsManager = new WorkoutLogsManager();
+        WeeklyProgramManager weeklyProgramManager = new WeeklyProgramManager(exerciseManager, workoutManager,
+                workoutLogsManager);
+        Storage storage = new Storage(jsonPath.toString(), UserInterface.getInstance());
+
+        AutosaveService autosave = new AutosaveService(storage, exerciseManager, workoutManager,
+                weeklyProgramManager, workoutLogsManager, 10);
+        assertFalse(autosave.hasUnsavedChanges());
+
+        exerciseManager.add(new Exercise("deadlift"));
+        assertTrue(autosave.hasUnsavedChanges());
+        autosave.changeRecorded();
+        for (int attempt = 0; attempt < 200 && autosave.hasUnsavedChanges(); attempt++) {
+            Thread.sleep(10);
+        }
+        autosave.close();
+
+        assertFalse(autosave.hasUnsavedChanges());
+        assertTrue(Files.readString(jsonPath).contains("deadlift"));
+
+        Files.deleteIfExists(jsonPath);
+        Files.deleteIfExists(tempFolder);
+    }
+
+    @Test
+    public void changeRecorded_saveThrowsUnexpectedly_errorReported()
+            throws IOException, InterruptedException, Exceptions.ActivityExistsException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        ExerciseManager exerciseManager = new ExerciseManager();
+        WorkoutManager workoutManager = new WorkoutManager(exerciseManager);
+        WorkoutLogsManager workoutLogsManager = new WorkoutLogsManager();
+        WeeklyProgramManager weeklyProgramManager = new WeeklyProgramManager(exerciseManager, workoutManager,
+                workoutLogsManager);
+        MessageBuffer messages = new MessageBuffer();
+        Storage storage = new Storage(tempFolder.resolve("data.json").toString(), messages) {
+            @Override
+            public void compact(DomainSnapshot snapshot) {
+                throw new IllegalStateException("disk gone");
+            }
+        };
+
+        AutosaveService autosave = new AutosaveService(storage, exerciseManager, workoutManager,
+                weeklyProgramManager, workoutLogsManager, 10);
+        exerciseManager.add(new Exercise("deadlift"));
+        autosave.changeRecorded();
+        String reported = messages.takeMessages();
+        for (int attempt = 0; attempt < 200 && reported.isEmpty(); attempt++) {
+            Thread.sleep(10);
+            reported = messages.takeMessages();
+        }
+        autosave.close();
+
+        assertTrue(reported.contains("disk gone"));
+        assertTrue(autosave.hasUnsavedChanges());
+        Files.deleteIfExists(tempFolder);
+    }
+}
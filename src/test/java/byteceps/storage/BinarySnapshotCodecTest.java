@@ -0,0 +1,49 @@
+package byteceps.storage;
+
+import byteceps.errors.Exceptions;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.WeeklyProgramManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.processing.WorkoutManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinarySnapshotCodecTest {
+
+    @Test
+    public void writeVarInt_boundaryValues_roundTrips() throws IOException, Exceptions.InvalidInput {
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : values) {
+            BinarySnapshotCodec.writeVarInt(out, value);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        for (int value : values) {
+            assertEquals(value, BinarySnapshotCodec.readVarInt(in));
+        }
+        assertEquals(1 + 1 + 1 + 2 + 2 + 3 + 5, bytes.size());
+    }
+
+    @Test
+    public void read_wrongMagic_throwsInvalidInput() {
+        byte[] notASnapshot = "{\"exerciseManager\":[]}".getBytes();
+        ExerciseManager exerciseManager = new ExerciseManager();
+        WorkoutManager workoutManager = new WorkoutManager(exerciseManager);
+        WorkoutLogsManager workoutLogsManager = new WorkoutLogsManager();
+        WeeklyProgramManager weeklyProgramManager = new WeeklyProgramManager(exerciseManager, workoutManager,
+                workoutLogsManager);
+
+        ByteBuffer in = ByteBuffer.wrap(notASnapshot);
+        assertThrows(Exceptions.InvalidInput.class, () -> new BinarySnapshotCodec().read(in, exerciseManager,
+                workoutManager, weeklyProgramManager, workoutLogsManager));
+    }
+}
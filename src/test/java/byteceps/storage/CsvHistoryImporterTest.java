@@ -0,0 +1,94 @@
+package byteceps.storage;
+
+import byteceps.activities.Exercise;
+import byteceps.activities.ExerciseLog;
+import byteceps.activities.WorkoutLog;
+import byteceps.errors.Exceptions;
+import byteceps.processing.ExerciseManager;
+import byteceps.processing.WorkoutLogsManager;
+import byteceps.ui.UserInterface;
+import byteceps.ui.strings.StorageStrings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CsvHistoryImporterTest {
+    private ExerciseManager exerciseManager;
+    private WorkoutLogsManager workoutLogsManager;
+
+    @BeforeEach
+    void setUp() {
+        exerciseManager = new ExerciseManager();
+        workoutLogsManager = new WorkoutLogsManager();
+    }
+
+    @Test
+    public void importFrom_interleavedSetsAndBadRows_validSetsGroupedByExercise()
+            throws IOException, Exceptions.ActivityDoesNotExist {
+        String futureDate = LocalDate.now().plusDays(1).toString();
+        int setCount = importCsv(
+                StorageStrings.CSV_HEADER,
+                "2024-01-15,legs,Squat,100,5",
+                "2024-01-15,legs,\"lunge\",20,12",
+                "2024-01-15,legs,squat,105,3",
+                "2024-01-15,legs,squat,heavy,3",
+                "2024-01-15,legs,squat",
+                futureDate + ",legs,squat,100,5",
+                "",
+                "2024-01-16,,lunge,25,10");
+
+        assertEquals(4, setCount);
+        assertFalse(exerciseManager.doesNotHaveActivity("squat"));
+        assertFalse(exerciseManager.doesNotHaveActivity("lunge"));
+        assertEquals(List.of("2024-01-15", "2024-01-16"), workoutLogsManager.getWorkoutLogDates());
+
+        WorkoutLog firstDay = (WorkoutLog) workoutLogsManager.retrieve("2024-01-15");
+        assertEquals("legs", firstDay.getWorkoutName());
+        Iterator<ExerciseLog> exerciseLogs = firstDay.getExerciseLogs().iterator();
+        ExerciseLog squatLog = exerciseLogs.next();
+        assertEquals("Squat", squatLog.getActivityName());
+        assertEquals(List.of(100, 105), squatLog.getWeights());
+        assertEquals(List.of(5, 3), squatLog.getRepetitions());
+        assertEquals(2, squatLog.getSets());
+        assertEquals(List.of(20), exerciseLogs.next().getWeights());
+
+        WorkoutLog secondDay = (WorkoutLog) workoutLogsManager.retrieve("2024-01-16");
+        assertEquals(StorageStrings.CSV_DEFAULT_WORKOUT, secondDay.getWorkoutName());
+    }
+
+    @Test
+    public void importFrom_dayComesBackAndWasLoggedBefore_earlierLogReplacedThenAddedTo()
+            throws IOException, Exceptions.ActivityDoesNotExist, Exceptions.InvalidInput,
+            Exceptions.ActivityExistsException {
+        exerciseManager.add(new Exercise("squat"));
+        workoutLogsManager.addWorkoutLog("2024-01-15", "legs");
+        workoutLogsManager.addExerciseLog("2024-01-15", "squat", "60", "1", "10");
+
+        importCsv(
+                "2024-01-15,legs,squat,100,5",
+                "2024-01-16,legs,squat,102,5",
+                "2024-01-15,legs,squat,110,2");
+
+        ExerciseLog squatLog = ((WorkoutLog) workoutLogsManager.retrieve("2024-01-15"))
+                .getExerciseLogs().iterator().next();
+        assertEquals(List.of(100, 110), squatLog.getWeights());
+        assertEquals(List.of("2024-01-15", "2024-01-16"), workoutLogsManager.getExerciseLogDates("squat"));
+        assertEquals(1, exerciseManager.getActivities().size());
+    }
+
+    private int importCsv(String... lines) throws IOException {
+        CsvHistoryImporter importer = new CsvHistoryImporter(exerciseManager, workoutLogsManager,
+                UserInterface.getInstance());
+        return importer.importFrom(new BufferedReader(new StringReader(String.join(System.lineSeparator(),
+                lines))));
+    }
+}
@@ -1,5 +1,8 @@
 package byteceps.storage;
 
+import byteceps.activities.WorkoutLog;
+import byteceps.commands.Parser;
+import byteceps.processing.DomainSnapshot;
 import byteceps.processing.ExerciseManager;
 import byteceps.processing.WorkoutManager;
 import byteceps.processing.WeeklyProgramManager;
@@ -16,12 +19,21 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
+import java.io.StringReader;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Scanner;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class StorageTest {
@@ -506,5 +518,400 @@ class StorageTest {
         restoreStreams();
     }
 
+    @Test
+    public void load_journalAfterSnapshot_changesReplayed() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path snapshotPath = tempFolder.resolve("data.json");
+        Path journalPath = Path.of(snapshotPath + StorageStrings.JOURNAL_SUFFIX);
+        Storage journalStorage = new Storage(snapshotPath.toString(), ui);
+        Parser parser = new Parser();
+
+        setUpStreams();
+        String[] inputs = {"exercise /add pushups", "workout /create upper", "workout /assign pushups /to upper",
+            "exercise /list"};
+        for (String input : inputs) {
+            assertDoesNotThrow(() -> parser.parseInput(input));
+            journalStorage.appendToJournal(parser, input);
+        }
+        assertEquals(3, Files.readAllLines(journalPath).size());
+
+        assertDoesNotThrow(() -> journalStorage.load(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager));
+        restoreStreams();
+
+        assertFalse(exerciseManager.doesNotHaveActivity("pushups"));
+        assertFalse(workoutManager.doesNotHaveActivity("upper"));
+        assertFalse(Files.exists(journalPath));
+        assertTrue(outContent.toString().contains(String.format(StorageStrings.JOURNAL_REPLAYED, 3)));
+
+        ExerciseManager reloadedExercises = new ExerciseManager();
+        WorkoutManager reloadedWorkouts = new WorkoutManager(reloadedExercises);
+        WorkoutLogsManager reloadedLogs = new WorkoutLogsManager();
+        WeeklyProgramManager reloadedProgram = new WeeklyProgramManager(reloadedExercises, reloadedWorkouts,
+                reloadedLogs);
+        setUpStreams();
+        assertDoesNotThrow(() -> journalStorage.load(reloadedExercises, reloadedWorkouts, reloadedProgram,
+                reloadedLogs));
+        restoreStreams();
+        assertFalse(reloadedExercises.doesNotHaveActivity("pushups"));
+
+        Files.deleteIfExists(snapshotPath);
+        Files.deleteIfExists(tempFolder);
+    }
+
+    @Test
+    public void load_crashedBeforeJournalTrimmed_snapshotEntriesNotReplayedAgain() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path snapshotPath = tempFolder.resolve("data.json");
+        Path journalPath = Path.of(snapshotPath + StorageStrings.JOURNAL_SUFFIX);
+        Storage journalStorage = new Storage(snapshotPath.toString(), ui);
+        Parser parser = new Parser();
+
+        // replaying the rename over a snapshot that already has it would bring back the old name
+        for (String input : List.of("exercise /add pushups", "exercise /edit pushups /to push ups")) {
+            assertDoesNotThrow(() -> parser.parseInput(input));
+            journalStorage.appendToJournal(parser, input);
+        }
+        List<String> journalBeforeSnapshot = Files.readAllLines(journalPath);
+        setUpStreams();
+        assertDoesNotThrow(() -> journalStorage.load(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager));
+        restoreStreams();
+        Files.write(journalPath, journalBeforeSnapshot);
+
+        for (int reload = 0; reload < 2; reload++) {
+            Storage reloadedStorage = new Storage(snapshotPath.toString(), ui);
+            ExerciseManager reloadedExercises = new ExerciseManager();
+            WorkoutManager reloadedWorkouts = new WorkoutManager(reloadedExercises);
+            WorkoutLogsManager reloadedLogs = new WorkoutLogsManager();
+            WeeklyProgramManager reloadedProgram = new WeeklyProgramManager(reloadedExercises, reloadedWorkouts,
+                    reloadedLogs);
+            setUpStreams();
+            assertDoesNotThrow(() -> reloadedStorage.load(reloadedExercises, reloadedWorkouts, reloadedProgram,
+                    reloadedLogs));
+            restoreStreams();
+
+            assertFalse(outContent.toString().contains(String.format(StorageStrings.JOURNAL_REPLAYED, 1)));
+            assertEquals(1, reloadedExercises.getActivities().size());
+            assertFalse(reloadedExercises.doesNotHaveActivity("push ups"));
+            assertFalse(Files.exists(journalPath));
+
+            assertDoesNotThrow(() -> parser.parseInput("exercise /add squats"));
+            reloadedStorage.appendToJournal(parser, "exercise /add squats");
+            assertEquals(List.of("3\texercise /add squats"), Files.readAllLines(journalPath));
+            Files.delete(journalPath);
+        }
+
+        Files.deleteIfExists(snapshotPath);
+        Files.deleteIfExists(tempFolder);
+    }
+
+    @Test
+    public void compact_changedAfterSnapshotTaken_changeKeptInJournal() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path snapshotPath = tempFolder.resolve("data.json");
+        Path journalPath = Path.of(snapshotPath + StorageStrings.JOURNAL_SUFFIX);
+        Storage journalStorage = new Storage(snapshotPath.toString(), ui);
+        WeeklyProgramManager programManager = new WeeklyProgramManager(exerciseManager, workoutManager,
+                workoutLogsManager);
+        Parser parser = new Parser();
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /add pushups"));
+        assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        journalStorage.appendToJournal(parser, "exercise /add pushups");
+        DomainSnapshot snapshot = journalStorage.takeSnapshot(exerciseManager, workoutManager, programManager,
+                workoutLogsManager);
+
+        assertDoesNotThrow(() -> parser.parseInput("exercise /add squats"));
+        assertDoesNotThrow(() -> exerciseManager.execute(parser));
+        journalStorage.appendToJournal(parser, "exercise /add squats");
+        journalStorage.compact(snapshot);
+
+        assertEquals(List.of("2\texercise /add squats"), Files.readAllLines(journalPath));
+        String savedSnapshot = Files.readString(snapshotPath);
+        assertTrue(savedSnapshot.contains("pushups"));
+        assertFalse(savedSnapshot.contains("squats"));
+
+        ExerciseManager reloadedExercises = new ExerciseManager();
+        WorkoutManager reloadedWorkouts = new WorkoutManager(reloadedExercises);
+        WorkoutLogsManager reloadedLogs = new WorkoutLogsManager();
+        WeeklyProgramManager reloadedProgram = new WeeklyProgramManager(reloadedExercises, reloadedWorkouts,
+                reloadedLogs);
+        setUpStreams();
+        assertDoesNotThrow(() -> journalStorage.load(reloadedExercises, reloadedWorkouts, reloadedProgram,
+                reloadedLogs));
+        restoreStreams();
+        assertFalse(reloadedExercises.doesNotHaveActivity("pushups"));
+        assertFalse(reloadedExercises.doesNotHaveActivity("squats"));
+
+        Files.deleteIfExists(snapshotPath);
+        Files.deleteIfExists(tempFolder);
+    }
+
+    @Test
+    public void decodeSegment_exerciseLoggedTwiceOnDay_laterLogKeptWithoutPrinting() {
+        String segment = "{\"WorkoutLogManager\":[{\"workoutDate\":\"2024-04-04\",\"workoutName\":\"upper\","
+                + "\"exercises\":[{\"exerciseName\":\"pushups\",\"weight\":[0],\"sets\":1,\"reps\":[12]},"
+                + "{\"exerciseName\":\"Pushups\",\"weight\":[10],\"sets\":1,\"reps\":[8]}]}]}";
+
+        setUpStreams();
+        JsonStreamLoader.DecodedSegment decodedSegment = assertDoesNotThrow(
+                () -> new JsonStreamLoader(new StringReader(segment)).decodeSegment());
+        restoreStreams();
+        assertEquals("", outContent.toString());
 
+        assertDoesNotThrow(() -> decodedSegment.linkInto(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager));
+        WorkoutLog workoutLog = (WorkoutLog) assertDoesNotThrow(() -> workoutLogsManager.retrieve("2024-04-04"));
+        assertEquals(1, workoutLog.getExerciseLogs().size());
+        assertEquals(List.of(10), workoutLog.getExerciseLogs().iterator().next().getWeights());
+    }
+
+    @Test
+    public void load_prettyPrintedJsonLogsFirst_success() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path snapshotPath = tempFolder.resolve("data.json");
+        String prettyArchive = String.join(System.lineSeparator(),
+                "{",
+                "  \"WorkoutLogManager\": [",
+                "    {",
+                "      \"workoutDate\": \"2024-04-04\",",
+                "      \"workoutName\": \"upper\",",
+                "      \"exercises\": [",
+                "        {\"exerciseName\": \"pushups\", \"weight\": [0, 10], \"sets\": 2, \"reps\": [12, 8]}",
+                "      ]",
+                "    }",
+                "  ],",
+                "  \"workoutManager\": [",
+                "    {\"activityName\": \"upper\", \"exerciseList\": [{\"activityName\": \"pushups\"}]}",
+                "  ],",
+                "  \"weeklyProgram\": {\"MONDAY\": \"upper\", \"TUESDAY\": \"\", \"WEDNESDAY\": \"\",",
+                "    \"THURSDAY\": \"\", \"FRIDAY\": \"\", \"SATURDAY\": \"\", \"SUNDAY\": \"\"},",
+                "  \"exerciseManager\": [{\"activityName\": \"pushups\"}]",
+                "}");
+        Files.writeString(snapshotPath, prettyArchive);
+
+        Storage prettyStorage = new Storage(snapshotPath.toString(), ui);
+        setUpStreams();
+        assertDoesNotThrow(() -> prettyStorage.load(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager));
+        restoreStreams();
+
+        assertTrue(outContent.toString().contains(StorageStrings.LOAD_SUCCESS));
+        assertFalse(exerciseManager.doesNotHaveActivity("pushups"));
+        assertFalse(workoutManager.doesNotHaveActivity("upper"));
+        assertFalse(workoutLogsManager.doesNotHaveActivity("2024-04-04"));
+        assertEquals("upper", assertDoesNotThrow(() -> weeklyProgramManager.getDay("monday"))
+                .getAssignedWorkout().getActivityName());
+
+        Files.deleteIfExists(snapshotPath);
+        Files.deleteIfExists(tempFolder);
+    }
+
+    @Test
+    public void save_binaryFormat_roundTripsAndConverts() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path binaryPath = tempFolder.resolve("data.bin");
+        Path jsonPath = tempFolder.resolve("data.json");
+        Parser parser = new Parser();
+        String[] inputs = {"exercise /add bench press", "workout /create push", "workout /assign bench press /to push",
+            "program /assign push /to monday"};
+        for (String input : inputs) {
+            assertDoesNotThrow(() -> parser.parseInput(input));
+            if (input.startsWith("exercise")) {
+                assertDoesNotThrow(() -> exerciseManager.execute(parser));
+            } else if (input.startsWith("workout")) {
+                assertDoesNotThrow(() -> workoutManager.execute(parser));
+            } else {
+                assertDoesNotThrow(() -> weeklyProgramManager.execute(parser));
+            }
+        }
+        workoutLogsManager.addWorkoutLog("2024-03-25", "push");
+        assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2024-03-25", "bench press",
+                "60 70 300", "3", "10 8 1"));
+
+        setUpStreams();
+        new Storage(binaryPath.toString(), ui).save(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager);
+        Storage.convert(binaryPath.toString(), jsonPath.toString(), ui);
+        restoreStreams();
+
+        ExerciseManager loadedExercises = new ExerciseManager();
+        WorkoutManager loadedWorkouts = new WorkoutManager(loadedExercises);
+        WorkoutLogsManager loadedLogs = new WorkoutLogsManager();
+        WeeklyProgramManager loadedProgram = new WeeklyProgramManager(loadedExercises, loadedWorkouts, loadedLogs);
+        setUpStreams();
+        new Storage(jsonPath.toString(), ui).load(loadedExercises, loadedWorkouts, loadedProgram, loadedLogs);
+        restoreStreams();
+
+        assertTrue(outContent.toString().contains(StorageStrings.LOAD_SUCCESS));
+        assertFalse(outContent.toString().contains(StorageStrings.LOAD_ERROR));
+        assertEquals(exerciseManager.getListString(), loadedExercises.getListString());
+        assertEquals(weeklyProgramManager.getListString(), loadedProgram.getListString());
+        assertEquals(workoutLogsManager.exportToJSON().toString(), loadedLogs.exportToJSON().toString());
+
+        Files.deleteIfExists(binaryPath);
+        Files.deleteIfExists(jsonPath);
+        Files.deleteIfExists(tempFolder);
+    }
+
+    @Test
+    public void load_binaryFormat_pagesLogsOnDemand() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path binaryPath = tempFolder.resolve("data.bin");
+        String[] dates = {"2024-03-27", "2024-03-25", "2024-03-26"};
+        for (String date : dates) {
+            workoutLogsManager.addWorkoutLog(date, "push");
+            assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog(date, "bench press",
+                    "60 70", "2", "10 8"));
+        }
+        setUpStreams();
+        new Storage(binaryPath.toString(), ui).save(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager);
+
+        ExerciseManager loadedExercises = new ExerciseManager();
+        WorkoutManager loadedWorkouts = new WorkoutManager(loadedExercises);
+        WorkoutLogsManager loadedLogs = new WorkoutLogsManager();
+        WeeklyProgramManager loadedProgram = new WeeklyProgramManager(loadedExercises, loadedWorkouts, loadedLogs);
+        Storage binaryStorage = new Storage(binaryPath.toString(), ui);
+        binaryStorage.load(loadedExercises, loadedWorkouts, loadedProgram, loadedLogs);
+
+        assertTrue(loadedLogs.getActivityList().isEmpty());
+        assertEquals(List.of("2024-03-25", "2024-03-26", "2024-03-27"), loadedLogs.getWorkoutLogDates());
+        assertTrue(loadedLogs.getListString().contains("2024-03-26"));
+        assertFalse(loadedLogs.doesNotHaveActivity("2024-03-25"));
+        assertTrue(loadedLogs.doesNotHaveActivity("2024-03-28"));
+        assertDoesNotThrow(() -> loadedLogs.retrieve("2024-03-26"));
+        assertEquals(1, loadedLogs.getActivityList().size());
+
+        loadedLogs.addWorkoutLog("2024-03-28", "pull");
+        binaryStorage.save(loadedExercises, loadedWorkouts, loadedProgram, loadedLogs);
+        WorkoutLogsManager reloadedLogs = new WorkoutLogsManager();
+        ExerciseManager reloadedExercises = new ExerciseManager();
+        WorkoutManager reloadedWorkouts = new WorkoutManager(reloadedExercises);
+        new Storage(binaryPath.toString(), ui).load(reloadedExercises, reloadedWorkouts,
+                new WeeklyProgramManager(reloadedExercises, reloadedWorkouts, reloadedLogs), reloadedLogs);
+        restoreStreams();
+
+        assertFalse(outContent.toString().contains(StorageStrings.LOAD_ERROR));
+        assertEquals(List.of("2024-03-25", "2024-03-26", "2024-03-27", "2024-03-28"),
+                reloadedLogs.getWorkoutLogDates());
+        assertEquals(loadedLogs.exportToJSON().toString(), reloadedLogs.exportToJSON().toString());
+
+        Files.deleteIfExists(binaryPath);
+        Files.deleteIfExists(tempFolder);
+    }
+
+    @Test
+    public void load_snapshotBodyChangedAfterSave_failure() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path jsonPath = tempFolder.resolve("data.json");
+        workoutLogsManager.addWorkoutLog("2024-03-25", "push");
+        setUpStreams();
+        new Storage(jsonPath.toString(), ui).save(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager);
+        assertFalse(Files.exists(Path.of(jsonPath + StorageStrings.TEMP_SUFFIX)));
+
+        String snapshot = Files.readString(jsonPath);
+        Files.writeString(jsonPath, snapshot.replace("push", "pull"));
+        outContent.reset();
+        ExerciseManager loadedExercises = new ExerciseManager();
+        WorkoutManager loadedWorkouts = new WorkoutManager(loadedExercises);
+        WorkoutLogsManager loadedLogs = new WorkoutLogsManager();
+        new Storage(jsonPath.toString(), ui).load(loadedExercises, loadedWorkouts,
+                new WeeklyProgramManager(loadedExercises, loadedWorkouts, loadedLogs), loadedLogs);
+        restoreStreams();
+
+        assertTrue(outContent.toString().contains(StorageStrings.LOAD_ERROR));
+        assertTrue(loadedLogs.getWorkoutLogDates().isEmpty());
+        try (var leftoverFiles = Files.list(tempFolder)) {
+            for (Path leftoverFile : leftoverFiles.toList()) {
+                Files.delete(leftoverFile);
+            }
+        }
+        Files.deleteIfExists(tempFolder);
+    }
+
+    @Test
+    public void save_segmentedFormat_rewritesOnlyChangedSegments() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path segmentedPath = tempFolder.resolve("data" + StorageStrings.SEGMENTED_EXTENSION);
+        String today = LocalDate.now().toString();
+        workoutLogsManager.addWorkoutLog(today, "push");
+        workoutLogsManager.addWorkoutLog("2024-02-28", "push");
+        workoutLogsManager.addWorkoutLog("2024-03-25", "push");
+        assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2024-03-25", "bench press",
+                "60 70", "2", "10 8"));
+        setUpStreams();
+        Storage segmentedStorage = new Storage(segmentedPath.toString(), ui);
+        segmentedStorage.save(exerciseManager, workoutManager, weeklyProgramManager, workoutLogsManager);
+        List<String> firstSave = listFileNames(segmentedPath);
+        assertTrue(firstSave.contains("logs-2024-02.1.json.gz"));
+        assertTrue(firstSave.contains("logs-2024-03.1.json.gz"));
+        assertTrue(firstSave.contains("logs-" + YearMonth.now() + ".1.json"));
+
+        assertDoesNotThrow(() -> workoutLogsManager.addExerciseLog("2024-03-25", "squat", "100", "1", "5"));
+        segmentedStorage.save(exerciseManager, workoutManager, weeklyProgramManager, workoutLogsManager);
+        List<String> secondSave = listFileNames(segmentedPath);
+        assertTrue(secondSave.contains("logs-2024-02.1.json.gz"));
+        assertTrue(secondSave.contains("logs-2024-03.2.json.gz"));
+        assertFalse(secondSave.contains("logs-2024-03.1.json.gz"));
+        assertTrue(secondSave.contains("logs-" + YearMonth.now() + ".1.json"));
+        assertTrue(secondSave.contains("exercises.1.json"));
+
+        ExerciseManager loadedExercises = new ExerciseManager();
+        WorkoutManager loadedWorkouts = new WorkoutManager(loadedExercises);
+        WorkoutLogsManager loadedLogs = new WorkoutLogsManager();
+        new Storage(segmentedPath.toString(), ui).load(loadedExercises, loadedWorkouts,
+                new WeeklyProgramManager(loadedExercises, loadedWorkouts, loadedLogs), loadedLogs);
+        restoreStreams();
+
+        assertFalse(outContent.toString().contains(StorageStrings.LOAD_ERROR));
+        assertEquals(workoutLogsManager.exportToJSON().toString(), loadedLogs.exportToJSON().toString());
+        for (String fileName : secondSave) {
+            Files.delete(segmentedPath.resolve(fileName));
+        }
+        Files.delete(segmentedPath);
+        Files.deleteIfExists(tempFolder);
+    }
+
+    private static List<String> listFileNames(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).toList();
+        }
+    }
+
+    @Test
+    public void load_legacyArchive_migratedInPlace() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byteceps");
+        Path jsonPath = tempFolder.resolve("data.json");
+        String legacyLogs = "[{\"workoutDate\":\"2024-04-04\",\"workoutName\":\"upper\",\"exercises\":"
+                + "[{\"exerciseName\":\"pushups\",\"weight\":[\"0\"],\"sets\":1,\"reps\":[\"12\"]}]}]";
+        Files.writeString(jsonPath, "{\"workoutManager\":[{\"exerciseSet\":[{\"activityName\":\"pushups\"}],"
+                + "\"activityName\":\"upper\",\"exerciseList\":[{\"activityName\":\"pushups\"}]}],"
+                + "\"weeklyProgram\":{\"MONDAY\":\"upper\",\"TUESDAY\":\"\",\"WEDNESDAY\":\"\",\"THURSDAY\":\"\","
+                + "\"FRIDAY\":\"\",\"SATURDAY\":\"\",\"SUNDAY\":\"\"},"
+                + "\"exerciseManager\":[{\"activityName\":\"pushups\"}],"
+                + "\"WorkoutLogManager\":" + legacyLogs + "}");
+
+        setUpStreams();
+        new Storage(jsonPath.toString(), ui).load(exerciseManager, workoutManager, weeklyProgramManager,
+                workoutLogsManager);
+        restoreStreams();
+
+        assertTrue(outContent.toString().contains(StorageStrings.LOAD_SUCCESS));
+        assertFalse(workoutManager.doesNotHaveActivity("upper"));
+        assertFalse(workoutLogsManager.doesNotHaveActivity("2024-04-04"));
+        String migrated = Files.readString(jsonPath);
+        assertTrue(migrated.startsWith("{\"schemaVersion\":" + ArchiveMigrator.CURRENT_SCHEMA_VERSION + ","));
+        assertFalse(migrated.contains(StorageStrings.EXERCISE_SET));
+        assertTrue(migrated.contains("\"WorkoutLogManager\":" + legacyLogs));
+        assertFalse(Files.exists(Path.of(jsonPath + StorageStrings.MIGRATED_SUFFIX)));
+
+        Files.writeString(jsonPath, "{\"schemaVersion\":" + (ArchiveMigrator.CURRENT_SCHEMA_VERSION + 1) + "}");
+        assertThrows(JSONException.class, () -> Storage.migrate(jsonPath.toString(), ui));
+
+        Files.deleteIfExists(jsonPath);
+        Files.deleteIfExists(tempFolder);
+    }
 }